@@ -0,0 +1,176 @@
+/** CommBenchmark.java in the package org.RCSLogServer of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer;
+
+import java.io.IOException;
+import java.net.*;
+import java.util.concurrent.TimeUnit;
+import org.RCSLogServer.LogParser.SampleLogs;
+import org.openjdk.jmh.annotations.*;
+
+
+/** Cost of the conversions done by the comm threads for each message
+ *
+ * The comm threads used to turn every received packet into a trimmed
+ * String, and back into bytes to send and log it (strings). They now
+ * forward the received bytes and only scan them for the bye command
+ * (bytes). The send and receive of a packet over the loopback
+ * interface, reusing one DatagramPacket as the legs do, gives the
+ * cost of the sockets themselves (loopback).
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommBenchmark
+{
+    @Param({"see", "sense_body", "control"})
+    public String kind;
+
+    private static final int PACKET_SIZE = 8192;  // Default packet size of the log server
+    private byte[][] messages;  // messages as received, at the start of a packet buffer
+    private int[] lengths;
+    private int next;
+    private DatagramSocket sender;
+    private DatagramSocket receiver;
+    private DatagramPacket packet;  // reused for sending and receiving
+
+    /** Reads the messages and opens the loopback sockets
+     *
+     * @throws IOException when the sample logs cannot be read or the
+     * sockets cannot be opened
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    @Setup
+    public void setUp()
+	throws IOException
+    {
+	String[] lines = SampleLogs.lines(kind);
+	messages = new byte[lines.length][];
+	lengths = new int[lines.length];
+	for (int i = 0; i < lines.length; i++) {
+	    byte[] bytes = lines[i].getBytes();
+	    messages[i] = new byte[PACKET_SIZE];
+	    lengths[i] = Math.min(bytes.length, PACKET_SIZE);
+	    System.arraycopy(bytes, 0, messages[i], 0, lengths[i]);
+	}
+	next = 0;
+	InetAddress loopback = InetAddress.getLoopbackAddress();
+	receiver = new DatagramSocket(0, loopback);
+	receiver.setSoTimeout(1000);
+	sender = new DatagramSocket(0, loopback);
+	packet = new DatagramPacket(new byte[PACKET_SIZE], PACKET_SIZE);
+    }
+
+    /** Closes the sockets
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    @TearDown
+    public void tearDown()
+    {
+	sender.close();
+	receiver.close();
+    }
+
+    /** Returns the index of the next message
+     *
+     * @return the index
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private int nextMessage()
+    {
+	int i = next;
+	if (++next == messages.length)
+	    next = 0;
+	return i;
+    }
+
+    /** Received packet to String and back to bytes
+     *
+     * @return the bytes to send and log
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    @Benchmark
+    public byte[] strings()
+    {
+	int i = nextMessage();
+	String record = (new String(messages[i], 0, lengths[i])).trim();
+	return record.getBytes();
+    }
+
+    /** Received packet scanned for the bye command
+     *
+     * @return true for a bye
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    @Benchmark
+    public boolean bytes()
+    {
+	int i = nextMessage();
+	return LogMemory.isBye(messages[i], 0, lengths[i]);
+    }
+
+    /** Packet sent and received over the loopback interface
+     *
+     * @return the received length
+     * @throws IOException when the packet is lost
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    @Benchmark
+    public int loopback()
+	throws IOException
+    {
+	int i = nextMessage();
+	packet.setData(messages[i], 0, lengths[i]);
+	packet.setSocketAddress(receiver.getLocalSocketAddress());
+	sender.send(packet);
+	packet.setData(messages[i], 0, PACKET_SIZE);
+	receiver.receive(packet);
+	return packet.getLength();
+    }
+}
@@ -0,0 +1,84 @@
+/** ConsumingListener.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Listener of all the parsing events, handing their lines to a JMH
+ * Blackhole, so the benchmarks measure the building of every event.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class ConsumingListener implements ParsingEventListener
+{
+    private Blackhole bh;
+
+    /** ConsumingListener constructor
+     *
+     * @param bh the Blackhole of the benchmark
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public ConsumingListener(Blackhole bh)
+    {
+	this.bh=bh;
+    }
+
+    //Server messages
+    public void ServerInit(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void Hear(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void Score(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void SeeReceived(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void SeeParsed(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void SenseBody(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void Error(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void ServerParams(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void Controling(ParsingEvent pe){ bh.consume(pe); }
+    public void Sensing(ParsingEvent pe){ bh.consume(pe); }
+
+    //Objects in the field
+    public void Player(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void Ball(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void Flag(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void Line(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void Goal(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+
+    //Client messages
+    public void ClientInit(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void Catch(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void ChangeView(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void Dash(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void Kick(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void Move(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void Say(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void Turn(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void TurnNeck(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void SimpleControl(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+    public void OtherControl(ParsingEvent pe){ bh.consume(pe.getParsedLine()); }
+}
@@ -0,0 +1,138 @@
+/** FileParseBenchmark.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Time to parse a whole sample log, with a listener of all the
+ * events.
+ *
+ * The modes are a BufferedReader loop calling LogParser.parse for each
+ * line (the way the callers used to do it), the bulk
+ * LogParser.parse(Path), the ParallelLogParser on the common pool, and
+ * the BinaryLogReader reading the log converted to the binary format.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileParseBenchmark
+{
+    @Param({"University_1.lsf", "Carleton_1.lsf"})
+    public String file;
+
+    @Param({"reader", "bulk", "parallel", "binary"})
+    public String mode;
+
+    private Path path;
+    private Blackhole bh;
+
+    /** Finds the log, and converts it in the binary mode
+     *
+     * @param bh the Blackhole receiving the events
+     * @throws IOException when the log cannot be converted
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    @Setup
+    public void setUp(Blackhole bh)
+    throws IOException
+    {
+	path=SampleLogs.file(file);
+	this.bh=bh;
+	if(mode.equals("binary")){
+	    Path binary=Files.createTempFile("FileParseBenchmark",".lsb");
+	    BinaryLogConverter.convert(path,binary);
+	    path=binary;
+	}
+    }
+
+    /** Deletes the converted log
+     *
+     * @throws IOException when the log cannot be deleted
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    @TearDown
+    public void tearDown()
+    throws IOException
+    {
+	if(mode.equals("binary"))
+	    Files.delete(path);
+    }
+
+    /** Parses the whole log
+     *
+     * @throws IOException when the log cannot be read or parsed
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    @Benchmark
+    public void parseFile()
+    throws IOException
+    {
+	if(mode.equals("parallel")){
+	    ParallelLogParser parser=new ParallelLogParser();
+	    parser.addPEListener(new ConsumingListener(bh));
+	    parser.parse(path.toString());
+	    return;
+	}
+	LogParser parser=new LogParser();
+	parser.addPEListener(new ConsumingListener(bh));
+	if(mode.equals("bulk")){
+	    parser.parse(path);
+	    return;
+	}
+	if(mode.equals("binary")){
+	    new BinaryLogReader(parser).parse(path);
+	    return;
+	}
+	BufferedReader in=new BufferedReader(new FileReader(path.toFile()));
+	try{
+	    String line;
+	    while((line=in.readLine()) != null)
+		parser.parse(line);
+	} finally{
+	    in.close();
+	}
+    }
+}
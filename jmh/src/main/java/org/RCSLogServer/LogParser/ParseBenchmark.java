@@ -0,0 +1,99 @@
+/** ParseBenchmark.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Time to parse one line with LogParser.parse, for each kind of
+ * message.
+ *
+ * The lines of the kind are taken from the sample logs and parsed in
+ * turn, with no listener (the ParsedLine is built, the events are not)
+ * or with a listener of all the events.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark
+{
+    @Param({"see", "sense_body", "hear", "control", "server_param"})
+    public String kind;
+
+    @Param({"none", "all"})
+    public String listeners;
+
+    private String[] lines;
+    private int next;
+    private LogParser parser;
+
+    /** Reads the lines and prepares the parser
+     *
+     * @param bh the Blackhole receiving the events
+     * @throws IOException when the sample logs cannot be read
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    @Setup
+    public void setUp(Blackhole bh)
+    throws IOException
+    {
+	lines=SampleLogs.lines(kind);
+	next=0;
+	parser=new LogParser();
+	if(listeners.equals("all"))
+	    parser.addPEListener(new ConsumingListener(bh));
+    }
+
+    /** Parses the next line
+     *
+     * @return the parsed line
+     * @throws IOException when the line cannot be parsed
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    @Benchmark
+    public ParsedLine parse()
+    throws IOException
+    {
+	String line=lines[next];
+	if(++next == lines.length)
+	    next=0;
+	return parser.parse(line);
+    }
+}
@@ -0,0 +1,134 @@
+/** SampleLogs.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.*;
+
+
+/**
+ * Lines of the sample player logs (University_1.lsf and
+ * Carleton_1.lsf), used by the benchmarks.
+ *
+ * The logs are read from the directory given by the rcs.logs system
+ * property, by default the parent directory (the repository, when
+ * running from the jmh module).
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public final class SampleLogs
+{
+    /** The sample logs */
+    public static final String[] FILES = {"University_1.lsf", "Carleton_1.lsf"};
+
+    /** Main messages of the control lines */
+    private static final String[] CONTROLS = {"dash", "kick", "turn", "turn_neck", "change_view", "say", "move", "catch", "attentionto"};
+
+    private SampleLogs()
+    {
+    }
+
+    /** Returns the path of a sample log
+     *
+     * @param name the file name, like "University_1.lsf"
+     * @return the path of the log
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static Path file(String name)
+    {
+	Path path=Paths.get(System.getProperty("rcs.logs",".."),name);
+	if(!Files.exists(path))
+	    throw new IllegalStateException("Sample log not found: "+path.toAbsolutePath()
+					    +" (set -Drcs.logs to the directory of the .lsf files)");
+	return path;
+    }
+
+    /** Returns all the lines of the sample logs
+     *
+     * @return the lines, in file order
+     * @throws IOException when a log cannot be read
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static String[] lines()
+    throws IOException
+    {
+	ArrayList<String> lines=new ArrayList<String>();
+	for(String name:FILES)
+	    lines.addAll(Files.readAllLines(file(name),Charset.defaultCharset()));
+	return lines.toArray(new String[lines.size()]);
+    }
+
+    /** Returns the lines of one kind of message
+     *
+     * @param kind "see", "sense_body", "hear", "control" (the player
+     * commands) or "server_param"
+     * @return the lines of that kind in the sample logs, in file order
+     * @throws IOException when a log cannot be read
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static String[] lines(String kind)
+    throws IOException
+    {
+	ArrayList<String> lines=new ArrayList<String>();
+	for(String line:lines())
+	    if(isKind(line,kind))
+		lines.add(line);
+	if(lines.isEmpty())
+	    throw new IllegalArgumentException("No "+kind+" line in the sample logs");
+	return lines.toArray(new String[lines.size()]);
+    }
+
+    /** Checks the kind of a line
+     *
+     * @param line the log line
+     * @param kind the kind of message
+     * @return true if the line is of that kind
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static boolean isKind(String line, String kind)
+    {
+	if(kind.equals("control")){
+	    for(String control:CONTROLS)
+		if(line.startsWith("("+control+" "))
+		    return true;
+	    return false;
+	}
+	return line.startsWith("("+kind+" ");
+    }
+}
@@ -0,0 +1,117 @@
+/** LoggerBenchmark.java in the package org.RCSLogServer of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+import org.RCSLogServer.LogParser.SampleLogs;
+import org.openjdk.jmh.annotations.*;
+
+
+/** Throughput of Logger.addRecord
+ *
+ * The lines of the sample logs are added in turn to a logger writing
+ * a temporary file, as the comm threads do: from the packet bytes, or
+ * from a String. The queue blocks when the LogWriter falls behind, so
+ * the writing of the file is part of the measure.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggerBenchmark
+{
+    @Param({"TEXT", "DEFLATE", "BINARY"})
+    public String format;
+
+    @Param({"bytes", "string"})
+    public String record;
+
+    private String[] lines;
+    private byte[][] packets;  // the lines as received, padded like a packet buffer
+    private int next;
+    private File file;
+    private Logger logger;
+
+    /** Reads the lines and opens the logger
+     *
+     * @throws IOException when the sample logs cannot be read
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    @Setup
+    public void setUp()
+	throws IOException
+    {
+	lines = SampleLogs.lines();
+	packets = new byte[lines.length][];
+	for (int i = 0; i < lines.length; i++)
+	    packets[i] = lines[i].getBytes();
+	next = 0;
+	Logger.setFormat(Logger.Format.valueOf(format));
+	file = File.createTempFile("LoggerBenchmark", ".lsf");
+	logger = new Logger(file.getPath());
+    }
+
+    /** Closes the logger and deletes its files
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    @TearDown
+    public void tearDown()
+    {
+	logger.close();
+	new File(logger.getFilename()).delete();
+	new File(logger.getFilename() + "i").delete();
+	file.delete();
+    }
+
+    /** Adds the next line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    @Benchmark
+    public void addRecord()
+    {
+	int i = next;
+	if (++next == lines.length)
+	    next = 0;
+	if (record.equals("bytes"))
+	    logger.addRecord(packets[i], 0, packets[i].length);
+	else
+	    logger.addRecord(lines[i]);
+    }
+}
@@ -0,0 +1,61 @@
+/** RunBenchmarks.java in the package org.RCSLogServer of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer;
+
+import java.util.*;
+
+
+/** Runs the JMH benchmarks of the log server
+ *
+ * Takes the usual JMH command line (benchmark patterns, -f, -wi, -i,
+ * etc.). The GC profiler is added unless a profiler is given, so the
+ * allocation rate (gc.alloc.rate.norm, in bytes per operation) is
+ * reported next to the times.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class RunBenchmarks
+{
+    /** Main program
+     *
+     * @param args the JMH command line
+     * @throws Exception when the benchmarks cannot be run
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static void main(String[] args)
+	throws Exception
+    {
+	ArrayList<String> options = new ArrayList<String>(Arrays.asList(args));
+	if (!options.contains("-prof") && !options.contains("-h") && !options.contains("-l")) {
+	    options.add("-prof");
+	    options.add("gc");
+	}
+	org.openjdk.jmh.Main.main(options.toArray(new String[options.size()]));
+    }
+}
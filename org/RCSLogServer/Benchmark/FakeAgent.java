@@ -0,0 +1,219 @@
+/** FakeAgent.java in the package org.RCSLogServer.Benchmark of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer.Benchmark;
+
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/** Plays a Soccer client replaying the commands of a logged player
+ *
+ * The agent connects through the log server, then sends the client
+ * commands of the replayed log, one step per cycle period, and
+ * receives the server messages. It ends with a (bye), so the log
+ * server closes the session.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+class FakeAgent implements Runnable
+{
+    //===========================================================================
+    // Private members
+    private static final int INIT_TRIES = 5;  // Init messages sent before giving up
+    private InetSocketAddress log_server;  // Init address of the log server
+    private String team;  // Team name of this agent
+    private LogReplay replay;  // Traffic to replay
+    private long period;  // Cycle period (ns)
+    private ConcurrentHashMap<String,PlayerTraffic> players;  // Measurements by player name
+    private PlayerTraffic traffic = null;  // Measurements of this agent, set after the init
+    private volatile boolean stopthread = false;
+    private DatagramSocket socket;
+
+    /** constructor method
+     *
+     * @param address the init address of the log server
+     * @param team_name the team name of the agent
+     * @param log the traffic to replay
+     * @param cycle_period the cycle period in nanoseconds, 0 for no pacing
+     * @param measurements the measurements of the players, filled in by
+     * the fake server
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public FakeAgent(InetSocketAddress address, String team_name, LogReplay log, long cycle_period,
+		     ConcurrentHashMap<String,PlayerTraffic> measurements)
+    {
+	log_server = address;
+	team = team_name;
+	replay = log;
+	period = cycle_period;
+	players = measurements;
+    }
+
+    /** Returns the measurements of the agent
+     *
+     * @return the measurements, null if the agent could not connect
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public PlayerTraffic getTraffic()
+    {
+	return traffic;
+    }
+
+    /** Stops the agent and closes its socket
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void close()
+    {
+	stopthread = true;
+	if (socket != null)
+	    socket.close();
+    }
+
+    /** Connects and sends the commands
+     *
+     * @Override
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     */
+    public void run()
+    {
+	try {
+	    socket = new DatagramSocket();
+	    final SocketAddress proxy = connect();
+	    if (proxy == null)
+		return;
+	    socket.setSoTimeout(0);
+
+	    Thread receiver = new Thread(new Runnable() {
+		    public void run() {
+			receive();
+		    }
+		}, traffic.player_name + "-agent-receiver");
+	    receiver.setDaemon(true);
+	    receiver.start();
+
+	    boolean bye = false;
+	    Pacer pacer = new Pacer(period);
+	    for (int step = 0; step < replay.getStepCount() && !stopthread; step++) {
+		pacer.await(step);
+		for (String command : replay.getClientCommands(step)) {
+		    send(proxy, command);
+		    bye = command.startsWith("(bye");
+		}
+	    }
+	    if (!bye && !stopthread)
+		send(proxy, "(bye)");
+	} catch (IOException e) {
+	    if (!stopthread)
+		System.err.println("Agent " + team + " error " + e);
+	}
+    }
+
+    /** Sends the init message and waits for the answer
+     *
+     * @return the log server end of the session, or null on failure
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private SocketAddress connect()
+	throws IOException
+    {
+	byte[] init = replay.getClientInit(team).getBytes();
+	byte[] buffer = new byte[4096];
+	DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+	socket.setSoTimeout(1000);
+	for (int i = 0; i < INIT_TRIES && !stopthread; i++) {
+	    socket.send(new DatagramPacket(init, init.length, log_server));
+	    try {
+		packet.setLength(buffer.length);
+		socket.receive(packet);
+	    } catch (SocketTimeoutException e) {
+		continue;
+	    }
+	    String[] answer = (new String(buffer, 0, packet.getLength())).trim().split(" ");
+	    if (answer.length < 3 || !answer[0].equals("(init"))
+		continue;
+	    traffic = players.get(team + "_" + answer[2]);
+	    if (traffic != null)
+		return packet.getSocketAddress();
+	}
+	System.err.println("Agent " + team + " could not connect to " + log_server);
+	return null;
+    }
+
+    /** Sends a command to the log server
+     *
+     * @param proxy the log server end of the session
+     * @param command the command
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void send(SocketAddress proxy, String command)
+	throws IOException
+    {
+	byte[] data = command.getBytes();
+	traffic.client_to_server.sending(command, data.length);
+	socket.send(new DatagramPacket(data, data.length, proxy));
+    }
+
+    /** Receives the server messages
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void receive()
+    {
+	byte[] buffer = new byte[4096];
+	DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+	while (!stopthread) {
+	    packet.setLength(buffer.length);
+	    try {
+		socket.receive(packet);
+	    } catch (IOException e) {
+		if (!stopthread)
+		    System.err.println("Agent receiving error " + e);
+		return;
+	    }
+	    traffic.server_to_client.received((new String(buffer, 0, packet.getLength())).trim(), packet.getLength());
+	}
+    }
+}
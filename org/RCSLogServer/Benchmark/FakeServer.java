@@ -0,0 +1,236 @@
+/** FakeServer.java in the package org.RCSLogServer.Benchmark of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer.Benchmark;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/** Plays the Soccer Server side of the replayed players
+ *
+ * Like the Soccer Server, the fake server answers each init message
+ * from a new socket, assigning the uniform numbers in order within
+ * each team. It then sends the server messages of the replayed log,
+ * one step per cycle period, and receives the commands forwarded by
+ * the log server.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+class FakeServer extends Thread
+{
+    //===========================================================================
+    // Private members
+    private DatagramSocket listen_socket;  // Initialization socket
+    private LogReplay replay;  // Traffic to replay
+    private long period;  // Cycle period (ns)
+    private ConcurrentHashMap<String,PlayerTraffic> players;  // Measurements by player name
+    private HashMap<SocketAddress,PlayerTraffic> clients;  // Players by log server address
+    private HashMap<String,Integer> teams;  // Players of each team so far
+    private HashMap<String,String> sides;  // Field side of each team
+    private Vector<DatagramSocket> sockets;  // Sockets of the players
+    private volatile boolean stopthread = false;
+
+    /** constructor method
+     *
+     * @param port the port to listen on
+     * @param log the traffic to replay
+     * @param cycle_period the cycle period in nanoseconds, 0 for no pacing
+     * @param measurements the map receiving the measurements of the players
+     *
+     * @throws SocketException when the port cannot be opened
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public FakeServer(int port, LogReplay log, long cycle_period, ConcurrentHashMap<String,PlayerTraffic> measurements)
+	throws SocketException
+    {
+	super("FakeServer");
+	listen_socket = new DatagramSocket(port);
+	listen_socket.setSoTimeout(500);
+	replay = log;
+	period = cycle_period;
+	players = measurements;
+	clients = new HashMap<SocketAddress,PlayerTraffic>();
+	teams = new HashMap<String,Integer>();
+	sides = new HashMap<String,String>();
+	sockets = new Vector<DatagramSocket>();
+    }
+
+    /** Stops the server and closes all its sockets
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void close()
+    {
+	stopthread = true;
+	listen_socket.close();
+	synchronized (sockets) {
+	    for (DatagramSocket socket : sockets)
+		socket.close();
+	}
+    }
+
+    /** Accepts the init messages
+     *
+     * @Override
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     */
+    public void run()
+    {
+	byte[] buffer = new byte[4096];
+	DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+	while (!stopthread) {
+	    packet.setLength(buffer.length);
+	    try {
+		listen_socket.receive(packet);
+	    } catch (SocketTimeoutException e) {
+		continue;
+	    } catch (IOException e) {
+		if (!stopthread)
+		    System.err.println("Fake server receiving error " + e);
+		continue;
+	    }
+	    if (clients.containsKey(packet.getSocketAddress()))
+		continue; // repeated init, already answered
+	    String init = (new String(buffer, 0, packet.getLength())).trim();
+	    if (!init.startsWith("(init "))
+		continue;
+	    String team = init.substring(6).split("[\\s()]")[0];
+	    Integer count = teams.get(team);
+	    int unum = (count == null) ? 1 : count + 1;
+	    if (count == null)
+		sides.put(team, (sides.size() % 2 == 0) ? "l" : "r");
+	    teams.put(team, unum);
+	    try {
+		start(packet.getSocketAddress(), team, sides.get(team), unum);
+	    } catch (SocketException e) {
+		System.err.println("Fake server cannot open a player socket " + e);
+	    }
+	}
+    }
+
+    /** Starts the server end of a player
+     *
+     * @param address the address the init came from
+     * @param team the team name
+     * @param side the field side, l or r
+     * @param unum the uniform number
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void start(final SocketAddress address, String team, String side, int unum)
+	throws SocketException
+    {
+	final DatagramSocket socket = new DatagramSocket();
+	sockets.add(socket);
+	final PlayerTraffic traffic = new PlayerTraffic(team + "_" + unum);
+	clients.put(address, traffic);
+	players.put(traffic.player_name, traffic);
+	final String answer = "(init " + side + " " + unum + " before_kick_off)";
+
+	Thread receiver = new Thread(new Runnable() {
+		public void run() {
+		    receive(socket, traffic);
+		}
+	    }, traffic.player_name + "-server-receiver");
+	receiver.setDaemon(true);
+	receiver.start();
+
+	Thread sender = new Thread(new Runnable() {
+		public void run() {
+		    send(socket, address, answer, traffic);
+		}
+	    }, traffic.player_name + "-server-sender");
+	sender.setDaemon(true);
+	sender.start();
+    }
+
+    /** Sends the init answer, then the server messages of every step
+     *
+     * @param socket the socket of the player
+     * @param address the log server end of the player
+     * @param answer the init answer
+     * @param traffic the measurements of the player
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void send(DatagramSocket socket, SocketAddress address, String answer, PlayerTraffic traffic)
+    {
+	try {
+	    byte[] data = answer.getBytes();
+	    socket.send(new DatagramPacket(data, data.length, address));
+	    Pacer pacer = new Pacer(period);
+	    for (int step = 0; step < replay.getStepCount() && !stopthread; step++) {
+		pacer.await(step);
+		for (String message : replay.getServerMessages(step)) {
+		    data = message.getBytes();
+		    traffic.server_to_client.sending(message, data.length);
+		    socket.send(new DatagramPacket(data, data.length, address));
+		}
+	    }
+	} catch (IOException e) {
+	    if (!stopthread)
+		System.err.println("Fake server sending error " + e);
+	}
+    }
+
+    /** Receives the commands of a player
+     *
+     * @param socket the socket of the player
+     * @param traffic the measurements of the player
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void receive(DatagramSocket socket, PlayerTraffic traffic)
+    {
+	byte[] buffer = new byte[4096];
+	DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+	while (!stopthread) {
+	    packet.setLength(buffer.length);
+	    try {
+		socket.receive(packet);
+	    } catch (IOException e) {
+		if (!stopthread)
+		    System.err.println("Fake server receiving error " + e);
+		return;
+	    }
+	    traffic.client_to_server.received((new String(buffer, 0, packet.getLength())).trim(), packet.getLength());
+	}
+    }
+}
@@ -0,0 +1,232 @@
+/** LoadGenerator.java in the package org.RCSLogServer.Benchmark of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer.Benchmark;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import org.RCSLogServer.LatencyHistogram;
+
+
+/** End to end benchmark of a running log server
+ *
+ * Replays a player log (.lsf) through the log server over UDP: a fake
+ * Soccer Server sends the recorded server messages and fake agents
+ * send the recorded client commands, for any number of players at a
+ * multiple of the real time speed. The log server is started apart,
+ * with its server port pointing to the fake server:
+ * <pre>
+ *   java org.RCSLogServer.RCSLogServer -s_port 16000 -c_port 17000
+ *   java org.RCSLogServer.Benchmark.LoadGenerator -lsf University_1.lsf -s_port 16000 -c_port 17000 -players 22 -speed 10
+ * </pre>
+ * The report gives the throughput, the lost messages and the latency
+ * percentiles through the log server, in each direction. Raising the
+ * players or the speed until messages get lost finds the saturation
+ * point of the log server.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class LoadGenerator
+{
+    //===========================================================================
+    // Private members
+    private static final long CYCLE = 100000000L;  // Real time cycle period (ns)
+    private static final long DRAIN_TIME = 1000;  // Wait for the messages in flight (ms)
+
+    /** The executable method
+     *
+     * @param a the command line arguments
+     * @throws IOException when the log cannot be read or a socket cannot
+     * be opened
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static void main(String a[]) throws IOException
+    {
+	String lsf = "University_1.lsf";
+	String c_hostName = "localhost";
+	int s_portNum = 6000;
+	int c_portNum = 7000;
+	int players = 22;
+	double speed = 1;
+	int cycles = 0;
+	boolean verbose = false;
+
+	try
+	    {
+		for( int c = 0 ; c < a.length ; c += 2 )
+		    {
+			if( a[c].compareTo("-lsf") == 0 )
+			    {
+				lsf = a[c+1];
+			    }
+			else if( a[c].compareTo("-c_host") == 0 )
+			    {
+				c_hostName = a[c+1];
+			    }
+			else if( a[c].compareTo("-s_port") == 0 )
+			    {
+				s_portNum = Integer.parseInt(a[c+1]);
+			    }
+			else if ( a[c].compareTo("-c_port") == 0 )
+			    {
+				c_portNum = Integer.parseInt(a[c+1]);
+			    }
+			else if ( a[c].compareTo("-players") == 0 )
+			    {
+				players = Integer.parseInt(a[c+1]);
+				if (players < 1)
+				    throw new Exception();
+			    }
+			else if ( a[c].compareTo("-speed") == 0 )
+			    {
+				speed = Double.parseDouble(a[c+1]);
+				if (speed < 0)
+				    throw new Exception();
+			    }
+			else if ( a[c].compareTo("-cycles") == 0 )
+			    {
+				cycles = Integer.parseInt(a[c+1]);
+				if (cycles < 0)
+				    throw new Exception();
+			    }
+			else if ( a[c].compareTo("-verbose") == 0 )
+			    {
+				verbose = (a[c+1].compareTo("on") == 0);
+			    }
+			else
+			    {
+				throw new Exception();
+			    }
+		    }
+	    }
+	catch(Exception e)
+	    {
+		System.err.println("");
+		System.err.println("USAGE: java org.RCSLogServer.Benchmark.LoadGenerator [-parameter value]");
+		System.err.println("");
+		System.err.println("    Parameters  value        default");
+		System.err.println("   ------------------------------------");
+		System.err.println("    lsf         log_file     University_1.lsf");
+		System.err.println("    c_host      host_name    localhost   (log server)");
+		System.err.println("    c_port      port_number  7000        (log server)");
+		System.err.println("    s_port      port_number  6000        (fake server)");
+		System.err.println("    players     count        22");
+		System.err.println("    speed       factor (0 max)  1");
+		System.err.println("    cycles      count (0 all)   0");
+		System.err.println("    verbose     on|off       off");
+		System.err.println("");
+		System.err.println("    Example:");
+		System.err.println("      java org.RCSLogServer.Benchmark.LoadGenerator -lsf University_1.lsf -s_port 16000 -c_port 17000 -players 22 -speed 10");
+		return;
+	    }
+
+	LogReplay replay = new LogReplay(lsf, cycles);
+	long period = (speed == 0) ? 0 : (long)(CYCLE / speed);
+	ConcurrentHashMap<String,PlayerTraffic> measurements = new ConcurrentHashMap<String,PlayerTraffic>();
+	FakeServer server = new FakeServer(s_portNum, replay, period, measurements);
+	server.start();
+
+	System.out.println("Replaying " + lsf + ": " + players + " players, " + replay.getStepCount() + " cycles at "
+			   + ((speed == 0) ? "full speed" : speed + "x real time") + " ...");
+	InetSocketAddress log_server = new InetSocketAddress(InetAddress.getByName(c_hostName), c_portNum);
+	FakeAgent[] agents = new FakeAgent[players];
+	Thread[] threads = new Thread[players];
+	long start = System.nanoTime();
+	for (int i = 0; i < players; i++) {
+	    // eleven players per team, as in a match
+	    agents[i] = new FakeAgent(log_server, replay.getTeam() + (i / 11 + 1), replay, period, measurements);
+	    threads[i] = new Thread(agents[i], "agent-" + i);
+	    threads[i].start();
+	}
+	for (int i = 0; i < players; i++) {
+	    try {
+		threads[i].join();
+	    } catch (InterruptedException e) {
+		System.err.println("Thread Interruption: " + e);
+	    }
+	}
+	try {
+	    Thread.sleep(DRAIN_TIME);
+	} catch (InterruptedException e) {
+	    System.err.println("Thread Interruption: " + e);
+	}
+	double seconds = (System.nanoTime() - start) / 1e9 - DRAIN_TIME / 1000.0;
+	for (FakeAgent agent : agents)
+	    agent.close();
+	server.close();
+
+	ArrayList<PlayerTraffic> connected = new ArrayList<PlayerTraffic>();
+	for (FakeAgent agent : agents)
+	    if (agent.getTraffic() != null)
+		connected.add(agent.getTraffic());
+	ArrayList<TrafficMeter> client_to_server = new ArrayList<TrafficMeter>();
+	ArrayList<TrafficMeter> server_to_client = new ArrayList<TrafficMeter>();
+	for (PlayerTraffic traffic : connected) {
+	    traffic.client_to_server.finish();
+	    traffic.server_to_client.finish();
+	    client_to_server.add(traffic.client_to_server);
+	    server_to_client.add(traffic.server_to_client);
+	    if (verbose) {
+		System.out.println(report(traffic.player_name + " client->server", Collections.singletonList(traffic.client_to_server), seconds));
+		System.out.println(report(traffic.player_name + " server->client", Collections.singletonList(traffic.server_to_client), seconds));
+	    }
+	}
+	System.out.println(String.format("%d of %d players connected, %.1f s", connected.size(), players, seconds));
+	System.out.println(report("client->server", client_to_server, seconds));
+	System.out.println(report("server->client", server_to_client, seconds));
+	System.exit(0);
+    }
+
+    /** Sums up the measurements of one direction
+     *
+     * @param title the line title
+     * @param meters the measurements
+     * @param seconds the duration of the replay
+     * @return the report line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static String report(String title, List<TrafficMeter> meters, double seconds)
+    {
+	long sent = 0, received = 0, bytes = 0, lost = 0, unexpected = 0;
+	LatencyHistogram latency = new LatencyHistogram();
+	for (TrafficMeter meter : meters) {
+	    sent += meter.getSent();
+	    received += meter.getReceived();
+	    bytes += meter.getReceivedBytes();
+	    lost += meter.getLost();
+	    unexpected += meter.getUnexpected();
+	    latency.add(meter.getLatency());
+	}
+	return String.format("%s sent=%d received=%d lost=%d unexpected=%d %.0f msg/s %.1f KB/s latency %s",
+			     title, sent, received, lost, unexpected, received / seconds, bytes / seconds / 1024, latency);
+    }
+}
@@ -0,0 +1,208 @@
+/** LogReplay.java in the package org.RCSLogServer.Benchmark of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer.Benchmark;
+
+import java.io.*;
+import java.util.*;
+
+
+/** The traffic of one player, read from a log file (.lsf)
+ *
+ * The log file holds the init message of the client, the init answer
+ * of the server, and then all the messages of both sides in arrival
+ * order. The messages are cut in steps, each one starting with a
+ * sense_body message, which the server sends once per simulation
+ * cycle: a step is replayed every cycle period, the server messages by
+ * the fake server and the client commands by the fake agent.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+class LogReplay
+{
+    //===========================================================================
+    // Private members
+    private static final String[] SERVER_MESSAGES = {
+	"(sense_body", "(see", "(hear", "(server_param", "(player_param", "(player_type",
+	"(change_player_type", "(fullstate", "(score", "(ok", "(error", "(warning", "(init", "(reconnect"
+    };
+    private String client_init;  // Init message of the client
+    private String team;  // Team name of the recorded player
+    private ArrayList<String[]> server_steps;  // Server messages of each step
+    private ArrayList<String[]> client_steps;  // Client commands of each step
+
+    /** constructor method
+     *
+     * @param filename the log file to replay
+     * @param cycles the maximum number of steps, 0 for the whole log
+     *
+     * @throws IOException when the log cannot be read, or is not a
+     * player log
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public LogReplay(String filename, int cycles)
+	throws IOException
+    {
+	BufferedReader in = new BufferedReader(new FileReader(filename));
+	try {
+	    client_init = in.readLine();
+	    String server_init = in.readLine();
+	    if (client_init == null || server_init == null || !client_init.startsWith("(init "))
+		throw new IOException(filename + " is not a player log");
+	    team = client_init.substring(6).split("[\\s()]")[0];
+
+	    server_steps = new ArrayList<String[]>();
+	    client_steps = new ArrayList<String[]>();
+	    ArrayList<String> server = new ArrayList<String>();
+	    ArrayList<String> client = new ArrayList<String>();
+	    String line;
+	    while ((line = in.readLine()) != null) {
+		line = line.trim();
+		if (line.length() == 0)
+		    continue;
+		if (line.startsWith("(sense_body") && !server.isEmpty()) {
+		    if (cycles > 0 && server_steps.size() == cycles)
+			break;
+		    addStep(server, client);
+		}
+		if (isServerMessage(line))
+		    server.add(line);
+		else
+		    client.add(line);
+	    }
+	    if (cycles == 0 || server_steps.size() < cycles)
+		addStep(server, client);
+	} finally {
+	    in.close();
+	}
+    }
+
+    /** Returns the init message of the client, for another team name
+     *
+     * @param name the team name to use
+     * @return the init message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String getClientInit(String name)
+    {
+	return "(init " + name + client_init.substring(6 + team.length());
+    }
+
+    /** Returns the team name of the recorded player
+     *
+     * @return the team name
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String getTeam()
+    {
+	return team;
+    }
+
+    /** Returns the number of steps
+     *
+     * @return the number of cycles to replay
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public int getStepCount()
+    {
+	return server_steps.size();
+    }
+
+    /** Returns the server messages of a step
+     *
+     * @param step the step number
+     * @return the messages
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String[] getServerMessages(int step)
+    {
+	return server_steps.get(step);
+    }
+
+    /** Returns the client commands of a step
+     *
+     * @param step the step number
+     * @return the commands
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String[] getClientCommands(int step)
+    {
+	return client_steps.get(step);
+    }
+
+    /** Closes a step
+     *
+     * @param server the server messages of the step, emptied
+     * @param client the client commands of the step, emptied
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void addStep(ArrayList<String> server, ArrayList<String> client)
+    {
+	server_steps.add(server.toArray(new String[server.size()]));
+	client_steps.add(client.toArray(new String[client.size()]));
+	server.clear();
+	client.clear();
+    }
+
+    /** Tells the server messages from the client commands
+     *
+     * @param line a log line
+     * @return true if the server sent it
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static boolean isServerMessage(String line)
+    {
+	for (String prefix : SERVER_MESSAGES)
+	    if (line.startsWith(prefix) && (line.length() == prefix.length()
+					    || line.charAt(prefix.length()) == ' '
+					    || line.charAt(prefix.length()) == '('
+					    || line.charAt(prefix.length()) == ')'))
+		return true;
+	return false;
+    }
+}
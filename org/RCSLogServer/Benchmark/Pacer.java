@@ -0,0 +1,76 @@
+/** Pacer.java in the package org.RCSLogServer.Benchmark of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer.Benchmark;
+
+import java.util.concurrent.locks.LockSupport;
+
+
+/** Paces a replay: step n is due n cycle periods after the start
+ *
+ * The deadlines do not depend on how long the previous steps took, so
+ * a replay that falls behind catches up instead of drifting.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+class Pacer
+{
+    //===========================================================================
+    // Private members
+    private long start;  // Time of step 0 (ns)
+    private long period;  // Cycle period (ns), 0 to run as fast as possible
+
+    /** constructor method
+     *
+     * @param cycle_period the cycle period in nanoseconds, 0 for no pacing
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public Pacer(long cycle_period)
+    {
+	start = System.nanoTime();
+	period = cycle_period;
+    }
+
+    /** Waits until a step is due
+     *
+     * @param step the step number
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void await(int step)
+    {
+	if (period == 0)
+	    return;
+	long deadline = start + step * period;
+	long left;
+	while ((left = deadline - System.nanoTime()) > 0)
+	    LockSupport.parkNanos(left);
+    }
+}
@@ -0,0 +1,56 @@
+/** PlayerTraffic.java in the package org.RCSLogServer.Benchmark of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer.Benchmark;
+
+
+/** The measurements of a replayed player, shared by its fake agent
+ * and its fake server end
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+final class PlayerTraffic
+{
+    //===========================================================================
+    // Public members
+    public final String player_name;  // Team name + player number
+    public final TrafficMeter client_to_server;  // Commands of the agent
+    public final TrafficMeter server_to_client;  // Messages of the server
+
+    /** constructor method
+     *
+     * @param name the player name
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public PlayerTraffic(String name)
+    {
+	player_name = name;
+	client_to_server = new TrafficMeter();
+	server_to_client = new TrafficMeter();
+    }
+}
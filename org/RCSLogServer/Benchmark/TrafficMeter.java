@@ -0,0 +1,242 @@
+/** TrafficMeter.java in the package org.RCSLogServer.Benchmark of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer.Benchmark;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import org.RCSLogServer.LatencyHistogram;
+
+
+/** Measures one direction of the traffic of a player
+ *
+ * The sender queues every message with its sending time before sending
+ * it. The receiver matches the received messages against the queue in
+ * order: the messages skipped on the way were lost, and the matched
+ * one gives the latency through the log server. Both ends run in the
+ * same virtual machine, so the times are comparable.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+class TrafficMeter
+{
+    //===========================================================================
+    // Private members
+    private ConcurrentLinkedQueue<Sent> in_flight;  // Messages sent and not received yet
+    private AtomicLong sent;
+    private AtomicLong sent_bytes;
+    private AtomicLong received;
+    private AtomicLong received_bytes;
+    private AtomicLong lost;
+    private AtomicLong unexpected;  // Messages received that were never sent
+    private LatencyHistogram latency;  // Written by the receiver only
+
+    /** A message in flight
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static class Sent
+    {
+	final String text;
+	final long time;
+
+	/** constructor method
+	 *
+	 * @param message the message
+	 * @param nanos the sending time
+	 *
+	 */
+	Sent(String message, long nanos)
+	{
+	    text = message;
+	    time = nanos;
+	}
+    }
+
+    /** constructor method
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public TrafficMeter()
+    {
+	in_flight = new ConcurrentLinkedQueue<Sent>();
+	sent = new AtomicLong();
+	sent_bytes = new AtomicLong();
+	received = new AtomicLong();
+	received_bytes = new AtomicLong();
+	lost = new AtomicLong();
+	unexpected = new AtomicLong();
+	latency = new LatencyHistogram();
+    }
+
+    /** Records a message about to be sent
+     *
+     * @param message the message
+     * @param bytes the packet size
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void sending(String message, int bytes)
+    {
+	in_flight.add(new Sent(message, System.nanoTime()));
+	sent.incrementAndGet();
+	sent_bytes.addAndGet(bytes);
+    }
+
+    /** Records a received message
+     *
+     * @param message the trimmed message
+     * @param bytes the packet size
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void received(String message, int bytes)
+    {
+	long now = System.nanoTime();
+	received_bytes.addAndGet(bytes);
+	Sent s;
+	while ((s = in_flight.poll()) != null) {
+	    if (s.text.equals(message)) {
+		latency.record(now - s.time);
+		received.incrementAndGet();
+		return;
+	    }
+	    lost.incrementAndGet();
+	}
+	unexpected.incrementAndGet();
+    }
+
+    /** Counts the messages still in flight as lost. Called once the
+     * traffic is over.
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void finish()
+    {
+	while (in_flight.poll() != null)
+	    lost.incrementAndGet();
+    }
+
+    /** Returns the number of messages sent
+     *
+     * @return the message count
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getSent()
+    {
+	return sent.get();
+    }
+
+    /** Returns the number of bytes sent
+     *
+     * @return the byte count
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getSentBytes()
+    {
+	return sent_bytes.get();
+    }
+
+    /** Returns the number of messages received
+     *
+     * @return the message count
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getReceived()
+    {
+	return received.get();
+    }
+
+    /** Returns the number of bytes received
+     *
+     * @return the byte count
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getReceivedBytes()
+    {
+	return received_bytes.get();
+    }
+
+    /** Returns the number of messages lost
+     *
+     * @return the message count
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getLost()
+    {
+	return lost.get();
+    }
+
+    /** Returns the number of received messages that were never sent
+     *
+     * @return the message count
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getUnexpected()
+    {
+	return unexpected.get();
+    }
+
+    /** Returns the latencies of the received messages
+     *
+     * @return the latency histogram
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public LatencyHistogram getLatency()
+    {
+	return latency;
+    }
+}
@@ -25,7 +25,6 @@ package org.RCSLogServer;
 
 import java.io.*;
 import java.net.*;
-import java.util.*;
 
 
 /** Maintains the communication with the Soccer client
@@ -34,28 +33,27 @@ import java.util.*;
  * @since 0.2
  *
  */
-class ClientServerComm extends Thread
+class ClientServerComm implements Runnable
 {
     //===========================================================================
     // Private members
-    private DatagramSocket listen_socket;  // Initial socket to listen on
     private LogMemory log_memory;
     private boolean stopthread = false;
 
     /** constructor method
      *
-     * @param listen the socket to listen
+     * The init message of the client has already been received and
+     * forwarded by the HandshakeAcceptor.
+     *
      * @param memory the object storing the data stream
      *
      * @author NMAI Lab
      * @since 0.2
      *
      */
-    public ClientServerComm(DatagramSocket listen, LogMemory memory)
+    public ClientServerComm(LogMemory memory)
     {
-	listen_socket = listen;
 	log_memory = memory;
-	start();
     }
 
     /** RCSLogServer destructor method
@@ -100,70 +98,99 @@ class ClientServerComm extends Thread
      */
     public void run()
     {
-	byte[] buffer = new byte[log_memory.getPacketSize()];
-	DatagramPacket packet = new DatagramPacket(buffer, log_memory.getPacketSize());
-
-	try {
-	    listen_socket.receive(packet);
-	} catch (IOException e) {
-	    System.err.println("Socket receiving error " + e);
+	// The same buffer and packet are used for every message: only the
+	// received bytes are forwarded, and they are logged without
+	// building a String
+	int packet_size = log_memory.getPacketSize();
+	byte[] buffer = new byte[packet_size];
+	DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+	DatagramSocket client_socket = log_memory.getClientSocket();
+
+	// The client only talks to this socket after the server init has
+	// been forwarded to it, that is once the session is published
+	SessionDescriptor session = null;
+
+	// Continually loop receiving/sending messages until thread is
+	// stopped or the session has ended
+	while (!stopThread() && !log_memory.isClosed()) {
+	    if (receive(client_socket, packet, packet_size)) {
+		// the packet is timed from the return of receive(): the send call time
+		long received = System.nanoTime();
+		if (session == null && (session = log_memory.getDescriptor()) == null)
+		    continue;
+		send(session, packet);
+		session.stats.clientToServer(packet.getLength(), System.nanoTime() - received);
+		if (session.log != null)
+		    session.log.addRecord(buffer, 0, packet.getLength());
+		if (LogMemory.isBye(buffer, 0, packet.getLength()))
+		    log_memory.close("bye");
+	    }
 	}
+    }
 
-	// Route packet to actual destination
-	String record = (new String(buffer)).trim();
-
-	// Packet received - check to see if server and/or client port has been
-	// initialized, and intialize if it has not been
-	log_memory.setClientHost(packet.getAddress());
-	log_memory.setClientPort(packet.getPort());
-	log_memory.parseClientInit(record);
-
-	send(record);
-	//log_memory.log.addRecord(record);
-
-	// Continually loop receiving/sending messages until thread is stopped
-	while (!stopThread()) {
-	    record = receive();
-	    send(record);
-	    log_memory.log.addRecord(record);
-	}
+    /** Returns the session of this leg
+     *
+     * @return the object storing the data stream
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public LogMemory getLogMemory()
+    {
+	return log_memory;
     }
 
-    /** Sends via socket message to the Soccer client
+    /** Sends via socket the received message to the Soccer Server
+     *
+     * @param session the session descriptor
+     * @param packet the packet holding the received message
      *
      * @author NMAI Lab
      * @since 0.2
      *
      */
-    private void send(String message)
+    private void send(SessionDescriptor session, DatagramPacket packet)
     {
-	byte[] buffer = new byte[log_memory.getPacketSize()];
-	buffer=Arrays.copyOf(message.getBytes(),log_memory.getPacketSize());
-	DatagramPacket packet = new DatagramPacket(buffer, log_memory.getPacketSize(), log_memory.server_host, log_memory.server_port);
+	packet.setSocketAddress(session.server_address);
 	try {
-	    log_memory.server_socket.send(packet);
+	    session.server_socket.send(packet);
 	} catch (IOException e) {
-	    System.err.println("Socket sending error " + e);
+	    if (!log_memory.isClosed()) {
+		session.stats.socketError();
+		System.err.println("Socket sending error " + e);
+	    }
 	}
     }
 
     /** Waits for new messages from the Soccer client
+     *
+     * @param client_socket the socket connected to the client
+     * @param packet the packet to receive into
+     * @param packet_size the maximum message size
+     * @return true if a message has been received
      *
      * @author NMAI Lab
      * @since 0.2
      *
      */
-    private String receive() 
+    private boolean receive(DatagramSocket client_socket, DatagramPacket packet, int packet_size)
     {
-	byte[] buffer = new byte[log_memory.getPacketSize()];
-	DatagramPacket packet = new DatagramPacket(buffer, log_memory.getPacketSize());
-
+	packet.setLength(packet_size);
 	try {
-	    log_memory.client_socket.receive(packet);
+	    client_socket.receive(packet);
+	} catch (SocketTimeoutException e) {
+	    if (log_memory.idleExpired())
+		log_memory.close("idle timeout");
+	    return false;
 	} catch (IOException e) {
-	    System.err.println("Socket receiving error " + e);
+	    if (!stopThread() && !log_memory.isClosed()) {
+		log_memory.getStats().socketError();
+		System.err.println("Socket receiving error " + e);
+	    }
+	    return false;
 	}
-
-	return (new String(buffer)).trim();
+	// a receive released by the end of the session returns nothing
+	return !log_memory.isClosed();
     }
 }
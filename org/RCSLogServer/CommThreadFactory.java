@@ -0,0 +1,120 @@
+/** CommThreadFactory.java in the package org.RCSLogServer of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+
+/** Creates the threads running the two legs of the player sessions.
+ *
+ * In the virtual mode the legs run as virtual threads, which are cheap
+ * to park in the blocking socket receives, so the comm classes keep
+ * their blocking structure while many matches share one virtual
+ * machine. Virtual threads need Java 21; they are looked up by
+ * reflection so the log server still builds and runs on older
+ * versions, falling back to platform threads.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+class CommThreadFactory implements ThreadFactory
+{
+    //===========================================================================
+    // Private members
+    private Object builder = null;  // Thread.Builder.OfVirtual, null for platform threads
+    private Method unstarted = null;  // Thread.Builder.unstarted(Runnable)
+
+    /** constructor method
+     *
+     * @param virtual true to create virtual threads
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public CommThreadFactory(boolean virtual)
+    {
+	if (virtual) {
+	    try {
+		builder = Thread.class.getMethod("ofVirtual").invoke(null);
+		unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+	    } catch (Exception e) {
+		System.err.println("Virtual threads are not available (Java 21 or later is needed), using platform threads.");
+		builder = null;
+	    }
+	}
+    }
+
+    /** Checks whether this factory creates virtual threads
+     *
+     * @return true for virtual threads
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public boolean isVirtual()
+    {
+	return builder != null;
+    }
+
+    /** Creates an unstarted thread
+     *
+     * @param r the code to run
+     * @return the thread
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public Thread newThread(Runnable r)
+    {
+	if (builder != null) {
+	    try {
+		return (Thread)unstarted.invoke(builder, r);
+	    } catch (Exception e) {
+		System.err.println("Unable to create virtual thread " + e);
+	    }
+	}
+	return new Thread(r);
+    }
+
+    /** Creates and starts a thread
+     *
+     * @param r the code to run
+     * @return the started thread
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public Thread start(Runnable r)
+    {
+	Thread t = newThread(r);
+	t.start();
+	return t;
+    }
+}
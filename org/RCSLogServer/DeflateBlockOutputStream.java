@@ -0,0 +1,209 @@
+/** DeflateBlockOutputStream.java in the package org.RCSLogServer of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer;
+
+import java.io.*;
+import java.util.zip.Deflater;
+
+
+/** Writes a compressed log file made of independently compressed
+ * blocks, plus a block index.
+ *
+ * Each block is a complete zlib stream starting at a cycle boundary,
+ * so a reader can decompress any block on its own. For every block the
+ * index file receives the first cycle of the block (int) and the offset
+ * of the block in the data file (long). Flushing the stream performs a
+ * sync flush, so the data written so far can be decompressed even if
+ * the last block is never finished.
+ *
+ * The format is read by org.RCSLogServer.LogParser.BlockLogReader.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+class DeflateBlockOutputStream extends OutputStream
+{
+    //===========================================================================
+    // Private members
+    private OutputStream data;  // Compressed blocks
+    private DataOutputStream index;  // (first cycle, offset) of each block
+    private Deflater deflater;
+    private byte[] chunk;  // Compressed output buffer
+    private long offset = 0;  // Bytes written to the data file
+    private long block_raw = 0;  // Uncompressed bytes in the current block
+    private int block_size;  // Uncompressed bytes that end a block at the next cycle
+
+    /** constructor method
+     *
+     * @param filename the name of the data file, the index is written
+     * to filename + "i"
+     * @param size the uncompressed size of the blocks
+     *
+     * @throws IOException when the files cannot be created
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public DeflateBlockOutputStream(String filename, int size)
+	throws IOException
+    {
+	data = new FileOutputStream(filename);
+	index = new DataOutputStream(new FileOutputStream(filename + "i"));
+	deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+	chunk = new byte[64 * 1024];
+	block_size = size;
+	startBlock(-1);
+    }
+
+    /** Notifies the start of a new simulation cycle. A new block is
+     * started when the current one is big enough.
+     *
+     * @param cycle the new cycle
+     *
+     * @throws IOException when the data cannot be written
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void cycle(int cycle)
+	throws IOException
+    {
+	if (block_raw >= block_size) {
+	    endBlock();
+	    startBlock(cycle);
+	}
+    }
+
+    /** Compresses bytes into the current block
+     *
+     * @Override
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     */
+    public void write(byte[] b, int off, int len)
+	throws IOException
+    {
+	deflater.setInput(b, off, len);
+	while (!deflater.needsInput())
+	    drain(Deflater.NO_FLUSH);
+	block_raw += len;
+    }
+
+    /** Compresses a byte into the current block
+     *
+     * @Override
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     */
+    public void write(int b)
+	throws IOException
+    {
+	write(new byte[] { (byte)b }, 0, 1);
+    }
+
+    /** Writes all the data compressed so far (sync flush)
+     *
+     * @Override
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     */
+    public void flush()
+	throws IOException
+    {
+	while (drain(Deflater.SYNC_FLUSH) == chunk.length)
+	    ;
+	data.flush();
+    }
+
+    /** Finishes the last block and closes the files
+     *
+     * @Override
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     */
+    public void close()
+	throws IOException
+    {
+	endBlock();
+	deflater.end();
+	data.close();
+	index.close();
+    }
+
+    /** Records a new block in the index
+     *
+     * @param cycle the first cycle of the block
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void startBlock(int cycle)
+	throws IOException
+    {
+	index.writeInt(cycle);
+	index.writeLong(offset);
+	index.flush();
+	block_raw = 0;
+    }
+
+    /** Completes the zlib stream of the current block
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void endBlock()
+	throws IOException
+    {
+	deflater.finish();
+	while (!deflater.finished())
+	    drain(Deflater.NO_FLUSH);
+	deflater.reset();
+	data.flush();
+    }
+
+    /** Writes the compressed output available
+     *
+     * @param mode the deflater flush mode
+     * @return the number of compressed bytes written
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private int drain(int mode)
+	throws IOException
+    {
+	int n = deflater.deflate(chunk, 0, chunk.length, mode);
+	data.write(chunk, 0, n);
+	offset += n;
+	return n;
+    }
+}
@@ -0,0 +1,248 @@
+/** HandshakeAcceptor.java in the package org.RCSLogServer of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+
+/** Accepts the init messages of the Soccer clients (thread mode)
+ *
+ * The init packets arriving on the listen socket are demultiplexed by
+ * source address. A packet from a new client immediately starts a
+ * session: the init is forwarded to the Soccer Server and both legs
+ * are started, without waiting for the handshakes of the other
+ * clients. A repeated init from a known client is forwarded on its
+ * session. Sessions whose server does not answer within the handshake
+ * timeout are dropped, so the client can try again. Sessions that
+ * have ended (bye or idle timeout) are removed from the lists.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+class HandshakeAcceptor implements Runnable
+{
+    //===========================================================================
+    // Private members
+    private DatagramSocket listen_socket;  // Initial socket to listen on
+    private InetAddress s_host;  // Server host address
+    private int s_init_port;  // Initialization port of Soccer Server
+    private CommThreadFactory threads;  // Runs the legs of the sessions
+    private Vector<Runnable> communication_list;  // List of Server and Client Communications
+    private Vector<LogMemory> session_list;  // List of the player sessions
+    private HashMap<SocketAddress,LogMemory> clients;  // Sessions by client address
+    private HashMap<LogMemory,ServerClientComm> pending;  // Server legs waiting for the server init
+    private HashMap<LogMemory,ClientServerComm> pending_clients;  // Client legs of the same sessions
+    private long handshake_timeout = 5000;  // Maximum handshake duration (ms)
+    private boolean stopthread = false;
+
+    /** constructor method
+     *
+     * @param listen the socket to listen
+     * @param host the Soccer Server host address
+     * @param port the Soccer Server port
+     * @param factory the factory running the legs of the sessions
+     * @param list the list receiving the communications of the sessions
+     * @param sessions the list receiving the sessions
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public HandshakeAcceptor(DatagramSocket listen, InetAddress host, int port, CommThreadFactory factory, Vector<Runnable> list, Vector<LogMemory> sessions)
+    {
+	listen_socket = listen;
+	s_host = host;
+	s_init_port = port;
+	threads = factory;
+	communication_list = list;
+	session_list = sessions;
+	clients = new HashMap<SocketAddress,LogMemory>();
+	pending = new HashMap<LogMemory,ServerClientComm>();
+	pending_clients = new HashMap<LogMemory,ClientServerComm>();
+    }
+
+    /** Sets the handshake timeout
+     *
+     * @param timeout the maximum handshake duration in milliseconds
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void setHandshakeTimeout(long timeout)
+    {
+	handshake_timeout = timeout;
+    }
+
+    /** This thread stop initialization
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public synchronized void initiateStop()
+    {
+	stopthread = true;
+    }
+
+    /** Stop this thread
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public synchronized boolean stopThread()
+    {
+	return stopthread;
+    }
+
+    /** Receives the init messages and starts the sessions
+     *
+     * @Override
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     */
+    public void run()
+    {
+	byte[] buffer = new byte[4096];
+	DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+	try {
+	    listen_socket.setSoTimeout(500);
+	} catch (SocketException e) {
+	    System.err.println("Unable to set the listen socket timeout " + e);
+	}
+
+	while (!stopThread()) {
+	    packet.setLength(buffer.length);
+	    try {
+		listen_socket.receive(packet);
+		accept(packet);
+	    } catch (SocketTimeoutException e) {
+		// check the pending handshakes below
+	    } catch (IOException e) {
+		System.err.println("Socket receiving error " + e);
+	    }
+	    expireHandshakes();
+	    reapSessions();
+	}
+    }
+
+    /** Starts a session for a new client, or forwards a repeated init
+     *
+     * @param packet the init packet
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void accept(DatagramPacket packet)
+	throws IOException
+    {
+	SocketAddress source = packet.getSocketAddress();
+	LogMemory memory = clients.get(source);
+	if (memory == null) {
+	    memory = new LogMemory(s_host, s_init_port);
+	    memory.startHandshake();
+	    memory.setClientHost(packet.getAddress());
+	    memory.setClientPort(packet.getPort());
+	    memory.parseClientInit((new String(packet.getData(), 0, packet.getLength())).trim());
+	    clients.put(source, memory);
+	    session_list.add(memory);
+
+	    ServerClientComm serverclient = new ServerClientComm(memory);
+	    ClientServerComm clientserver = new ClientServerComm(memory);
+	    threads.start(serverclient);
+	    threads.start(clientserver);
+	    communication_list.add(clientserver);
+	    communication_list.add(serverclient);
+	    pending.put(memory, serverclient);
+	    pending_clients.put(memory, clientserver);
+	} else if (memory.checkServer() || memory.isClosed()) {
+	    return; // late duplicate, the server has already answered
+	}
+
+	// Route packet to actual destination
+	packet.setAddress(memory.getServerHost());
+	packet.setPort(memory.getServerPort());
+	memory.getServerSocket().send(packet);
+    }
+
+    /** Drops the sessions whose server did not answer in time, and
+     * forgets about the completed handshakes
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void expireHandshakes()
+    {
+	Iterator<Map.Entry<LogMemory,ServerClientComm>> it = pending.entrySet().iterator();
+	while (it.hasNext()) {
+	    Map.Entry<LogMemory,ServerClientComm> entry = it.next();
+	    LogMemory memory = entry.getKey();
+	    if (memory.checkServer()) {
+		pending_clients.remove(memory);
+		it.remove();
+	    } else if (memory.handshakeExpired(handshake_timeout)) {
+		System.err.println("No answer from the server after " + handshake_timeout + " ms, dropping client "
+				   + memory.getClientHost() + ":" + memory.getClientPort());
+		entry.getValue().initiateStop();
+		pending_clients.remove(memory).initiateStop();
+		memory.close("handshake timeout");
+		it.remove();
+	    }
+	}
+    }
+
+    /** Forgets about the sessions that have ended, so their legs and
+     * memory can be reclaimed
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void reapSessions()
+    {
+	Iterator<LogMemory> it = clients.values().iterator();
+	while (it.hasNext()) {
+	    LogMemory memory = it.next();
+	    if (!memory.isClosed())
+		continue;
+	    it.remove();
+	    LogServerMetrics.reap(session_list, memory);
+	    synchronized (communication_list) {
+		for (int i = communication_list.size() - 2; i >= 0; i -= 2) {
+		    if (((ClientServerComm)communication_list.elementAt(i)).getLogMemory() == memory) {
+			communication_list.removeElementAt(i + 1);
+			communication_list.removeElementAt(i);
+		    }
+		}
+	    }
+	}
+    }
+}
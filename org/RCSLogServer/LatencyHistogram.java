@@ -0,0 +1,227 @@
+/** LatencyHistogram.java in the package org.RCSLogServer of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/** Fixed memory histogram of latencies in nanoseconds
+ *
+ * The buckets follow the HDR histogram layout: values below 64 ns get
+ * a bucket each, and every power of two above is split in 32 linear
+ * sub-buckets, so any recorded value is known within about 3%. Values
+ * up to 2^41 ns (about 36 minutes) are covered by 1184 counters; larger
+ * ones are counted in the top bucket.
+ *
+ * A histogram has a single writer (the thread forwarding one
+ * direction of a session); the counters are atomic so it can be read
+ * on demand from other threads. The histograms of several writers are
+ * combined with add().
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class LatencyHistogram
+{
+    //===========================================================================
+    // Private members
+    private static final int SUB_BITS = 5;  // 32 sub-buckets per power of two
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_SHIFT = 35;  // Largest value 2^41 ns, about 36 min
+    private static final int BUCKETS = (MAX_SHIFT + 2) * SUB_COUNT;
+    private AtomicLongArray counts;
+    private AtomicLongArray totals;  // count, max
+
+    /** constructor method
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public LatencyHistogram()
+    {
+	counts = new AtomicLongArray(BUCKETS);
+	totals = new AtomicLongArray(2);
+    }
+
+    /** Records a latency. Only one thread may record.
+     *
+     * @param nanos the latency in nanoseconds
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void record(long nanos)
+    {
+	int i = bucketOf(nanos);
+	counts.lazySet(i, counts.get(i) + 1);
+	totals.lazySet(0, totals.get(0) + 1);
+	if (nanos > totals.get(1))
+	    totals.lazySet(1, nanos);
+    }
+
+    /** Adds the latencies recorded by another histogram. Only the
+     * thread recording in this histogram may add.
+     *
+     * @param other the histogram to add
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void add(LatencyHistogram other)
+    {
+	for (int i = 0; i < BUCKETS; i++) {
+	    long n = other.counts.get(i);
+	    if (n > 0)
+		counts.lazySet(i, counts.get(i) + n);
+	}
+	totals.lazySet(0, totals.get(0) + other.getCount());
+	if (other.getMax() > totals.get(1))
+	    totals.lazySet(1, other.getMax());
+    }
+
+    /** Returns the number of recorded latencies
+     *
+     * @return the count
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getCount()
+    {
+	return totals.get(0);
+    }
+
+    /** Returns the largest recorded latency
+     *
+     * @return the maximum in nanoseconds
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getMax()
+    {
+	return totals.get(1);
+    }
+
+    /** Returns a percentile of the recorded latencies
+     *
+     * @param p the percentile, between 0 and 100
+     * @return the highest value of the bucket holding the percentile,
+     * in nanoseconds, or 0 if nothing has been recorded
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getPercentile(double p)
+    {
+	long count = getCount();
+	if (count == 0)
+	    return 0;
+	long rank = (long)Math.ceil(p / 100.0 * count);
+	if (rank < 1)
+	    rank = 1;
+	long seen = 0;
+	for (int i = 0; i < BUCKETS; i++) {
+	    seen += counts.get(i);
+	    if (seen >= rank)
+		return Math.min(highestOf(i), getMax());
+	}
+	return getMax();
+    }
+
+    /** Returns a one line summary: count, p50, p99, p99.9 and maximum
+     *
+     * @return the summary, latencies in microseconds
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String toString()
+    {
+	return "count=" + getCount()
+	    + " p50=" + micros(getPercentile(50))
+	    + " p99=" + micros(getPercentile(99))
+	    + " p999=" + micros(getPercentile(99.9))
+	    + " max=" + micros(getMax()) + " us";
+    }
+
+    /** Returns the bucket of a value
+     *
+     * @param v the value
+     * @return the bucket index
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static int bucketOf(long v)
+    {
+	if (v < 2 * SUB_COUNT)
+	    return (v < 0) ? 0 : (int)v;
+	int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+	if (shift > MAX_SHIFT)
+	    return BUCKETS - 1;
+	return shift * SUB_COUNT + (int)(v >>> shift);
+    }
+
+    /** Returns the highest value of a bucket
+     *
+     * @param i the bucket index
+     * @return the highest value counted in the bucket
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static long highestOf(int i)
+    {
+	if (i < 2 * SUB_COUNT)
+	    return i;
+	int shift = i / SUB_COUNT - 1;
+	long sub = i % SUB_COUNT + SUB_COUNT;
+	return ((sub + 1) << shift) - 1;
+    }
+
+    /** Formats nanoseconds as microseconds
+     *
+     * @param nanos the value in nanoseconds
+     * @return the value in microseconds with one decimal
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static String micros(long nanos)
+    {
+	return String.format("%.1f", nanos / 1000.0);
+    }
+}
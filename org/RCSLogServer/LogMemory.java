@@ -25,9 +25,16 @@ package org.RCSLogServer;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import java.util.regex.*;
 
 /** LogMemory class receives the data streams and send them to the Log File
+ *
+ * LogMemory holds the state of a session while its handshake is in
+ * progress; it may be modified by several threads and every access is
+ * synchronized. Once the server has answered, publish() freezes the
+ * state into an immutable SessionDescriptor that the forwarding loops
+ * read without locks.
  *
  * @author NMAI Lab
  * @since 0.2
@@ -37,13 +44,18 @@ class LogMemory
 {
     //===========================================================================
     // Private members
-    public InetAddress server_host;  // Server host address
-    public InetAddress client_host;  // Client host address
-    public int server_port = 0;  // Server port number for communication
-    public int client_port = 0;  // Client port number for communication
-    public DatagramSocket server_socket;  // Socket for communicating with Server
-    public DatagramSocket client_socket;  // Socket for communicating with Client
-    public Logger log;  // Log writing
+    private InetAddress server_host;  // Server host address
+    private InetAddress client_host;  // Client host address
+    private int server_port = 0;  // Server port number for communication
+    private int client_port = 0;  // Client port number for communication
+    private final DatagramSocket server_socket;  // Socket for communicating with Server
+    private final DatagramSocket client_socket;  // Socket for communicating with Client
+    private final DatagramChannel server_channel;  // Channel for communicating with Server (nio mode)
+    private final DatagramChannel client_channel;  // Channel for communicating with Client (nio mode)
+    private Logger log;  // Log writing
+    private volatile SessionDescriptor descriptor = null;  // Published once the handshake is done
+    private volatile boolean closed = false;  // Set once the session has ended
+    private final SessionStats stats = new SessionStats();  // Latency measurements
     private String logfile; 
     private String playername; // Name of the player - teamname + player num
     private String teamname; // Name of the team the player plays for
@@ -51,6 +63,13 @@ class LogMemory
     private String clientInitString;
     private String serverInitString;
     private int packet_size;
+    private int server_init_port;  // Initialization port of the Soccer Server
+    private InetSocketAddress server_address;  // Cached server end point, null if not built yet
+    private InetSocketAddress client_address;  // Cached client end point, null if not built yet
+    private long handshake_start = 0;  // Time the client init was received (ns)
+    private long handshake_time = -1;  // Duration of the handshake (ns), -1 while in progress
+    public static final int RECEIVE_TIMEOUT = 500;  // Socket timeout of the thread mode legs (ms)
+    private static long idle_timeout = 60000;  // Silence of the client ending an established session (ms), 0 to disable
     private static Pattern init_pattern = Pattern.compile("^\\(init\\s+(\\w+)\\s*(.*)\\)$"); //(init first_arg other_info)
 
     /** Constructor method. Opens socket for connection with Soccer Server
@@ -66,6 +85,7 @@ class LogMemory
     {
 	server_host = s_host;
 	server_port = s_port;
+	server_init_port = s_port;
 	playername = "";
 	teamname = "";
 	playernum = "";
@@ -74,13 +94,53 @@ class LogMemory
 	client_host = null;
 	log = null;
 	packet_size = 4096;
+	DatagramSocket s_socket = null;
+	DatagramSocket c_socket = null;
 	try {
-	    server_socket = new DatagramSocket();
-	    client_socket = new DatagramSocket();
+	    s_socket = new DatagramSocket();
+	    c_socket = new DatagramSocket();
+	    // The legs wake up regularly to check for stop and idle sessions
+	    s_socket.setSoTimeout(RECEIVE_TIMEOUT);
+	    c_socket.setSoTimeout(RECEIVE_TIMEOUT);
 	} catch (SocketException se) {
 	    System.err.println("Unable to create sockets for communication: " + se);
 	    System.exit(0);
 	}
+	server_socket = s_socket;
+	client_socket = c_socket;
+	server_channel = null;
+	client_channel = null;
+    }
+
+    /** Constructor method. Uses the given non-blocking channels for the
+     * connections with the Soccer Server and the Soccer Client
+     *
+     * @param s_host the address of the Soccer Server host
+     * @param s_port the port number of the Soccer Server
+     * @param s_channel the channel for communicating with the Server
+     * @param c_channel the channel for communicating with the Client
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public LogMemory(InetAddress s_host, int s_port, DatagramChannel s_channel, DatagramChannel c_channel)
+    {
+	server_host = s_host;
+	server_port = s_port;
+	server_init_port = s_port;
+	playername = "";
+	teamname = "";
+	playernum = "";
+	logfile = "";
+	client_port = 0;
+	client_host = null;
+	log = null;
+	packet_size = 4096;
+	server_channel = s_channel;
+	client_channel = c_channel;
+	server_socket = s_channel.socket();
+	client_socket = c_channel.socket();
     }
 																 
     /** destructor method
@@ -92,6 +152,194 @@ class LogMemory
     {
     }
 
+    /** Returns the socket for communicating with the Soccer Server
+     *
+     * @return the server socket
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public DatagramSocket getServerSocket()
+    {
+	return server_socket;
+    }
+
+    /** Returns the socket for communicating with the Soccer Client
+     *
+     * @return the client socket
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public DatagramSocket getClientSocket()
+    {
+	return client_socket;
+    }
+
+    /** Returns the channel for communicating with the Soccer Server
+     *
+     * @return the server channel, null in thread mode
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public DatagramChannel getServerChannel()
+    {
+	return server_channel;
+    }
+
+    /** Returns the channel for communicating with the Soccer Client
+     *
+     * @return the client channel, null in thread mode
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public DatagramChannel getClientChannel()
+    {
+	return client_channel;
+    }
+
+    /** Freezes the session state once the handshake is done. The
+     * descriptor is published through a volatile field, so it can be
+     * read by the forwarding loops without locking.
+     *
+     * @return the session descriptor
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public synchronized SessionDescriptor publish()
+    {
+	descriptor = new SessionDescriptor(getServerAddress(), getClientAddress(),
+					   server_socket, client_socket,
+					   server_channel, client_channel,
+					   packet_size, log, playername, stats);
+	LogServerMetrics.registerSession(this);
+	return descriptor;
+    }
+
+    /** Returns the measurements of the session
+     *
+     * @return the session measurements
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public SessionStats getStats()
+    {
+	return stats;
+    }
+
+    /** Returns the published session descriptor
+     *
+     * @return the session descriptor, null while the handshake is in
+     * progress
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public SessionDescriptor getDescriptor()
+    {
+	return descriptor;
+    }
+
+    /** Sets the idle timeout of the sessions
+     *
+     * @param timeout the silence in milliseconds after which an
+     * established session ends, 0 to keep the sessions forever
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static void setIdleTimeout(long timeout)
+    {
+	idle_timeout = timeout;
+    }
+
+    /** Checks whether the client of an established session has been
+     * silent for longer than the idle timeout. Only the client counts:
+     * the server goes on sending see and sense_body messages to a
+     * client that crashed.
+     *
+     * @return true if the session should end
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public boolean idleExpired()
+    {
+	return descriptor != null && idle_timeout > 0 && stats.getMillisSinceLastClientPacket() > idle_timeout;
+    }
+
+    /** Checks whether a client message is a (bye) command
+     *
+     * @param data the buffer holding the message
+     * @param offset the start of the message in the buffer
+     * @param length the number of bytes of the message
+     * @return true for a (bye) message
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static boolean isBye(byte[] data, int offset, int length)
+    {
+	int end = offset + length;
+	while (offset < end && (data[offset] & 0xff) <= ' ')
+	    offset++;
+	return end - offset >= 4 && data[offset] == '(' && data[offset + 1] == 'b'
+	    && data[offset + 2] == 'y' && data[offset + 3] == 'e';
+    }
+
+    /** Checks whether the session has ended
+     *
+     * @return true once the session is closed
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public boolean isClosed()
+    {
+	return closed;
+    }
+
+    /** Ends the session: closes the sockets, which releases the legs
+     * blocked on them, closes the log file and unregisters the session
+     * metrics. The latency report of an established session is
+     * printed. Only the first call has an effect; the session is then
+     * removed from the lists by the thread that accepted it.
+     *
+     * @param reason the cause, for the console
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void close(String reason)
+    {
+	synchronized (this) {
+	    if (closed)
+		return;
+	    closed = true;
+	}
+	try {
+	    if (server_channel != null) {
+		server_channel.close();
+		client_channel.close();
+	    }
+	} catch (IOException e) {
+	    System.err.println("Unable to close session channels " + e);
+	}
+	server_socket.close();
+	client_socket.close();
+	if (log != null)
+	    log.close();
+	if (descriptor != null) {
+	    LogServerMetrics.unregisterSession(this);
+	    System.out.println("Session ended for: " + descriptor.player_name + " (" + reason + ")\n"
+			       + stats.report(descriptor.player_name));
+	}
+    }
+
     /** Checks for the Soccer Client connection
      *
      * @author NMAI Lab
@@ -113,6 +361,7 @@ class LogMemory
     public synchronized void setClientPort(int port)
     {
 	client_port = port;
+	client_address = null;
     }
 
     /** Sets the Soccer Client connection host
@@ -125,6 +374,7 @@ class LogMemory
     public synchronized void setClientHost(InetAddress host)
     {
 	client_host = host;
+	client_address = null;
     }
 
     /** Returns the Soccer Client connection port
@@ -159,7 +409,7 @@ class LogMemory
      */
     public synchronized boolean checkServer()
     {
-	return (server_port != 6000);
+	return (server_port != server_init_port);
     }
 
     /** Sets the Soccer Server connection port
@@ -172,6 +422,7 @@ class LogMemory
     public synchronized void setServerPort(int port)
     {
 	server_port = port;
+	server_address = null;
     }
 
     /** Sets the Soccer Server connection host
@@ -184,6 +435,7 @@ class LogMemory
     public synchronized void setServerHost(InetAddress host)
     {
 	server_host = host;
+	server_address = null;
     }
 
     /** Returns the Soccer Server connection port
@@ -210,6 +462,84 @@ class LogMemory
 	return server_host;
     }
 
+    /** Returns the Soccer Client connection end point
+     *
+     * @return the address and port of the client
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public synchronized InetSocketAddress getClientAddress()
+    {
+	if (client_address == null)
+	    client_address = new InetSocketAddress(client_host, client_port);
+	return client_address;
+    }
+
+    /** Returns the Soccer Server connection end point
+     *
+     * @return the address and port of the server
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public synchronized InetSocketAddress getServerAddress()
+    {
+	if (server_address == null)
+	    server_address = new InetSocketAddress(server_host, server_port);
+	return server_address;
+    }
+
+    /** Marks the reception of the client init message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public synchronized void startHandshake()
+    {
+	handshake_start = System.nanoTime();
+	handshake_time = -1;
+    }
+
+    /** Marks the reception of the server init message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public synchronized void finishHandshake()
+    {
+	handshake_time = System.nanoTime() - handshake_start;
+    }
+
+    /** Returns the time between the client init and the server init
+     *
+     * @return the handshake duration in milliseconds, -1 while in progress
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public synchronized long getHandshakeTime()
+    {
+	return (handshake_time < 0) ? -1 : handshake_time / 1000000;
+    }
+
+    /** Checks whether the server failed to answer the client init in time
+     *
+     * @param timeout the maximum handshake duration in milliseconds
+     * @return true if the handshake is still in progress after the timeout
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public synchronized boolean handshakeExpired(long timeout)
+    {
+	return handshake_time < 0 && System.nanoTime() - handshake_start > timeout * 1000000;
+    }
+
     /** Sets this log player number
      *
      * @param p_num the player number
@@ -340,6 +670,8 @@ class LogMemory
      */
     public String getFilename()
     {
+	if (log != null)
+	    return log.getFilename();
 	return logfile;
     }
 
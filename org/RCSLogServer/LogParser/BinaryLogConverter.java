@@ -0,0 +1,186 @@
+/** BinaryLogConverter.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+
+/**
+ * Converts a text log (.lsf) into a binary log (.lsb, see
+ * BinaryLogFormat), to be read again with BinaryLogReader, and a
+ * binary log back into the text log it was written from.
+ *
+ * Usage:
+ * <pre>
+ *   java org.RCSLogServer.LogParser.BinaryLogConverter Team_1.lsf [Team_1.lsb]
+ *   java org.RCSLogServer.LogParser.BinaryLogConverter -text Team_1.lsb [Team_1.lsf]
+ * </pre>
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class BinaryLogConverter
+{
+    /** The executable method
+     *
+     * @param a the text log and, optionally, the binary log to write,
+     * or -text, the binary log and, optionally, the text log to write
+     * @throws IOException when a log cannot be read or written
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static void main(String[] a)
+    throws IOException
+    {
+	boolean back=(a.length > 0 && a[0].equals("-text"));
+	if(back)
+	    a=Arrays.copyOfRange(a,1,a.length);
+	if(a.length < 1 || a.length > 2){
+	    System.err.println("USAGE: java org.RCSLogServer.LogParser.BinaryLogConverter text_log [binary_log]");
+	    System.err.println("       java org.RCSLogServer.LogParser.BinaryLogConverter -text binary_log [text_log]");
+	    return;
+	}
+	if(back){
+	    Path from=Paths.get(a[0]);
+	    Path to=Paths.get((a.length > 1) ? a[1] : textName(a[0]));
+	    long lines=toText(from,to);
+	    System.out.println(a[0]+": "+Files.size(from)+" bytes -> "+to+": "+lines+" lines, "+Files.size(to)+" bytes");
+	    return;
+	}
+	Path from=Paths.get(a[0]);
+	Path to=Paths.get((a.length > 1) ? a[1] : binaryName(a[0]));
+	long lines=convert(from,to);
+	System.out.println(a[0]+": "+lines+" lines, "+Files.size(from)+" bytes -> "+to+": "+Files.size(to)+" bytes");
+    }
+
+    /** Converts a text log into a binary log
+     *
+     * The lines are cut as LogParser.parse(InputStream) cuts them.
+     *
+     * @param from the text log
+     * @param to the binary log to write
+     * @return the number of lines converted
+     * @throws IOException when a log cannot be read or written
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static long convert(Path from, Path to)
+    throws IOException
+    {
+	InputStream in=Files.newInputStream(from);
+	BinaryLogWriter writer=new BinaryLogWriter(new BufferedOutputStream(Files.newOutputStream(to),64*1024));
+	long lines=0;
+	try{
+	    byte[] buffer=new byte[64*1024];
+	    int filled=0;
+	    int n;
+	    while((n=in.read(buffer,filled,buffer.length-filled)) >= 0){
+		int start=0;
+		for(int i=filled; i<filled+n; i++){
+		    if(buffer[i] == '\n'){
+			writer.write(new String(buffer,start,i-start));
+			lines++;
+			start=i+1;
+		    }
+		}
+		filled+=n;
+		if(start == 0 && filled == buffer.length){
+		    buffer=Arrays.copyOf(buffer,2*buffer.length); //a very long line
+		} else{ //keep the incomplete line
+		    System.arraycopy(buffer,start,buffer,0,filled-start);
+		    filled-=start;
+		}
+	    }
+	    if(filled > 0){ //the last line has no end
+		writer.write(new String(buffer,0,filled));
+		lines++;
+	    }
+	} finally{
+	    in.close();
+	    writer.close();
+	}
+	return lines;
+    }
+
+    /** Writes a binary log back into the text log it was written
+     * from. Every line ends with a new line, the last one too.
+     *
+     * @param from the binary log
+     * @param to the text log to write
+     * @return the number of lines written
+     * @throws IOException when a log cannot be read or written
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static long toText(Path from, Path to)
+    throws IOException
+    {
+	OutputStream out=new BufferedOutputStream(Files.newOutputStream(to),64*1024);
+	try{
+	    return new BinaryLogReader(new LogParser()).writeText(from,out);
+	} finally{
+	    out.close();
+	}
+    }
+
+    /** Returns the name of the binary log of a text log
+     *
+     * @param textName the name of the text log, like "Team_1.lsf"
+     * @return the name of the binary log, like "Team_1.lsb"
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static String binaryName(String textName)
+    {
+	if(textName.endsWith(".lsf"))
+	    return textName.substring(0,textName.length()-4)+".lsb";
+	return textName+".lsb";
+    }
+
+    /** Returns the name of the text log of a binary log
+     *
+     * @param binaryName the name of the binary log, like "Team_1.lsb"
+     * @return the name of the text log, like "Team_1.lsf"
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static String textName(String binaryName)
+    {
+	if(binaryName.endsWith(".lsb"))
+	    return binaryName.substring(0,binaryName.length()-4)+".lsf";
+	return binaryName+".lsf";
+    }
+}
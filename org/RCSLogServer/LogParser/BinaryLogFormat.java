@@ -0,0 +1,174 @@
+/** BinaryLogFormat.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+
+/** Layout of the binary log files.
+ *
+ * A binary log (.lsb) holds the lines of a text log (.lsf) as
+ * records, in the same order, and the text log can be written again
+ * from it byte for byte. The file starts with the bytes "RCSB" and the
+ * version of the format, and each record starts with a tag byte:
+ * <pre>
+ *   TEXT        length, then the bytes of the line
+ *   WORD        length, then the bytes of the next word of the dictionary
+ *   SEE         cycle, number of objects, then for each object its
+ *               name (a word), the number of values (1 to 6) and the values
+ *   SENSE_BODY  cycle, a byte with a bit for each field given, then the
+ *               fields: the view quality and width as words, the others
+ *               as numbers; then the rest of the line after the head
+ *               angle, like " (kick 0) ...)": its template (a word, the
+ *               rest with a NUMBER character for each number) and the
+ *               numbers
+ *   DASH        power
+ *   TURN        moment
+ *   KICK        power, direction
+ * </pre>
+ * The lengths, the word indexes and the counts are unsigned varints
+ * (7 bits a byte, low bits first), and the cycles zigzag varints. A
+ * number is the varint of its digits shifted by 5 bits, the digits
+ * after the point shifted by 1 bit, and the minus sign in the lowest
+ * bit, so that its text can be written again exactly.
+ *
+ * A message is only written as a typed record when its line is the
+ * text the record gives back (see the append methods), like
+ * "(see 12 ((f r b 20) 13.6 -34 0 0) ((b) 2 3))". The lines of the
+ * other messages, and the lines with other spacing, other values or
+ * numbers that are not plain decimal numbers, are kept as TEXT records
+ * and parsed again when the log is read.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+final class BinaryLogFormat
+{
+    static final byte[] MAGIC={'R','C','S','B'};
+    static final int VERSION=2;
+
+    static final char NUMBER='\0';  // place of a number in a template
+
+    private static final String[] SENSE_BODY_GROUPS={"view_mode","stamina","speed","head_angle"};
+
+    // Record tags
+    static final int TEXT=0;
+    static final int WORD=1;
+    static final int SEE=2;
+    static final int SENSE_BODY=3;
+    static final int DASH=4;
+    static final int TURN=5;
+    static final int KICK=6;
+
+    /** No instances, only constants
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private BinaryLogFormat()
+    {
+    }
+
+    /** Appends the start of a see line, like "(see 12". The objects
+     * follow, then the closing parenthesis.
+     *
+     * @param line the line being written
+     * @param cycle the cycle of the see message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static void appendSee(StringBuilder line, int cycle)
+    {
+	line.append("(see ").append(cycle);
+    }
+
+    /** Appends a seen object to a see line, like " ((f r b 20) 13.6 -34 0 0)"
+     *
+     * @param line the line being written
+     * @param name the object name
+     * @param info the object information
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static void appendObject(StringBuilder line, String name, String info)
+    {
+	line.append(" ((").append(name).append(") ").append(info).append(')');
+    }
+
+    /** Appends the start of a sense_body line, up to the head angle,
+     * like "(sense_body 12 (view_mode high normal) (stamina 8000 1)
+     * (speed 0 0) (head_angle 0)". The rest of the line is kept as
+     * text in the record.
+     *
+     * @param line the line being written
+     * @param cycle the cycle of the sense_body message
+     * @param texts the fields, as written in the line, indexed like
+     * SenseBodyMessage.VIEW_QUALITY to HEAD_ANGLE, null when not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static void appendSenseBody(StringBuilder line, int cycle, String[] texts)
+    {
+	line.append("(sense_body ").append(cycle);
+	int open=-1;  // group of the fields being written
+	for(int f=SenseBodyMessage.VIEW_QUALITY; f<=SenseBodyMessage.HEAD_ANGLE; f++){
+	    if(texts[f] == null)
+		continue;
+	    int group=(f == SenseBodyMessage.HEAD_ANGLE) ? 3 : f/2;
+	    if(group != open){
+		if(open >= 0)
+		    line.append(')');
+		line.append(" (").append(SENSE_BODY_GROUPS[group]);
+		open=group;
+	    }
+	    line.append(' ').append(texts[f]);
+	}
+	if(open >= 0)
+	    line.append(')');
+    }
+
+    /** Appends a dash, turn or kick line, like "(kick 100.0 23.0)"
+     *
+     * @param line the line being written
+     * @param tag DASH, TURN or KICK
+     * @param first the first parameter
+     * @param second the second parameter of a kick, null otherwise
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static void appendControl(StringBuilder line, int tag, String first, String second)
+    {
+	line.append((tag == DASH) ? "(dash " : (tag == TURN) ? "(turn " : "(kick ").append(first);
+	if(second != null)
+	    line.append(' ').append(second);
+	line.append(')');
+    }
+}
@@ -0,0 +1,538 @@
+/** BinaryLogReader.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+
+/**
+ * Reads a binary log (see BinaryLogFormat) into a LogParser.
+ *
+ * The listeners of the parser get the same events as when the text
+ * log is parsed, but the see, sense_body, dash, turn and kick
+ * messages are not parsed again: their typed messages are filled
+ * straight from the numbers of the records, the object names come
+ * from a dictionary analysed once per name, and the texts of the
+ * values are only written if a listener asks for them. The lines kept
+ * as text are parsed as usual. The progress listener and the errors
+ * of the parser work as in its bulk parsing, with the offsets of the
+ * records in the binary log.
+ *
+ * writeText() writes the lines of the text log back instead, the same
+ * bytes as the text log the binary log was written from.
+ *
+ * Usage:
+ * <pre>
+ *   LogParser parser = new LogParser();
+ *   parser.addPEListener(listener);
+ *   new BinaryLogReader(parser).parse(Paths.get("Team_1.lsb"));
+ * </pre>
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class BinaryLogReader
+{
+    private LogParser parser;
+    private SeeMessage dictionary;  // the words of the log, with the analysis of the object names
+    private InputStream in;
+    private byte[] buffer;
+    private int position;  // next byte in the buffer
+    private int limit;  // end of the bytes read in the buffer
+    private long base;  // offset of the buffer in the input
+    private double[] values;  // values of the seen object being read
+    private int scale;  // digits after the point of the last number read
+    private OutputStream text;  // where the lines are written back, null when parsing
+    private StringBuilder line;  // the line being written back
+
+    /** BinaryLogReader constructor
+     *
+     * @param parser the parser casting the events of the log
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public BinaryLogReader(LogParser parser)
+    {
+	this.parser=parser;
+	values=new double[6];
+    }
+
+    /** Reads a binary log file
+     *
+     * @param path the binary log file
+     * @return the number of lines read
+     * @throws LogParseException when a text line cannot be parsed
+     * @throws IOException when the file cannot be read or is not a
+     * binary log
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long parse(Path path)
+    throws IOException
+    {
+	InputStream stream=Files.newInputStream(path);
+	try{
+	    return parse(stream,Files.size(path));
+	} finally{
+	    stream.close();
+	}
+    }
+
+    /** Reads a binary log from a stream, until its end. The stream is
+     * not closed.
+     *
+     * @param in the stream
+     * @return the number of lines read
+     * @throws LogParseException when a text line cannot be parsed
+     * @throws IOException when the stream cannot be read or is not a
+     * binary log
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long parse(InputStream in)
+    throws IOException
+    {
+	return parse(in,-1);
+    }
+
+    /** Writes the lines of a binary log file back as text, each
+     * ending with a new line. The progress listener of the parser is
+     * called as when the log is parsed, but no line is parsed.
+     *
+     * @param path the binary log file
+     * @param out the stream of the text log, not closed
+     * @return the number of lines written
+     * @throws IOException when the file cannot be read or is not a
+     * binary log, or the lines cannot be written
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long writeText(Path path, OutputStream out)
+    throws IOException
+    {
+	text=out;
+	line=new StringBuilder(1024);
+	try{
+	    return parse(path);
+	} finally{
+	    text=null;
+	}
+    }
+
+    /** Reads a binary log from a stream, until its end
+     *
+     * @param in the stream
+     * @param size the size of the stream, or -1 if unknown
+     * @return the number of lines read
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private long parse(InputStream in, long size)
+    throws IOException
+    {
+	this.in=in;
+	buffer=new byte[64*1024];
+	position=0;
+	limit=0;
+	base=0;
+	dictionary=new SeeMessage();
+	byte[] magic=BinaryLogFormat.MAGIC;
+	if(!fill(magic.length+1))
+	    throw new IOException("Not a binary log");
+	for(int i=0; i<magic.length; i++)
+	    if(buffer[i] != magic[i])
+		throw new IOException("Not a binary log");
+	if(buffer[magic.length] != BinaryLogFormat.VERSION)
+	    throw new IOException("Unknown binary log version "+buffer[magic.length]);
+	position=magic.length+1;
+	parser.startBulk(size);
+	while(position < limit || fill(1)){
+	    long offset=base+position;
+	    int tag=buffer[position++];
+	    switch(tag){
+	    case BinaryLogFormat.TEXT:
+		int length=(int)varint();
+		if(!fill(length))
+		    throw new EOFException("Truncated binary log");
+		if(text != null){
+		    parser.count(offset);
+		    text.write(buffer,position,length);
+		    text.write('\n');
+		} else
+		    parser.feed(buffer,position,position+length,offset);
+		position+=length;
+		break;
+	    case BinaryLogFormat.WORD:
+		length=(int)varint();
+		if(!fill(length))
+		    throw new EOFException("Truncated binary log");
+		dictionary.define(new String(buffer,position,length));
+		position+=length;
+		break;
+	    case BinaryLogFormat.SEE:
+		parser.count(offset);
+		if(text != null)
+		    seeText();
+		else
+		    see();
+		break;
+	    case BinaryLogFormat.SENSE_BODY:
+		parser.count(offset);
+		senseBody();
+		break;
+	    case BinaryLogFormat.DASH:
+		parser.count(offset);
+		if(text != null){
+		    controlText(tag);
+		    break;
+		}
+		DashMessage dash=(DashMessage)parser.control(MessageKind.DASH);
+		double power=number();
+		if(parser.decodes(ParsingEventMask.DASH)){
+		    dash.set(power,scale);
+		    parser.fire(ParsingEventMask.DASH,dash);
+		}
+		break;
+	    case BinaryLogFormat.TURN:
+		parser.count(offset);
+		if(text != null){
+		    controlText(tag);
+		    break;
+		}
+		TurnMessage turn=(TurnMessage)parser.control(MessageKind.TURN);
+		double moment=number();
+		if(parser.decodes(ParsingEventMask.TURN)){
+		    turn.set(moment,scale);
+		    parser.fire(ParsingEventMask.TURN,turn);
+		}
+		break;
+	    case BinaryLogFormat.KICK:
+		parser.count(offset);
+		if(text != null){
+		    controlText(tag);
+		    break;
+		}
+		KickMessage kick=(KickMessage)parser.control(MessageKind.KICK);
+		power=number();
+		int powerScale=scale;
+		double direction=number();
+		if(parser.decodes(ParsingEventMask.KICK)){
+		    kick.set(power,powerScale,direction,scale);
+		    parser.fire(ParsingEventMask.KICK,kick);
+		}
+		break;
+	    default:
+		throw new IOException("Corrupted binary log at offset "+offset);
+	    }
+	}
+	return parser.endBulk(base+position);
+    }
+
+    /** Reads the record of a see message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void see()
+    throws IOException
+    {
+	SeeMessage see=(SeeMessage)parser.sensor(MessageKind.SEE,(int)unzigzag(varint()));
+	parser.seeReceived();
+	boolean objects=parser.wants(ParsingEventMask.OBJECTS);
+	boolean decode=objects || parser.decodes(ParsingEventMask.SEE_PARSED);
+	int count=(int)varint();
+	for(int i=0; i<count; i++){
+	    int entry=(int)varint();
+	    int parts=next();
+	    if(entry >= dictionary.getObjectCount() || parts < 1 || parts > values.length)
+		throw new IOException("Corrupted binary log at offset "+(base+position));
+	    int scales=0;
+	    for(int k=0; k<parts; k++){
+		values[k]=number();
+		scales|=scale<<(4*k);
+	    }
+	    if(decode){
+		int index=see.addObject(dictionary,entry,parts,values,scales);
+		if(objects)
+		    parser.seen(index);
+	    }
+	}
+	see.finish();
+	parser.fire(ParsingEventMask.SEE_PARSED,see);
+    }
+
+    /** Reads the record of a sense_body message. The rest of the line
+     * is only used when the line is written back: the parser does not
+     * read it either.
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void senseBody()
+    throws IOException
+    {
+	int cycle=(int)unzigzag(varint());
+	SenseBodyMessage body=null;
+	String[] texts=null;
+	if(text != null)
+	    texts=new String[SenseBodyMessage.HEAD_ANGLE+1];
+	else
+	    body=(SenseBodyMessage)parser.sensor(MessageKind.SENSE_BODY,cycle);
+	boolean decode=(text == null && parser.decodes(ParsingEventMask.SENSE_BODY));
+	int mask=next();
+	for(int f=SenseBodyMessage.VIEW_QUALITY; f<=SenseBodyMessage.HEAD_ANGLE; f++){
+	    if((mask&(1<<f)) == 0)
+		continue;
+	    if(f == SenseBodyMessage.VIEW_QUALITY || f == SenseBodyMessage.VIEW_WIDTH){
+		int entry=(int)varint();
+		if(entry >= dictionary.getObjectCount())
+		    throw new IOException("Corrupted binary log at offset "+(base+position));
+		if(decode)
+		    body.set(f,dictionary.getName(entry));
+		else if(texts != null)
+		    texts[f]=dictionary.getName(entry);
+	    } else{
+		double value=number();
+		if(decode)
+		    body.set(f,value,scale);
+		else if(texts != null)
+		    texts[f]=TypedMessage.toText(value,scale);
+	    }
+	}
+	if(texts != null){
+	    line.setLength(0);
+	    BinaryLogFormat.appendSenseBody(line,cycle,texts);
+	}
+	rest();
+	if(texts != null)
+	    writeLine("");
+	if(decode)
+	    parser.fire(ParsingEventMask.SENSE_BODY,body);
+    }
+
+    /** Reads the rest of a line, its template and numbers, appending
+     * it to the line being written back if any
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void rest()
+    throws IOException
+    {
+	int entry=(int)varint();
+	if(entry >= dictionary.getObjectCount())
+	    throw new IOException("Corrupted binary log at offset "+(base+position));
+	String template=dictionary.getName(entry);
+	int n=template.length();
+	for(int i=0; i<n; i++){
+	    char c=template.charAt(i);
+	    if(c != BinaryLogFormat.NUMBER){
+		if(text != null)
+		    line.append(c);
+		continue;
+	    }
+	    double value=number();
+	    if(text != null)
+		line.append(TypedMessage.toText(value,scale));
+	}
+    }
+
+    /** Writes back the line of a see record
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void seeText()
+    throws IOException
+    {
+	line.setLength(0);
+	BinaryLogFormat.appendSee(line,(int)unzigzag(varint()));
+	int count=(int)varint();
+	for(int i=0; i<count; i++){
+	    int entry=(int)varint();
+	    int parts=next();
+	    if(entry >= dictionary.getObjectCount() || parts < 1 || parts > values.length)
+		throw new IOException("Corrupted binary log at offset "+(base+position));
+	    int scales=0;
+	    for(int k=0; k<parts; k++){
+		values[k]=number();
+		scales|=scale<<(4*k);
+	    }
+	    String info;
+	    if(parts == 1)
+		info=TypedMessage.toText(values[0],scales);
+	    else
+		info=SeeMessage.infoText(parts,scales,values[0],values[1],values[2],values[3],values[4],values[5]);
+	    BinaryLogFormat.appendObject(line,dictionary.getName(entry),info);
+	}
+	writeLine(")");
+    }
+
+    /** Writes back the line of a dash, turn or kick record
+     *
+     * @param tag the tag of the record
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void controlText(int tag)
+    throws IOException
+    {
+	String first=TypedMessage.toText(number(),scale);
+	String second=null;
+	if(tag == BinaryLogFormat.KICK)
+	    second=TypedMessage.toText(number(),scale);
+	line.setLength(0);
+	BinaryLogFormat.appendControl(line,tag,first,second);
+	writeLine("");
+    }
+
+    /** Writes the line being written back, with its end
+     *
+     * @param end the text ending the line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void writeLine(String end)
+    throws IOException
+    {
+	line.append(end).append('\n');
+	text.write(line.toString().getBytes());
+    }
+
+    /** Reads a number, keeping its digits after the point in scale
+     *
+     * @return the value of the number
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private double number()
+    throws IOException
+    {
+	long bits=varint();
+	scale=(int)(bits>>1)&15;
+	return TypedMessage.toDouble(bits>>>5,scale,(bits&1) != 0);
+    }
+
+    /** Reads an unsigned varint
+     *
+     * @return the number
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private long varint()
+    throws IOException
+    {
+	long value=0;
+	for(int shift=0; shift<64; shift+=7){
+	    int b=next();
+	    value|=(long)(b&0x7f)<<shift;
+	    if(b < 0x80)
+		return value;
+	}
+	throw new IOException("Corrupted binary log at offset "+(base+position));
+    }
+
+    /** Maps back a number encoded by BinaryLogWriter.zigzag
+     *
+     * @param value the zigzag encoding
+     * @return the signed number
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static long unzigzag(long value)
+    {
+	return (value>>>1)^-(value&1);
+    }
+
+    /** Reads a byte
+     *
+     * @return the byte, from 0 to 255
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private int next()
+    throws IOException
+    {
+	if(position == limit && !fill(1))
+	    throw new EOFException("Truncated binary log");
+	return buffer[position++]&0xff;
+    }
+
+    /** Makes some bytes available in the buffer, from the position
+     *
+     * @param n the number of bytes
+     * @return false if the input ends before
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private boolean fill(int n)
+    throws IOException
+    {
+	if(limit-position >= n)
+	    return true;
+	System.arraycopy(buffer,position,buffer,0,limit-position);
+	base+=position;
+	limit-=position;
+	position=0;
+	if(n > buffer.length)
+	    buffer=Arrays.copyOf(buffer,Math.max(n,2*buffer.length));
+	while(limit < n){
+	    int r=in.read(buffer,limit,buffer.length-limit);
+	    if(r < 0)
+		return false;
+	    limit+=r;
+	}
+	return true;
+    }
+}
@@ -0,0 +1,474 @@
+/** BinaryLogWriter.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+import java.io.*;
+import java.util.*;
+
+
+/**
+ * Writes log lines in the binary log format (see BinaryLogFormat).
+ *
+ * Each line is parsed by a LogParser of the writer, and the see,
+ * sense_body, dash, turn and kick messages are written from the
+ * fields of their typed messages: the cycle and the numbers as
+ * varints and the object names as indexes in a dictionary of words,
+ * which is written along the records the first time a word is used.
+ * A typed record is only written when the line can be written again
+ * exactly from it, and the sense_body record keeps the rest of its
+ * line as text, so no part of a line is lost. The other lines are
+ * written as text.
+ *
+ * Usage:
+ * <pre>
+ *   BinaryLogWriter writer = new BinaryLogWriter(new FileOutputStream("Team_1.lsb"));
+ *   writer.write(line);
+ *   ...
+ *   writer.close();
+ * </pre>
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class BinaryLogWriter
+{
+    private OutputStream out;
+    private LogParser parser;  // parses the lines into their typed messages
+    private HashMap<String,Integer> words;  // dictionary of the words written so far
+    private byte[] record;  // the record being written
+    private int size;  // bytes of the record
+    private StringBuilder text;  // the line given back by the record
+
+    /** BinaryLogWriter constructor
+     *
+     * The header of the format is written at once. The stream should
+     * be buffered: each record is written with one call.
+     *
+     * @param out the stream to write to
+     * @throws IOException when the header cannot be written
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public BinaryLogWriter(OutputStream out)
+    throws IOException
+    {
+	this.out=out;
+	parser=new LogParser();
+	words=new HashMap<String,Integer>();
+	record=new byte[1024];
+	text=new StringBuilder(1024);
+	out.write(BinaryLogFormat.MAGIC);
+	out.write(BinaryLogFormat.VERSION);
+    }
+
+    /** Writes a log line
+     *
+     * @param line the line, without its end
+     * @throws IOException when the record cannot be written
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void write(String line)
+    throws IOException
+    {
+	boolean cr=line.endsWith("\r");
+	String parsedLine=cr ? line.substring(0,line.length()-1) : line;
+	ParsedLine parsed=null;
+	if(parsedLine.length() > 0){
+	    try{
+		parsed=parser.parse(parsedLine);
+	    } catch(IOException e){
+		parsed=null; //written as text, to fail again when read
+	    } catch(RuntimeException e){
+		parsed=null;
+	    }
+	}
+	if(cr)
+	    parsed=null; //written as text, to keep its line end
+	size=0;
+	text.setLength(0);
+	boolean typed;
+	if(parsed instanceof SeeMessage)
+	    typed=see((SeeMessage)parsed,line);
+	else if(parsed instanceof SenseBodyMessage)
+	    typed=senseBody((SenseBodyMessage)parsed,line);
+	else if(parsed instanceof DashMessage)
+	    typed=control(BinaryLogFormat.DASH,parsed.getValue("power"),null,line);
+	else if(parsed instanceof TurnMessage)
+	    typed=control(BinaryLogFormat.TURN,parsed.getValue("direction"),null,line);
+	else if(parsed instanceof KickMessage)
+	    typed=control(BinaryLogFormat.KICK,parsed.getValue("power"),parsed.getValue("direction"),line);
+	else
+	    typed=false;
+	if(!typed){
+	    byte[] text=line.getBytes();
+	    size=0;
+	    put(BinaryLogFormat.TEXT);
+	    putVarint(text.length);
+	    out.write(record,0,size);
+	    out.write(text);
+	    return;
+	}
+	out.write(record,0,size);
+    }
+
+    /** Flushes the stream
+     *
+     * @throws IOException when the stream cannot be flushed
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void flush()
+    throws IOException
+    {
+	out.flush();
+    }
+
+    /** Closes the stream
+     *
+     * @throws IOException when the stream cannot be closed
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void close()
+    throws IOException
+    {
+	out.close();
+    }
+
+    /** Writes the record of a see message
+     *
+     * @param see the see message
+     * @param line the line of the message
+     * @return false if an information is not made of plain decimal
+     * numbers, or the record does not give the line back, and the
+     * line must be written as text
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private boolean see(SeeMessage see, String line)
+    throws IOException
+    {
+	put(BinaryLogFormat.SEE);
+	putVarint(zigzag(see.getCycle()));
+	BinaryLogFormat.appendSee(text,see.getCycle());
+	int count=see.getObjectCount();
+	putVarint(count);
+	for(int i=0; i<count; i++){
+	    String info=see.getInfo(i);
+	    BinaryLogFormat.appendObject(text,see.getName(i),info);
+	    int parts=see.getInfoCount(i);
+	    if(parts < 1 || parts > 6)
+		return false;
+	    putVarint(word(see.getName(i)));
+	    put(parts);
+	    int start=0;
+	    for(int k=0; k<parts; k++){
+		int end=(k < parts-1) ? info.indexOf(' ',start) : info.length();
+		if(end < 0)
+		    return false;
+		long number=number(info.substring(start,end));
+		if(number < 0)
+		    return false;
+		putVarint(number);
+		start=end+1;
+	    }
+	}
+	text.append(')');
+	return same(line);
+    }
+
+    /** Writes the record of a sense_body message, with the rest of
+     * the line after the head angle as text
+     *
+     * @param body the sense_body message
+     * @param line the line of the message
+     * @return false if a value is not a plain decimal number, or the
+     * line does not start as the record gives it back, and the line
+     * must be written as text
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private boolean senseBody(SenseBodyMessage body, String line)
+    throws IOException
+    {
+	String[] texts=new String[SenseBodyMessage.HEAD_ANGLE+1];
+	int mask=0;
+	for(int f=SenseBodyMessage.VIEW_QUALITY; f<=SenseBodyMessage.HEAD_ANGLE; f++)
+	    if((texts[f]=body.getText(f)) != null)
+		mask|=1<<f;
+	BinaryLogFormat.appendSenseBody(text,body.getCycle(),texts);
+	if(!line.startsWith(text.toString()))
+	    return false;
+	put(BinaryLogFormat.SENSE_BODY);
+	putVarint(zigzag(body.getCycle()));
+	put(mask);
+	for(int f=SenseBodyMessage.VIEW_QUALITY; f<=SenseBodyMessage.HEAD_ANGLE; f++){
+	    if(texts[f] == null)
+		continue;
+	    if(f == SenseBodyMessage.VIEW_QUALITY || f == SenseBodyMessage.VIEW_WIDTH){
+		putVarint(word(texts[f]));
+		continue;
+	    }
+	    long number=number(texts[f]);
+	    if(number < 0)
+		return false;
+	    putVarint(number);
+	}
+	return rest(line,text.length());
+    }
+
+    /** Writes the rest of a line as its template and its numbers
+     *
+     * @param line the line
+     * @param start the start of the rest
+     * @return false if the rest holds the NUMBER character, and the
+     * line must be written as text
+     * @throws IOException when the template cannot be written
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private boolean rest(String line, int start)
+    throws IOException
+    {
+	if(line.indexOf(BinaryLogFormat.NUMBER,start) >= 0)
+	    return false;
+	StringBuilder template=new StringBuilder(line.length()-start);
+	long[] numbers=new long[16];
+	int count=0;
+	int n=line.length();
+	for(int i=start; i<n;){
+	    char c=line.charAt(i);
+	    if(c == ' ' || c == '(' || c == ')'){
+		template.append(c);
+		i++;
+		continue;
+	    }
+	    int end=i;
+	    while(end < n && (c=line.charAt(end)) != ' ' && c != '(' && c != ')')
+		end++;
+	    long number=number(line.substring(i,end));
+	    if(number < 0)
+		template.append(line,i,end); //a word, kept in the template
+	    else{
+		template.append(BinaryLogFormat.NUMBER);
+		if(count == numbers.length)
+		    numbers=Arrays.copyOf(numbers,2*count);
+		numbers[count++]=number;
+	    }
+	    i=end;
+	}
+	putVarint(word(template.toString()));
+	for(int k=0; k<count; k++)
+	    putVarint(numbers[k]);
+	return true;
+    }
+
+    /** Writes the record of a dash, turn or kick command
+     *
+     * @param tag the tag of the record
+     * @param first the first parameter, as written in the line
+     * @param second the second parameter, or null if the command has
+     * only one
+     * @param line the line of the command
+     * @return false if a parameter is not a plain decimal number, or
+     * the record does not give the line back, and the line must be
+     * written as text
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private boolean control(int tag, String first, String second, String line)
+    {
+	BinaryLogFormat.appendControl(text,tag,first,second);
+	if(!same(line))
+	    return false;
+	long number=number(first);
+	if(number < 0)
+	    return false;
+	put(tag);
+	putVarint(number);
+	if(tag != BinaryLogFormat.KICK)
+	    return true;
+	if((number=number(second)) < 0)
+	    return false;
+	putVarint(number);
+	return true;
+    }
+
+    /** Tells if the line given back by the record is the line
+     *
+     * @param line the line of the message
+     * @return true if they are the same
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private boolean same(String line)
+    {
+	if(text.length() != line.length())
+	    return false;
+	for(int i=text.length()-1; i>=0; i--)
+	    if(text.charAt(i) != line.charAt(i))
+		return false;
+	return true;
+    }
+
+    /** Returns the index of a word in the dictionary, writing it first
+     * if it is new
+     *
+     * @param word the word, like an object name
+     * @return the index of the word
+     * @throws IOException when the word cannot be written
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private int word(String word)
+    throws IOException
+    {
+	Integer index=words.get(word);
+	if(index != null)
+	    return index;
+	byte[] text=word.getBytes();
+	out.write(BinaryLogFormat.WORD);
+	int length=text.length;
+	for(; length >= 0x80; length>>>=7) //the length, as a varint
+	    out.write((length&0x7f)|0x80);
+	out.write(length);
+	out.write(text);
+	words.put(word,words.size());
+	return words.size()-1;
+    }
+
+    /** Encodes a number of the log line
+     *
+     * @param text the number as written in the line, or null
+     * @return its digits, the digits after the point and the sign, as
+     * described in BinaryLogFormat, or -1 if the number could not be
+     * written again as it is
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static long number(String text)
+    {
+	if(text == null)
+	    return -1;
+	int n=text.length();
+	int i=0;
+	boolean negative=(n > 0 && text.charAt(0) == '-');
+	if(negative)
+	    i++;
+	long mantissa=0;
+	int digits=0;
+	int scale=-1;  // digits after the point, -1 before the point
+	for(; i<n; i++){
+	    char c=text.charAt(i);
+	    if(c >= '0' && c <= '9'){
+		if(++digits > 15)
+		    return -1;
+		mantissa=mantissa*10+(c-'0');
+		if(scale >= 0)
+		    scale++;
+	    } else if(c == '.' && scale < 0)
+		scale=0;
+	    else
+		return -1;
+	}
+	if(digits == 0 || scale == 0)
+	    return -1;
+	if(scale < 0)
+	    scale=0;
+	// leading zeros, like other superfluous characters, are lost
+	if(!TypedMessage.toText(TypedMessage.toDouble(mantissa,scale,negative),scale).equals(text))
+	    return -1;
+	return (mantissa<<5)|(scale<<1)|(negative ? 1 : 0);
+    }
+
+    /** Maps a signed number to an unsigned one, the small magnitudes
+     * first
+     *
+     * @param value the number
+     * @return the zigzag encoding of the number
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static long zigzag(int value)
+    {
+	return ((long)value<<1)^(value>>31);
+    }
+
+    /** Appends a byte to the record
+     *
+     * @param b the byte
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void put(int b)
+    {
+	if(size == record.length)
+	    record=Arrays.copyOf(record,2*size);
+	record[size++]=(byte)b;
+    }
+
+    /** Appends an unsigned varint to the record
+     *
+     * @param value the number
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void putVarint(long value)
+    {
+	while((value&~0x7fL) != 0){
+	    put((int)(value&0x7f)|0x80);
+	    value>>>=7;
+	}
+	put((int)value);
+    }
+}
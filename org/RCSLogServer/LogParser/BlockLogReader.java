@@ -0,0 +1,336 @@
+/** BlockLogReader.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+
+/**
+ * Reads the lines of a compressed (deflate) log file.
+ *
+ * The file is made of independently compressed blocks, each starting
+ * at a cycle boundary, and comes with a block index (the file name
+ * followed by "i") holding the first cycle and the offset of every
+ * block. Seeking to a cycle only decompresses the blocks from the one
+ * containing that cycle on. If the index is missing it is rebuilt by
+ * decompressing the whole file once.
+ *
+ * A log file that was not properly closed can still be read up to the
+ * last cycle that was flushed.
+ *
+ * Usage:
+ * <pre>
+ *   BlockLogReader reader = new BlockLogReader("Team_1.lsf.z");
+ *   reader.seek(3000);
+ *   String line;
+ *   while ((line = reader.readLine()) != null)
+ *       parser.parse(line);
+ * </pre>
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class BlockLogReader
+{
+    private RandomAccessFile data;
+    private int[] firstCycles;  // first cycle of each block
+    private long[] offsets;  // offset of each block in the data file
+    private int block;  // next block to decompress
+    private String[] lines;  // lines of the current block
+    private int next;  // next line in the current block
+    private int target;  // cycle to skip to, -1 if none
+
+    /** BlockLogReader constructor
+     *
+     * @param filename the name of the compressed log file
+     * @throws IOException when the file or its index cannot be read
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public BlockLogReader(String filename)
+    throws IOException
+    {
+	data = new RandomAccessFile(filename, "r");
+	File indexFile = new File(filename + "i");
+	if (indexFile.exists())
+	    readIndex(indexFile);
+	else
+	    rebuildIndex();
+	block = 0;
+	lines = new String[0];
+	next = 0;
+	target = -1;
+    }
+
+    /** Returns the number of blocks
+     *
+     * @return the number of blocks in the file
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public int getBlockCount()
+    {
+	return offsets.length;
+    }
+
+    /** Returns the first cycle of a block
+     *
+     * @param b the block number
+     * @return the first cycle of the block, -1 for the block with the
+     * initialization messages
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public int getFirstCycle(int b)
+    {
+	return firstCycles[b];
+    }
+
+    /** Positions the reader on the first see or sense_body message of
+     * a cycle (or of the first cycle after it, if it is missing)
+     *
+     * @param cycle the cycle to go to
+     * @throws IOException when the block cannot be read
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void seek(int cycle)
+    throws IOException
+    {
+	int b = 0;
+	while (b + 1 < firstCycles.length && firstCycles[b + 1] <= cycle)
+	    b++;
+	block = b;
+	lines = new String[0];
+	next = 0;
+	target = cycle;
+    }
+
+    /** Reads the next line
+     *
+     * @return the next log line, or null at the end of the file
+     * @throws IOException when a block cannot be read
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String readLine()
+    throws IOException
+    {
+	while (true) {
+	    while (next < lines.length) {
+		String line = lines[next++];
+		if (target < 0)
+		    return line;
+		if (cycleOf(line) >= target) {
+		    target = -1;
+		    return line;
+		}
+	    }
+	    if (block >= offsets.length)
+		return null;
+	    lines = readBlock(block++);
+	    next = 0;
+	}
+    }
+
+    /** Closes the file
+     *
+     * @throws IOException when the file cannot be closed
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void close()
+    throws IOException
+    {
+	data.close();
+    }
+
+    /** Decompresses the lines of a block
+     *
+     * @param b the block number
+     * @return the complete lines of the block
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private String[] readBlock(int b)
+    throws IOException
+    {
+	long end = (b + 1 < offsets.length) ? offsets[b + 1] : data.length();
+	byte[] compressed = new byte[(int)(end - offsets[b])];
+	data.seek(offsets[b]);
+	data.readFully(compressed);
+
+	Inflater inflater = new Inflater();
+	inflater.setInput(compressed);
+	ByteArrayOutputStream raw = new ByteArrayOutputStream(compressed.length * 8);
+	byte[] chunk = new byte[64 * 1024];
+	try {
+	    while (!inflater.finished() && !inflater.needsInput()) {
+		int n = inflater.inflate(chunk);
+		raw.write(chunk, 0, n);
+	    }
+	} catch (DataFormatException e) {
+	    throw new IOException("Corrupted block " + b + ": " + e.getMessage());
+	} finally {
+	    inflater.end();
+	}
+
+	String text = raw.toString();
+	int last = text.lastIndexOf('\n'); // drop an incomplete last line
+	if (last < 0)
+	    return new String[0];
+	return text.substring(0, last).split("\n", -1);
+    }
+
+    /** Reads the block index
+     *
+     * @param indexFile the index file
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void readIndex(File indexFile)
+    throws IOException
+    {
+	int n = (int)(indexFile.length() / 12); // int cycle + long offset
+	firstCycles = new int[n];
+	offsets = new long[n];
+	DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+	try {
+	    for (int i = 0; i < n; i++) {
+		firstCycles[i] = in.readInt();
+		offsets[i] = in.readLong();
+	    }
+	} finally {
+	    in.close();
+	}
+    }
+
+    /** Rebuilds the block index by decompressing the whole file
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void rebuildIndex()
+    throws IOException
+    {
+	byte[] compressed = new byte[(int)data.length()];
+	data.seek(0);
+	data.readFully(compressed);
+	ArrayList<Integer> cycles = new ArrayList<Integer>();
+	ArrayList<Long> starts = new ArrayList<Long>();
+	byte[] chunk = new byte[64 * 1024];
+	int offset = 0;
+	while (offset < compressed.length) {
+	    Inflater inflater = new Inflater();
+	    inflater.setInput(compressed, offset, compressed.length - offset);
+	    ByteArrayOutputStream head = new ByteArrayOutputStream();
+	    try {
+		while (!inflater.finished() && !inflater.needsInput()) {
+		    int n = inflater.inflate(chunk);
+		    if (head.size() < chunk.length)
+			head.write(chunk, 0, n);
+		}
+	    } catch (DataFormatException e) {
+		throw new IOException("Corrupted block at offset " + offset + ": " + e.getMessage());
+	    }
+	    starts.add((long)offset);
+	    cycles.add(cycles.isEmpty() ? -1 : firstCycle(head.toString()));
+	    int used = compressed.length - offset - inflater.getRemaining();
+	    boolean complete = inflater.finished();
+	    inflater.end();
+	    if (!complete || used <= 0)
+		break;
+	    offset += used;
+	}
+	firstCycles = new int[cycles.size()];
+	offsets = new long[starts.size()];
+	for (int i = 0; i < firstCycles.length; i++) {
+	    firstCycles[i] = cycles.get(i);
+	    offsets[i] = starts.get(i);
+	}
+    }
+
+    /** Returns the cycle of the first see or sense_body line of a text
+     *
+     * @param text the beginning of a block
+     * @return the cycle, or -1 if there is none
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static int firstCycle(String text)
+    {
+	for (String line : text.split("\n")) {
+	    int c = cycleOf(line);
+	    if (c >= 0)
+		return c;
+	}
+	return -1;
+    }
+
+    /** Returns the cycle of a see or sense_body line
+     *
+     * @param line the log line
+     * @return the cycle, or -1 for the other messages
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static int cycleOf(String line)
+    {
+	int i;
+	if (line.startsWith("(see "))
+	    i = 5;
+	else if (line.startsWith("(sense_body "))
+	    i = 12;
+	else
+	    return -1;
+	int c = 0;
+	int start = i;
+	for (; i < line.length() && Character.isDigit(line.charAt(i)); i++)
+	    c = c * 10 + (line.charAt(i) - '0');
+	return (i > start) ? c : -1;
+    }
+}
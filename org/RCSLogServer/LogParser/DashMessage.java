@@ -0,0 +1,140 @@
+/** DashMessage.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+
+/** A parsed dash command.
+ *
+ * The ParsedLine parameters hold the power with the key "power".
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class DashMessage extends TypedMessage
+{
+    private String powerText;  // power as written in the line
+    private double power;
+    private int scale;  // digits after the point of a power read from a binary log
+
+    /** DashMessage constructor
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public DashMessage()
+    {
+	super();
+	clear();
+    }
+
+    /** Sets the power read from a binary log. The text is only written
+     * when it is asked for.
+     *
+     * @param value the power
+     * @param scale the digits after the point of the power
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void set(double value, int scale)
+    {
+	powerText=null;
+	power=value;
+	this.scale=scale;
+	changed();
+    }
+
+    /** Sets the power
+     *
+     * @param text the power as written in the line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void set(String text)
+    {
+	powerText=text;
+	power=toDouble(text);
+	changed();
+    }
+
+    /** Returns the power
+     *
+     * @return the power, or NaN if it is not a number
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getPower()
+    {
+	decode();
+	return power;
+    }
+
+    /** Decodes the power
+     *
+     * @param text the parameters of the command
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void decode(String text)
+    {
+	if(SExpressionTokenizer.isPlainToken(text,0,text.length()))
+	    set(text); // a plain token is its own first token
+	else
+	    set(SExpressionTokenizer.tokens(text).get(0));
+    }
+
+    /** Forgets the previous command
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void clear()
+    {
+	powerText=null;
+	power=Double.NaN;
+    }
+
+    /** Puts the power in the parameters
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void fill()
+    {
+	if(powerText == null && !Double.isNaN(power))
+	    powerText=toText(power,scale); //read from a binary log
+	if(powerText != null)
+	    parameters.put("power",powerText);
+    }
+}
@@ -0,0 +1,120 @@
+/** EventRecorder.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+import java.util.*;
+
+
+/** Listener keeping the events of a chunk of a log, to send them
+ * later in the order of the file (ParallelLogParser).
+ *
+ * The LogParser recording the events must retain its lines, so the
+ * events stay valid after the next line is parsed.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+class EventRecorder implements ParsingEventListener
+{
+    private int[] kinds;  // the kind of each event, like ParsingEventMask.KICK
+    private ArrayList<ParsingEvent> events;
+
+    /** EventRecorder constructor
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    EventRecorder()
+    {
+	kinds = new int[1024];
+	events = new ArrayList<ParsingEvent>(1024);
+    }
+
+    /** Sends the recorded events to some listeners, in order
+     *
+     * @param listeners the listeners
+     * @param masks the events wanted by each listener
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void replay(ParsingEventListener[] listeners, int[] masks)
+    {
+	for(int i=0; i<events.size(); i++)
+	    for(int j=0; j<listeners.length; j++)
+		if((masks[j] & kinds[i]) != 0)
+		    LogParser.deliver(listeners[j],kinds[i],events.get(i));
+    }
+
+    /** Records an event
+     *
+     * @param kind the kind of the event, like ParsingEventMask.KICK
+     * @param pe the event
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void record(int kind, ParsingEvent pe)
+    {
+	if(events.size() == kinds.length)
+	    kinds=Arrays.copyOf(kinds,2*kinds.length);
+	kinds[events.size()]=kind;
+	events.add(pe);
+    }
+
+    //Server messages
+    public void ServerInit(ParsingEvent pe){ record(ParsingEventMask.SERVER_INIT,pe); }
+    public void Hear(ParsingEvent pe){ record(ParsingEventMask.HEAR,pe); }
+    public void Score(ParsingEvent pe){ record(ParsingEventMask.SCORE,pe); }
+    public void SeeReceived(ParsingEvent pe){ record(ParsingEventMask.SEE_RECEIVED,pe); }
+    public void SeeParsed(ParsingEvent pe){ record(ParsingEventMask.SEE_PARSED,pe); }
+    public void SenseBody(ParsingEvent pe){ record(ParsingEventMask.SENSE_BODY,pe); }
+    public void Error(ParsingEvent pe){ record(ParsingEventMask.ERROR,pe); }
+    public void ServerParams(ParsingEvent pe){ record(ParsingEventMask.SERVER_PARAMS,pe); }
+    public void Controling(ParsingEvent pe){ record(ParsingEventMask.CONTROLING,pe); }
+    public void Sensing(ParsingEvent pe){ record(ParsingEventMask.SENSING,pe); }
+
+    //Objects in the field
+    public void Player(ParsingEvent pe){ record(ParsingEventMask.PLAYER,pe); }
+    public void Ball(ParsingEvent pe){ record(ParsingEventMask.BALL,pe); }
+    public void Flag(ParsingEvent pe){ record(ParsingEventMask.FLAG,pe); }
+    public void Line(ParsingEvent pe){ record(ParsingEventMask.LINE,pe); }
+    public void Goal(ParsingEvent pe){ record(ParsingEventMask.GOAL,pe); }
+
+    //Client messages
+    public void ClientInit(ParsingEvent pe){ record(ParsingEventMask.CLIENT_INIT,pe); }
+    public void Catch(ParsingEvent pe){ record(ParsingEventMask.CATCH,pe); }
+    public void ChangeView(ParsingEvent pe){ record(ParsingEventMask.CHANGE_VIEW,pe); }
+    public void Dash(ParsingEvent pe){ record(ParsingEventMask.DASH,pe); }
+    public void Kick(ParsingEvent pe){ record(ParsingEventMask.KICK,pe); }
+    public void Move(ParsingEvent pe){ record(ParsingEventMask.MOVE,pe); }
+    public void Say(ParsingEvent pe){ record(ParsingEventMask.SAY,pe); }
+    public void Turn(ParsingEvent pe){ record(ParsingEventMask.TURN,pe); }
+    public void TurnNeck(ParsingEvent pe){ record(ParsingEventMask.TURN_NECK,pe); }
+    public void SimpleControl(ParsingEvent pe){ record(ParsingEventMask.SIMPLE_CONTROL,pe); }
+    public void OtherControl(ParsingEvent pe){ record(ParsingEventMask.OTHER_CONTROL,pe); }
+}
@@ -0,0 +1,150 @@
+/** HearMessage.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+import java.util.ArrayList;
+
+
+/** A parsed hear message.
+ *
+ * The ParsedLine parameters hold the sender with the key "who" and
+ * the message with the key "what".
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class HearMessage extends TypedMessage
+{
+    private String who;  // referee, self, online_coach_left, or a direction
+    private String what;
+
+    /** HearMessage constructor
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public HearMessage()
+    {
+	super();
+    }
+
+    /** Sets the sender and the message
+     *
+     * @param sender the sender
+     * @param message the message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void set(String sender, String message)
+    {
+	who=sender;
+	what=message;
+	changed();
+    }
+
+    /** Returns the sender
+     *
+     * @return "referee", "self", a coach, or the direction of a player
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String getWho()
+    {
+	decode();
+	return who;
+    }
+
+    /** Returns the direction the message comes from
+     *
+     * @return the direction, or NaN if the sender is not a player
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getDirection()
+    {
+	decode();
+	return toDouble(who);
+    }
+
+    /** Returns the message
+     *
+     * @return the message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String getWhat()
+    {
+	decode();
+	return what;
+    }
+
+    /** Decodes the sender and the message
+     *
+     * @param text the information of the message, after the time
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void decode(String text)
+    {
+	ArrayList<String> parms=SExpressionTokenizer.words(text); //this obtains each token
+	set(parms.get(0),parms.get(1));
+    }
+
+    /** Forgets the previous message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void clear()
+    {
+	who=null;
+	what=null;
+    }
+
+    /** Puts the sender and the message in the parameters
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void fill()
+    {
+	if(who != null)
+	    parameters.put("who",who);
+	if(what != null)
+	    parameters.put("what",what);
+    }
+}
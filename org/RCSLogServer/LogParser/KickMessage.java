@@ -0,0 +1,195 @@
+/** KickMessage.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+import java.util.ArrayList;
+
+
+/** A parsed kick command.
+ *
+ * The ParsedLine parameters hold the power and the direction with
+ * the keys "power" and "direction".
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class KickMessage extends TypedMessage
+{
+    private String powerText;  // power as written in the line
+    private String directionText;  // direction as written in the line
+    private String source;  // parameters holding the texts not cut yet
+    private double power;
+    private double direction;
+    private int powerScale;  // digits after the point of a power read from a binary log
+    private int directionScale;
+
+    /** KickMessage constructor
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public KickMessage()
+    {
+	super();
+	clear();
+    }
+
+    /** Sets the power and the direction
+     *
+     * @param powerText the power as written in the line
+     * @param directionText the direction as written in the line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void set(String powerText, String directionText)
+    {
+	this.powerText=powerText;
+	this.directionText=directionText;
+	source=null;
+	power=toDouble(powerText);
+	direction=toDouble(directionText);
+	changed();
+    }
+
+    /** Sets the power and the direction read from a binary log. The
+     * texts are only written when they are asked for.
+     *
+     * @param power the power
+     * @param powerScale the digits after the point of the power
+     * @param direction the direction
+     * @param directionScale the digits after the point of the
+     * direction
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void set(double power, int powerScale, double direction, int directionScale)
+    {
+	powerText=null;
+	directionText=null;
+	source=null;
+	this.power=power;
+	this.direction=direction;
+	this.powerScale=powerScale;
+	this.directionScale=directionScale;
+	changed();
+    }
+
+    /** Returns the power
+     *
+     * @return the power, or NaN if it is not a number
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getPower()
+    {
+	decode();
+	return power;
+    }
+
+    /** Returns the direction, relative to the body
+     *
+     * @return the direction, or NaN if it is not a number
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getDirection()
+    {
+	decode();
+	return direction;
+    }
+
+    /** Decodes the power and the direction
+     *
+     * @param text the parameters of the command
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void decode(String text)
+    {
+	// two plain tokens are read in place, and only cut when the
+	// parameters are asked for
+	if(split(text,0,text.length()) == 2
+	   && SExpressionTokenizer.isPlainToken(text,bounds[0],bounds[1])
+	   && SExpressionTokenizer.isPlainToken(text,bounds[2],bounds[3])){
+	    powerText=null;
+	    directionText=null;
+	    source=text;
+	    power=toDouble(text,bounds[0],bounds[1]);
+	    direction=toDouble(text,bounds[2],bounds[3]);
+	    changed();
+	    return;
+	}
+	ArrayList<String> parms=SExpressionTokenizer.tokens(text);
+	set(parms.get(0),parms.get(1));
+    }
+
+    /** Forgets the previous command
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void clear()
+    {
+	powerText=null;
+	directionText=null;
+	source=null;
+	power=Double.NaN;
+	direction=Double.NaN;
+    }
+
+    /** Puts the power and the direction in the parameters
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void fill()
+    {
+	if(source != null){
+	    split(source,0,source.length());
+	    powerText=source.substring(bounds[0],bounds[1]);
+	    directionText=source.substring(bounds[2],bounds[3]);
+	    source=null;
+	} else if(powerText == null && directionText == null && !Double.isNaN(power)){
+	    powerText=toText(power,powerScale); //read from a binary log
+	    directionText=toText(direction,directionScale);
+	}
+	if(powerText != null)
+	    parameters.put("power",powerText);
+	if(directionText != null)
+	    parameters.put("direction",directionText);
+    }
+}
@@ -0,0 +1,359 @@
+/** LogFollower.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Parses a text log file while it is being written.
+ *
+ * Each call to poll() parses the complete lines appended to the file
+ * since the previous call, with the same LogParser, so its state (the
+ * cycle, the kind of the last line) goes on from one call to the next.
+ * A last line still being written is kept until its end arrives. The
+ * file may not exist yet: it is opened by the first poll() finding it.
+ * If the file becomes shorter than what was read, it has been written
+ * again from the start, and is read again from its first line, with
+ * the line numbers counted again from 1.
+ *
+ * follow() polls until stop() is called, or until the file has not
+ * grown for the idle timeout. It waits for the changes of the file
+ * with a WatchService on its directory, and checks the size at least
+ * every poll interval, as some file systems do not report the changes.
+ *
+ * The lines are read like LogParser.parse(InputStream) reads them: the
+ * line numbers and offsets of the errors are counted from the start of
+ * the file, and the progress listener of the parser is called after
+ * each poll. Only text logs can be followed; the compressed logs are
+ * read with BlockLogReader.
+ *
+ * Usage:
+ * <pre>
+ *   LogParser parser = new LogParser();
+ *   parser.addPEListener(listener);
+ *   LogFollower follower = new LogFollower(parser, Paths.get("Team_1.lsf"));
+ *   follower.setIdleTimeout(10000);
+ *   follower.follow();
+ * </pre>
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class LogFollower
+{
+    private LogParser parser;
+    private Path path;
+    private FileChannel channel;  // null until the file exists
+    private long position;  // offset of the first byte not read
+    private byte[] buffer;  // the incomplete last line, then the bytes read
+    private int kept;  // length of the incomplete last line
+    private long lines;  // lines parsed
+    private long pollInterval;  // milliseconds between the size checks
+    private long idleTimeout;  // milliseconds without growth ending follow(), 0 for never
+    private volatile boolean stopped;
+
+    /** LogFollower constructor
+     *
+     * @param parser the parser of the lines, with its listeners
+     * @param path the log file
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public LogFollower(LogParser parser, Path path)
+    {
+	this.parser=parser;
+	this.path=path;
+	buffer=new byte[64*1024];
+	pollInterval=200;
+	idleTimeout=0;
+	parser.startBulk(-1);
+    }
+
+    /** Sets the longest time between two checks of the file size
+     *
+     * @param millis the interval in milliseconds, 200 by default
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void setPollInterval(long millis)
+    {
+	pollInterval=millis;
+    }
+
+    /** Sets the time after which follow() returns if the file has not
+     * grown, as when the match is over
+     *
+     * @param millis the timeout in milliseconds, 0 (the default) to
+     * follow until stop()
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void setIdleTimeout(long millis)
+    {
+	idleTimeout=millis;
+    }
+
+    /** Returns the number of lines of the file parsed, since it was last
+     * written again from the start
+     *
+     * @return the number of lines
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getLineCount()
+    {
+	return lines;
+    }
+
+    /** Returns the offset of the first byte not parsed, that is the
+     * start of the incomplete last line
+     *
+     * @return the offset in the file
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getPosition()
+    {
+	return position-kept;
+    }
+
+    /** Parses the complete lines appended to the file since the last
+     * call
+     *
+     * @return the number of lines parsed
+     * @throws LogParseException when a line cannot be parsed and the
+     * progress listener does not skip it; the next poll goes on after
+     * that line
+     * @throws IOException when the file cannot be read
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long poll()
+    throws IOException
+    {
+	if(channel == null){
+	    if(!Files.exists(path))
+		return 0;
+	    channel=FileChannel.open(path,StandardOpenOption.READ);
+	}
+	long size=channel.size();
+	if(size < position){ //written again from the start
+	    position=0;
+	    kept=0;
+	    lines=0;
+	    parser.startBulk(-1);
+	}
+	long before=lines;
+	if(kept > 0) //the lines after an error
+	    feedLines(kept,position-kept);
+	while(position < size){
+	    if(kept == buffer.length)
+		buffer=Arrays.copyOf(buffer,2*buffer.length); //a very long line
+	    int n=channel.read(ByteBuffer.wrap(buffer,kept,buffer.length-kept),position);
+	    if(n <= 0)
+		break;
+	    long base=position-kept; //offset of buffer[0] in the file
+	    position+=n;
+	    feedLines(kept+n,base);
+	}
+	lines=parser.endBulk(position-kept);
+	return lines-before;
+    }
+
+    /** Parses the lines as the file grows, until stop() is called or
+     * the idle timeout expires. The incomplete last line is parsed
+     * when the idle timeout expires, as the file is then complete.
+     *
+     * @return the number of lines parsed
+     * @throws LogParseException when a line cannot be parsed and the
+     * progress listener does not skip it
+     * @throws IOException when the file cannot be read
+     * @throws InterruptedException when the thread is interrupted
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long follow()
+    throws IOException, InterruptedException
+    {
+	long parsed=0;
+	WatchService watcher=watch();
+	try{
+	    long lastGrowth=System.currentTimeMillis();
+	    while(!stopped){
+		long last=position;
+		parsed+=poll();
+		if(position != last)
+		    lastGrowth=System.currentTimeMillis();
+		if(idleTimeout > 0 && System.currentTimeMillis()-lastGrowth >= idleTimeout){
+		    parsed+=finish();
+		    break;
+		}
+		if(watcher == null)
+		    Thread.sleep(pollInterval);
+		else{
+		    WatchKey key=watcher.poll(pollInterval,TimeUnit.MILLISECONDS);
+		    if(key != null){
+			key.pollEvents();
+			key.reset();
+		    }
+		}
+	    }
+	} finally{
+	    if(watcher != null)
+		watcher.close();
+	}
+	return parsed;
+    }
+
+    /** Stops follow(), from any thread
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void stop()
+    {
+	stopped=true;
+    }
+
+    /** Parses the incomplete last line, when the file is known to be
+     * complete
+     *
+     * @return the number of lines parsed
+     * @throws LogParseException when the line cannot be parsed and the
+     * progress listener does not skip it
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long finish()
+    throws IOException
+    {
+	long before=lines;
+	feedLines(kept,position-kept);
+	if(kept > 0){
+	    int end=kept;
+	    kept=0;
+	    parser.feed(buffer,0,end,position-end);
+	}
+	lines=parser.endBulk(position);
+	return lines-before;
+    }
+
+    /** Closes the file
+     *
+     * @throws IOException when the file cannot be closed
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void close()
+    throws IOException
+    {
+	if(channel != null)
+	    channel.close();
+	channel=null;
+    }
+
+    /** Parses the complete lines of the buffer, and keeps the
+     * incomplete last line at its start. A line that cannot be parsed
+     * is not parsed again.
+     *
+     * @param end the end of the bytes in the buffer
+     * @param base the offset of the buffer in the file
+     * @throws LogParseException when a line cannot be parsed and the
+     * progress listener does not skip it
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void feedLines(int end, long base)
+    throws LogParseException
+    {
+	int start=0;
+	try{
+	    for(int i=0; i<end; i++){
+		if(buffer[i] == '\n'){
+		    int line=start;
+		    start=i+1;
+		    parser.feed(buffer,line,i,base+line);
+		}
+	    }
+	} finally{
+	    kept=end-start;
+	    System.arraycopy(buffer,start,buffer,0,kept);
+	}
+    }
+
+    /** Watches the directory of the file for changes
+     *
+     * @return the watch service, or null if the file system cannot
+     * watch it, and the size is only polled
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private WatchService watch()
+    {
+	Path directory=path.toAbsolutePath().getParent();
+	WatchService watcher=null;
+	try{
+	    watcher=directory.getFileSystem().newWatchService();
+	    directory.register(watcher,StandardWatchEventKinds.ENTRY_CREATE,StandardWatchEventKinds.ENTRY_MODIFY);
+	    return watcher;
+	} catch(IOException e){
+	} catch(UnsupportedOperationException e){
+	}
+	try{
+	    if(watcher != null)
+		watcher.close();
+	} catch(IOException e){
+	}
+	return null;
+    }
+}
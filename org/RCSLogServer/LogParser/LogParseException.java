@@ -0,0 +1,103 @@
+/** LogParseException.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+import java.io.IOException;
+
+
+/**
+ * Error of a line parsed by one of the bulk LogParser.parse methods
+ * (file, stream or buffer), telling where the line is.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class LogParseException extends IOException
+{
+    private static final long serialVersionUID = 1L;
+
+    private String line;
+    private long lineNumber;
+    private long offset;
+
+    /** LogParseException constructor
+     *
+     * @param line the line that could not be parsed
+     * @param lineNumber the number of the line, from 1
+     * @param offset the position of the line, in bytes from the start
+     * of the input
+     * @param cause the error thrown while parsing the line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public LogParseException(String line, long lineNumber, long offset, Throwable cause)
+    {
+	super("Line "+lineNumber+" (offset "+offset+"): "+cause.getMessage(),cause);
+	this.line=line;
+	this.lineNumber=lineNumber;
+	this.offset=offset;
+    }
+
+    /** Gets the line that could not be parsed
+     *
+     * @return the line, without its end
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String getLine()
+    {
+	return line;
+    }
+
+    /** Gets the number of the line
+     *
+     * @return the line number, from 1
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getLineNumber()
+    {
+	return lineNumber;
+    }
+
+    /** Gets the position of the line
+     *
+     * @return the offset of the line, in bytes from the start of the
+     * input
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getOffset()
+    {
+	return offset;
+    }
+}
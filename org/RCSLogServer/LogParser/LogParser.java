@@ -23,6 +23,9 @@
 package org.RCSLogServer.LogParser;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.file.*;
 import java.util.*;
 import java.util.regex.*;
 import java.lang.reflect.Method;
@@ -34,10 +37,29 @@ import java.lang.reflect.Method;
  * This class creates an object that parses RoboCup Simulation log
  * file lines, one at a time. Parsing a line returns a ParsedLine
  * object and sends parsing events to registered parsing event 
- * listeners (preferred).
+ * listeners (preferred). A whole file, stream or buffer is parsed in
+ * one call, which only sends the events.
+ *
+ * The see, sense_body, hear, dash, kick and turn lines are parsed
+ * into typed messages (SeeMessage, SenseBodyMessage, etc.), which are
+ * ParsedLines keeping the numbers in primitive fields; their string
+ * parameters are only built if a listener reads them.
+ *
+ * A LogParser holds the state of one log (the cycle, the kind of the
+ * last line, and the messages it fills), so it must only be used by
+ * one thread at a time. The grammar is shared and immutable: the
+ * tokenizer is static, the message names are found in a constant
+ * table (MessageKind), and the patterns are final. A parser is cheap
+ * to create, its typed messages are only made when their first line
+ * comes, so many logs can be parsed at the same time with one parser
+ * each. By default the returned ParsedLine is reused by the next
+ * line; with setRetainLines(true) each line has its own, which can be
+ * handed to other threads.
  *
  * This class also defines a number of static Regex Patterns that can
- * be used without creating an instance of this class.
+ * be used without creating an instance of this class. The parser itself
+ * does not use them: the lines are cut by the SExpressionTokenizer,
+ * which gives the same tokens in a single pass over the characters.
  *
  * @author Edgar Acosta
  * @since 0.2
@@ -45,10 +67,32 @@ import java.lang.reflect.Method;
  */
 public class LogParser
 {
-    private ParsedLine parsed;
+    private ParsedLine parsed;  // the line being parsed: general or typed
+    private ParsedLine general;  // lines without a typed message
+    private SeeMessage seeMessage;
+    private SenseBodyMessage senseBodyMessage;
+    private HearMessage hearMessage;
+    private DashMessage dashMessage;
+    private KickMessage kickMessage;
+    private TurnMessage turnMessage;
+    private EnumMap<MessageKind,TypedMessage> typedMessages;  // typed messages by main message
+    private boolean recycleObjectEvents;  // reuse one event for all the seen objects
+    private SeenObject seenObject;  // the recycled seen object
+    private ParsingEvent objectEvent;  // the recycled event of the seen objects
     private int cycle;
     private ArrayList<ParsingEventListener> PEListeners;
-    private String lastType;
+    private ArrayList<Integer> PEMasks;  // interest masks of the listeners
+    private ParsingEventListener[][] subscribers;  // listeners of each event
+    private int interest;  // events wanted by some listener
+    private boolean decodeWanted;  // only decode the messages some listener wants
+    private boolean lazy;  // decode the typed messages when they are read
+    private boolean retainLines;  // a new ParsedLine for each line, kept by its events
+    private Object source;  // the source of the events
+    private ParsingProgressListener progress;  // follows the bulk parsing, or null
+    private long lineNumber;  // lines read by the bulk parsing
+    private long nextProgress;  // offset of the next progress call
+    private long total;  // size of the bulk input, -1 if unknown
+    private MessageKind.Category lastType;  // CONTROL or SENSOR
 
     /** LogParser constructor
      *
@@ -58,10 +102,21 @@ public class LogParser
      */
     public LogParser()
     {
-	parsed = new ParsedLine();
+	general = new ParsedLine();
+	parsed = general;
+	typedMessages = new EnumMap<MessageKind,TypedMessage>(MessageKind.class); //filled by selectTyped
+	recycleObjectEvents=false;
+	seenObject = new SeenObject();
+	source=this;
+	objectEvent = new ParsingEvent(source,seenObject);
 	cycle=-1;
 	PEListeners = new ArrayList<ParsingEventListener>();
-	lastType="sensor";
+	PEMasks = new ArrayList<Integer>();
+	decodeWanted=false;
+	lazy=false;
+	retainLines=false;
+	subscribe();
+	lastType=MessageKind.Category.SENSOR;
     }
 
     /** Registers a new ParsingEventListener
@@ -73,8 +128,28 @@ public class LogParser
      *
      */
     public void addPEListener(ParsingEventListener pel)
+    {
+	addPEListener(pel,ParsingEventMask.of(pel));
+    }
+
+    /** Registers a new ParsingEventListener for some events only
+     *
+     * The listener only receives the events of the mask, and the
+     * events nobody wants are not built.
+     *
+     * @param pel the Parsing Event Listener
+     * @param mask the events wanted, like ParsingEventMask.KICK |
+     * ParsingEventMask.DASH
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void addPEListener(ParsingEventListener pel, int mask)
     {
 	PEListeners.add(pel);
+	PEMasks.add(mask);
+	subscribe();
     }
 
     /** Removes a ParsingEventListener
@@ -87,7 +162,266 @@ public class LogParser
      */
     public void removePEListener(ParsingEventListener pel)
     {
-	PEListeners.remove(pel);
+	int i=PEListeners.indexOf(pel);
+	if(i >= 0){
+	    PEListeners.remove(i);
+	    PEMasks.remove(i);
+	    subscribe();
+	}
+    }
+
+    /** Sets whether the messages nobody wants are decoded
+     *
+     * By default every line is fully parsed, so the ParsedLine
+     * returned by parse() is complete. When only decoding the wanted
+     * messages, the parameters of the messages whose events no
+     * listener wants (like the objects of a see message) are not read:
+     * their ParsedLine only has its type, main message and cycle, and
+     * their errors are not detected. A scan for the kicks then skips
+     * the see and sense_body lines.
+     *
+     * @param wanted true to only decode the wanted messages
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void setDecodeWantedOnly(boolean wanted)
+    {
+	decodeWanted=wanted;
+    }
+
+    /** Sets whether the events of the seen objects are recycled
+     *
+     * By default each object of a see message is sent to the Player,
+     * Ball, Flag, Line and Goal listeners in a new ParsingEvent with a
+     * new SeenObject. When recycling, the same event and SeenObject
+     * are loaded with each object in turn, so parsing the objects
+     * allocates nothing for the listeners. The event and its
+     * SeenObject are then only valid during the call: a listener must
+     * copy the values it wants to keep, and must not keep the event.
+     *
+     * @param recycle true to recycle the events
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void setRecycleObjectEvents(boolean recycle)
+    {
+	recycleObjectEvents=recycle;
+    }
+
+    /** Sets whether the typed messages are decoded lazily
+     *
+     * By default every line is decoded while it is parsed. When
+     * decoding lazily, the parser only finds the main message and the
+     * cycle of the see, sense_body, hear, dash, kick and turn lines,
+     * and keeps the text of their parameters in the typed message
+     * (SeeMessage, etc.). The text is decoded the first time a getter,
+     * ParsedLine.getValue or ParsingEvent.get asks for a value, so a
+     * job only looking at the message kinds and cycles does not pay
+     * for the decoding. The see lines are still decoded at once when
+     * a listener wants their objects, which are sent one by one.
+     *
+     * The errors of a lazily decoded line are thrown by the first
+     * getter reading it, not by parse().
+     *
+     * @param lazy true to decode lazily
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void setLazyDecoding(boolean lazy)
+    {
+	this.lazy=lazy;
+    }
+
+    /** Sets the listener following the bulk parsing
+     *
+     * Without a listener, the bulk parse methods stop on the first
+     * line that cannot be parsed.
+     *
+     * @param listener the listener, or null
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void setProgressListener(ParsingProgressListener listener)
+    {
+	progress=listener;
+    }
+
+    /** Sets whether each line is parsed into a new ParsedLine
+     *
+     * By default the ParsedLine returned by parse(), and the typed
+     * messages sent with the events, are reused for the next line.
+     * When retaining the lines, each line gets its own ParsedLine or
+     * typed message, which the parser never changes again: it can be
+     * kept, sent later (as the ParallelLogParser does) or handed to
+     * another thread. Its lazy decoding, if any, is thread safe.
+     *
+     * @param retain true for a new ParsedLine on each line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void setRetainLines(boolean retain)
+    {
+	retainLines=retain;
+	typedMessages.clear(); //the next lines make their own
+    }
+
+    /** Sets the source of the events sent by this parser
+     *
+     * @param source the source, this parser by default
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void setEventSource(Object source)
+    {
+	this.source=source;
+	objectEvent = new ParsingEvent(source,seenObject);
+    }
+
+    /** Sets the kind of the last line parsed, before the parser
+     * starts in the middle of a log
+     *
+     * @param type CONTROL or SENSOR, as returned by typeOf
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void setLastType(MessageKind.Category type)
+    {
+	lastType=type;
+    }
+
+    /** Groups the listeners by event, after a change of the listeners
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void subscribe()
+    {
+	subscribers=new ParsingEventListener[ParsingEventMask.COUNT][];
+	interest=0;
+	for(int event=0; event<ParsingEventMask.COUNT; event++){
+	    ArrayList<ParsingEventListener> list=new ArrayList<ParsingEventListener>();
+	    for(int i=0; i<PEListeners.size(); i++)
+		if((PEMasks.get(i) & (1<<event)) != 0)
+		    list.add(PEListeners.get(i));
+	    subscribers[event]=list.toArray(new ParsingEventListener[list.size()]);
+	    if(!list.isEmpty())
+		interest|=1<<event;
+	}
+    }
+
+    /** Checks whether some listener wants some events
+     *
+     * @param mask the events
+     * @return true if one of the events is wanted
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    boolean wants(int mask)
+    {
+	return (interest & mask) != 0;
+    }
+
+    /** Checks whether a message must be decoded
+     *
+     * @param mask the events coming from the message
+     * @return true if the message must be decoded
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    boolean decodes(int mask)
+    {
+	return !decodeWanted || (interest & mask) != 0;
+    }
+
+    /** Sends an event to the listeners wanting it
+     *
+     * @param event the event, like ParsingEventMask.KICK
+     * @param line the ParsedLine of the event, or null
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void fire(int event, ParsedLine line)
+    {
+	if(wants(event))
+	    send(event,new ParsingEvent(source,line));
+    }
+
+    /** Sends an event to the listeners wanting it
+     *
+     * @param event the event, like ParsingEventMask.KICK
+     * @param pe the event
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void send(int event, ParsingEvent pe)
+    {
+	for(ParsingEventListener pel:subscribers[Integer.numberOfTrailingZeros(event)])
+	    deliver(pel,event,pe);
+    }
+
+    /** Calls the method of a listener receiving an event
+     *
+     * @param pel the listener
+     * @param event the event, like ParsingEventMask.KICK
+     * @param pe the event
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static void deliver(ParsingEventListener pel, int event, ParsingEvent pe)
+    {
+	switch(event){
+	case ParsingEventMask.SERVER_INIT: pel.ServerInit(pe); break;
+	case ParsingEventMask.HEAR: pel.Hear(pe); break;
+	case ParsingEventMask.SCORE: pel.Score(pe); break;
+	case ParsingEventMask.SEE_RECEIVED: pel.SeeReceived(pe); break;
+	case ParsingEventMask.SEE_PARSED: pel.SeeParsed(pe); break;
+	case ParsingEventMask.SENSE_BODY: pel.SenseBody(pe); break;
+	case ParsingEventMask.ERROR: pel.Error(pe); break;
+	case ParsingEventMask.SERVER_PARAMS: pel.ServerParams(pe); break;
+	case ParsingEventMask.CONTROLING: pel.Controling(pe); break;
+	case ParsingEventMask.SENSING: pel.Sensing(pe); break;
+	case ParsingEventMask.PLAYER: pel.Player(pe); break;
+	case ParsingEventMask.BALL: pel.Ball(pe); break;
+	case ParsingEventMask.FLAG: pel.Flag(pe); break;
+	case ParsingEventMask.LINE: pel.Line(pe); break;
+	case ParsingEventMask.GOAL: pel.Goal(pe); break;
+	case ParsingEventMask.CLIENT_INIT: pel.ClientInit(pe); break;
+	case ParsingEventMask.CATCH: pel.Catch(pe); break;
+	case ParsingEventMask.CHANGE_VIEW: pel.ChangeView(pe); break;
+	case ParsingEventMask.DASH: pel.Dash(pe); break;
+	case ParsingEventMask.KICK: pel.Kick(pe); break;
+	case ParsingEventMask.MOVE: pel.Move(pe); break;
+	case ParsingEventMask.SAY: pel.Say(pe); break;
+	case ParsingEventMask.TURN: pel.Turn(pe); break;
+	case ParsingEventMask.TURN_NECK: pel.TurnNeck(pe); break;
+	case ParsingEventMask.SIMPLE_CONTROL: pel.SimpleControl(pe); break;
+	case ParsingEventMask.OTHER_CONTROL: pel.OtherControl(pe); break;
+	}
     }
 
     /** Parses a log line
@@ -105,41 +439,41 @@ public class LogParser
     public ParsedLine parse(String line)
     throws IOException
     {
+	if(retainLines)
+	    general=new ParsedLine();
+	parsed=general;
 	parsed.reset(cycle); //clear the content of the parsed
 	//recognize the type of message: control(command) or sensor
-	m=line_pattern.matcher(line);
-	String message,params,type;
-	if(m.matches()){ // if it is not a simple control
-	    message=m.group(1);
-	    params=m.group(2);
-	    if(options.matcher(message).matches())
-		parseOptions(message,params);//it is an options message
-	    else if(init.matcher(message).matches())
-		parseInit(message,params);//it is an init message
-	    else if(controls.matcher(message).matches())
-		parseControl(message,params); // it is a control message
-	    else if(sensors.matcher(message).matches())
-		parseSensor(message,params); // it is a sensor message
-	    else if(errors.matcher(message).matches())
-		parseError(message,params); // it is a sensor message
-	    else
+	String[] parts=SExpressionTokenizer.message(line);
+	String message,params;
+	MessageKind kind;
+	if(parts != null){ // if it is not a simple control
+	    message=parts[0];
+	    params=parts[1];
+	    kind=MessageKind.of(message);
+	    if(kind == null || kind.category == null)
 		throw new IOException("Not recognized message:\n"+line);
+	    switch(kind.category){
+	    case OPTIONS: parseOptions(message,params); break; //it is an options message
+	    case INIT: parseInit(kind,message,params); break; //it is an init message
+	    case CONTROL: parseControl(kind,message,params); break; // it is a control message
+	    case SENSOR: parseSensor(kind,message,params); break; // it is a sensor message
+	    case ERROR: parseError(message,params); break; // it is an error message
+	    }
 	} else{ //it should be a simple control: sense_body, score, or bye
-	    n=simple_control_pattern.matcher(line);
-	    if(!n.matches()){
+	    message=SExpressionTokenizer.simpleCommand(line);
+	    if(message == null){
 		throw new IOException("Not recognized simple control message:\n"+line);
 	    }
-	    message=n.group(1);
-	    if(simple_controls.matcher(message).matches()){
-		if(lastType.compareTo("sensor") == 0){
+	    kind=MessageKind.of(message);
+	    if(kind != null && kind.simple){
+		if(lastType == MessageKind.Category.SENSOR){
 		    //if this is the first control in the row
-		    ParsingEvent peSwitch=new ParsingEvent(this);
-		    for(ParsingEventListener pel:PEListeners) pel.Controling(peSwitch);
+		    fire(ParsingEventMask.CONTROLING,null);
 		}
-		lastType="control";
+		lastType=MessageKind.Category.CONTROL;
 		parsed.setControl(message);
-		ParsingEvent pe=new ParsingEvent(this,parsed);
-		for(ParsingEventListener pel:PEListeners) pel.SimpleControl(pe);
+		fire(ParsingEventMask.SIMPLE_CONTROL,parsed);
 	    }
 	    else
 		throw new IOException("Not a simple control:\n"+line);
@@ -149,6 +483,263 @@ public class LogParser
 	return parsed;  //return the parsed
     }
 
+    /** Parses a log file
+     *
+     * The file is memory mapped and parsed like a buffer (files over
+     * 2 GB are read as a stream).
+     *
+     * @param path the log file
+     * @return the number of lines read
+     * @throws LogParseException when a line cannot be parsed
+     * @throws IOException when the file cannot be read
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long parse(Path path)
+    throws IOException
+    {
+	FileChannel channel=FileChannel.open(path,StandardOpenOption.READ);
+	try{
+	    long size=channel.size();
+	    if(size > Integer.MAX_VALUE)
+		return parse(Channels.newInputStream(channel),size);
+	    return parse(channel.map(FileChannel.MapMode.READ_ONLY,0,size));
+	} finally{
+	    channel.close();
+	}
+    }
+
+    /** Parses the log lines of a stream, until its end
+     *
+     * The bytes are read in a buffer, reused for all the lines, and
+     * each line is parsed as a String in the default charset. The line
+     * ends are \n or \r\n, and the empty lines are skipped. The
+     * stream is not closed.
+     *
+     * @param in the stream
+     * @return the number of lines read
+     * @throws LogParseException when a line cannot be parsed
+     * @throws IOException when the stream cannot be read
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long parse(InputStream in)
+    throws IOException
+    {
+	return parse(in,-1);
+    }
+
+    /** Parses the log lines of a stream, until its end
+     *
+     * @param in the stream
+     * @param size the size of the stream, or -1 if unknown
+     * @return the number of lines read
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private long parse(InputStream in, long size)
+    throws IOException
+    {
+	startBulk(size);
+	byte[] buffer=new byte[64*1024];
+	long base=0; //offset of the buffer in the stream
+	int filled=0;
+	int n;
+	while((n=in.read(buffer,filled,buffer.length-filled)) >= 0){
+	    int start=feedLines(buffer,0,filled+n,base);
+	    filled+=n;
+	    if(start == 0 && filled == buffer.length){
+		buffer=Arrays.copyOf(buffer,2*buffer.length); //a very long line
+	    } else{ //keep the incomplete line
+		System.arraycopy(buffer,start,buffer,0,filled-start);
+		filled-=start;
+		base+=start;
+	    }
+	}
+	if(filled > 0) //the last line has no end
+	    feed(buffer,0,filled,base);
+	return endBulk(base+filled);
+    }
+
+    /** Parses the log lines of a buffer, from its position to its limit
+     *
+     * The buffer may be a memory mapped region of a file. The lines are
+     * read like parse(InputStream) reads them, and the offsets of the
+     * errors are counted from the position. The position is moved to
+     * the limit.
+     *
+     * @param buffer the buffer
+     * @return the number of lines read
+     * @throws LogParseException when a line cannot be parsed
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long parse(ByteBuffer buffer)
+    throws IOException
+    {
+	int size=buffer.remaining();
+	startBulk(size);
+	if(buffer.hasArray()){ //lines read in place
+	    byte[] array=buffer.array();
+	    int first=buffer.arrayOffset()+buffer.position();
+	    int start=feedLines(array,first,first+size,-first);
+	    if(start < first+size) //the last line has no end
+		feed(array,start,first+size,start-first);
+	    buffer.position(buffer.limit());
+	    return endBulk(size);
+	}
+	byte[] block=new byte[64*1024]; //copies of the buffer
+	long base=0; //offset of the block in the buffer
+	int filled=0;
+	while(buffer.hasRemaining()){
+	    int n=Math.min(block.length-filled,buffer.remaining());
+	    buffer.get(block,filled,n);
+	    int start=feedLines(block,0,filled+n,base);
+	    filled+=n;
+	    if(start == 0 && filled == block.length){
+		block=Arrays.copyOf(block,2*block.length); //a very long line
+	    } else{ //keep the incomplete line
+		System.arraycopy(block,start,block,0,filled-start);
+		filled-=start;
+		base+=start;
+	    }
+	}
+	if(filled > 0) //the last line has no end
+	    feed(block,0,filled,base);
+	return endBulk(size);
+    }
+
+    /** Parses the complete lines of some bytes
+     *
+     * @param data the bytes of the input
+     * @param from the start of the first line
+     * @param to the end of the bytes
+     * @param base the offset of data[0] in the input
+     * @return the start of the incomplete line after the last line
+     * end
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private int feedLines(byte[] data, int from, int to, long base)
+    throws LogParseException
+    {
+	int start=from;
+	for(int i=from; i<to; i++){
+	    if(data[i] == '\n'){
+		feed(data,start,i,base+start);
+		start=i+1;
+	    }
+	}
+	return start;
+    }
+
+    /** Starts a bulk parsing
+     *
+     * @param size the size of the input, or -1 if unknown
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void startBulk(long size)
+    {
+	lineNumber=0;
+	nextProgress=0;
+	total=size;
+    }
+
+    /** Ends a bulk parsing
+     *
+     * @param size the number of bytes read
+     * @return the number of lines read
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    long endBulk(long size)
+    {
+	if(progress != null)
+	    progress.progress(lineNumber,size,total);
+	return lineNumber;
+    }
+
+    /** Parses a line of a bulk input
+     *
+     * @param data the bytes of the input
+     * @param start the first byte of the line
+     * @param end the position of the line end
+     * @param offset the position of the line in the input
+     * @throws LogParseException when the line cannot be parsed and
+     * the progress listener does not skip it
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void feed(byte[] data, int start, int end, long offset)
+    throws LogParseException
+    {
+	count(offset);
+	if(end > start && data[end-1] == '\r')
+	    end--;
+	if(end == start)
+	    return; //empty line
+	String line=new String(data,start,end-start);
+	try{
+	    parse(line);
+	} catch(IOException e){
+	    fail(new LogParseException(line,lineNumber,offset,e));
+	} catch(RuntimeException e){
+	    fail(new LogParseException(line,lineNumber,offset,e));
+	}
+    }
+
+    /** Counts a line of a bulk input, reporting the progress every
+     * megabyte
+     *
+     * @param offset the position of the line in the input
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void count(long offset)
+    {
+	if(progress != null && offset >= nextProgress){
+	    progress.progress(lineNumber,offset,total);
+	    nextProgress=offset+(1<<20);
+	}
+	lineNumber++;
+    }
+
+    /** Reports the error of a line of a bulk input
+     *
+     * @param e the error
+     * @throws LogParseException unless the progress listener skips
+     * the line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void fail(LogParseException e)
+    throws LogParseException
+    {
+	if(progress == null || !progress.error(e))
+	    throw e;
+    }
+
     /** Parses a initialization message
      *
      * @param message the init message
@@ -158,73 +749,56 @@ public class LogParser
      * @since 0.2
      *
      */
-    private void parseInit(String message, String params)
+    private void parseInit(MessageKind kind, String message, String params)
     { //parse an initialization command
 	//System.out.println("DEBUG: init message");
 	parsed.setCycle(-1);
 	cycle=-1;
-	n=token_pattern.matcher(params); //this obtains each first level token
-	ArrayList<String> parms= new ArrayList<String>();
-	//String[] parms= new String[];
-	//int parmCounter=0;
-	while(n.find()) {// while there are tokens
-	    for(int i=1;i<=n.groupCount();i++){
-		String tmp;
-		if((tmp = n.group(i)) != null)
-		    parms.add(tmp);
-		//System.out.println("DEBUG: "+tmp);
-		//parms[parmCounter++]=tmp;//save the token
-	    }
-	}
-	n=p_lr.matcher(parms.get(0));
-	if(n.matches()){ //if the first param is the team side
+	ArrayList<String> parms=SExpressionTokenizer.tokens(params); //this obtains each first level token
+	if(isSide(parms.get(0))){ //if the first param is the team side
 	    //then this is the init server message
-	    if(lastType.compareTo("control") == 0){
+	    if(lastType == MessageKind.Category.CONTROL){
 		//if this is the first control in the row
-		ParsingEvent peSwitch=new ParsingEvent(this);
-		for(ParsingEventListener pel:PEListeners) pel.Sensing(peSwitch);
+		fire(ParsingEventMask.SENSING,null);
 	    }
-	    lastType="control";
+	    lastType=MessageKind.Category.CONTROL;
 	    parsed.setSensor(message);
 	    parsed.setParam("team_side",parms.get(0));
-	    if(message.compareTo("init") == 0){ //if it is the "init" message
+	    if(kind == MessageKind.INIT){ //if it is the "init" message
 		parsed.setParam("player_number",parms.get(1));
 		parsed.setParam("play_mode",parms.get(2));
 	    } else { // otherwise it is the "reconnect" message
 		parsed.setParam("play_mode",parms.get(1));
 	    }
-	    ParsingEvent pe=new ParsingEvent(this,parsed);
-	    for(ParsingEventListener pel:PEListeners) pel.ServerInit(pe);
+	    fire(ParsingEventMask.SERVER_INIT,parsed);
 	} else{ //otherwise it is the client init control command
-	    if(lastType.compareTo("sensor") == 0){
+	    if(lastType == MessageKind.Category.SENSOR){
 		//if this is the first control in the row
-		ParsingEvent peSwitch=new ParsingEvent(this);
-		for(ParsingEventListener pel:PEListeners) pel.Controling(peSwitch);
+		fire(ParsingEventMask.CONTROLING,null);
 	    }
-	    lastType="control";
+	    lastType=MessageKind.Category.CONTROL;
 	    parsed.setControl(message);
-	    parsed.setParam("team_name",p_quote.matcher(parms.get(0)).replaceAll(""));
+	    parsed.setParam("team_name",parms.get(0).replace("\"",""));
 	    //System.out.println("DEBUG 2: "+parms.get(0));
-	    if(message.compareTo("init") == 0){ //if it is the "init" message
+	    if(kind == MessageKind.INIT){ //if it is the "init" message
 		parsed.setParam("goalie","0");
 		for(int i=1; i<parms.size();i++){
-		    o=simple_control_pattern.matcher(parms.get(i));
-		    p=var_value_p.matcher(parms.get(i));
+		    String flag=SExpressionTokenizer.simpleCommand(parms.get(i));
+		    String[] var;
 		    //System.out.println("DEBUG 3: "+parms.get(i));
-		    if(o.matches()) {// if it is the goalie flag
-			if(o.group(1).compareTo("goalie") == 0)
+		    if(flag != null) {// if it is the goalie flag
+			if(flag.compareTo("goalie") == 0)
 			    parsed.setParam("goalie","1");
 		    }
-		    else if(p.matches()){
-			if(p.group(1).compareTo("version") == 0)
-			    parsed.setParam("protocol_version",p.group(2));
+		    else if((var=SExpressionTokenizer.varValue(parms.get(i))) != null){
+			if(var[0].compareTo("version") == 0)
+			    parsed.setParam("protocol_version",var[1]);
 		    }
 		}
 	    } else { // otherwise it is the "reconnect" message
 		parsed.setParam("player_number",parms.get(1));
 	    }
-	    ParsingEvent pe=new ParsingEvent(this,parsed);
-	    for(ParsingEventListener pel:PEListeners) pel.ClientInit(pe);
+	    fire(ParsingEventMask.CLIENT_INIT,parsed);
 	}
     }
 
@@ -237,69 +811,230 @@ public class LogParser
      * @since 0.2
      *
      */
-    private void parseControl(String message, String params)
+    private void parseControl(MessageKind kind, String message, String params)
     { //parse a control command
-	if(lastType.compareTo("sensor") == 0){
-	    //if this is the first control in the row
-	    ParsingEvent peSwitch=new ParsingEvent(this);
-	    for(ParsingEventListener pel:PEListeners) pel.Controling(peSwitch);
-	}
-	lastType="control";
-	parsed.setControl(message);
-	n=token_pattern.matcher(params); //this obtains each token
-	ArrayList<String> parms= new ArrayList<String>();
-	while(n.find()) {// while there are tokens
-	    for(int i=1;i<=n.groupCount();i++){
-		String tmp;
-		if((tmp = n.group(i)) != null)
-		    parms.add(tmp);
-		    //parms[parmCounter++]=tmp;//save the token
-	    }
+	startControl(kind,message);
+	int event=kind.event;
+	if(!decodes(event))
+	    return; //nobody wants this command
+	if(parsed != general){ //dash, kick or turn
+	    decodeTyped((TypedMessage)parsed,params);
+	    fire(event,parsed);
+	    return;
 	}
-	if(message.compareTo("catch") == 0){ //if it is the "catch" command
+	ArrayList<String> parms=SExpressionTokenizer.tokens(params); //this obtains each token
+	switch(kind){
+	case CATCH: //if it is the "catch" command
 	    parsed.setParam("direction",parms.get(0));
-	    ParsingEvent pe=new ParsingEvent(this,parsed);
-	    for(ParsingEventListener pel:PEListeners) pel.Catch(pe);
-	} else if(message.compareTo("change_view") == 0){ //if it is the "change_view" commadn
+	    break;
+	case CHANGE_VIEW: //if it is the "change_view" commadn
 	    parsed.setParam("change_view_w",parms.get(0));
 	    parsed.setParam("change_view_q",parms.get(1));
-	    ParsingEvent pe=new ParsingEvent(this,parsed);
-	    for(ParsingEventListener pel:PEListeners) pel.ChangeView(pe);
-	} else if(message.compareTo("dash") == 0){ //if it is the "dash" command
-	    parsed.setParam("power",parms.get(0));
-	    ParsingEvent pe=new ParsingEvent(this,parsed);
-	    for(ParsingEventListener pel:PEListeners) pel.Dash(pe);
-	} else if(message.compareTo("kick") == 0){ //if it is the "kick" command
-	    parsed.setParam("power",parms.get(0));
-	    parsed.setParam("direction",parms.get(1));
-	    ParsingEvent pe=new ParsingEvent(this,parsed);
-	    for(ParsingEventListener pel:PEListeners) pel.Kick(pe);
-	} else if(message.compareTo("move") == 0){ //if it is the "move" command
+	    break;
+	case MOVE: //if it is the "move" command
 	    parsed.setParam("x",parms.get(0));
 	    parsed.setParam("y",parms.get(1));
-	    ParsingEvent pe=new ParsingEvent(this,parsed);
-	    for(ParsingEventListener pel:PEListeners) pel.Move(pe);
-	} else if(message.compareTo("say") == 0){ //if it is the "say" command
+	    break;
+	case SAY: //if it is the "say" command
 	    parsed.setParam("say",parms.get(0));
-	    ParsingEvent pe=new ParsingEvent(this,parsed);
-	    for(ParsingEventListener pel:PEListeners) pel.Say(pe);
-	} else if(message.compareTo("turn") == 0){ //if it is the "turn" command
-	    parsed.setParam("direction",parms.get(0));
-	    ParsingEvent pe=new ParsingEvent(this,parsed);
-	    for(ParsingEventListener pel:PEListeners) pel.Turn(pe);
-	} else if(message.compareTo("turn_neck") == 0){ //if it is the "turn_neck" command
+	    break;
+	case TURN_NECK: //if it is the "turn_neck" command
 	    parsed.setParam("neck_angle",parms.get(0));
-	    ParsingEvent pe=new ParsingEvent(this,parsed);
-	    for(ParsingEventListener pel:PEListeners) pel.TurnNeck(pe);
-	} else {/*other control messages: attentionto*/
-	    ParsingEvent pe=new ParsingEvent(this,parsed);
-	    for(ParsingEventListener pel:PEListeners) pel.OtherControl(pe);
+	    break;
+	default: /*other control messages: attentionto*/
+	    break;
 	}
+	fire(event,parsed);
+
+    }
 
+    /** Starts a control command: sends the CONTROLING event if it is
+     * the first control in the row, and selects the ParsedLine of the
+     * command
+     *
+     * @param kind the control action
+     * @param message the control action, as written in the line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void startControl(MessageKind kind, String message)
+    {
+	if(lastType == MessageKind.Category.SENSOR){
+	    //if this is the first control in the row
+	    fire(ParsingEventMask.CONTROLING,null);
+	}
+	lastType=MessageKind.Category.CONTROL;
+	selectTyped(kind);
+	parsed.setControl(message);
+    }
+
+    /** Starts a sensor message: sends the SENSING event if it is the
+     * first sensor in the row, and selects the ParsedLine of the
+     * message
+     *
+     * @param kind the sensor message
+     * @param message the sensor message, as written in the line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void startSensor(MessageKind kind, String message)
+    {
+	if(lastType == MessageKind.Category.CONTROL){
+	    //if this is the first sensor in the row
+	    fire(ParsingEventMask.SENSING,null);
+	}
+	lastType=MessageKind.Category.SENSOR;
+	selectTyped(kind);
+	parsed.setSensor(message);
+    }
+
+    /** Starts a dash, kick or turn command read from a binary log
+     *
+     * @param kind the control action
+     * @return the typed message of the command, to be filled
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    TypedMessage control(MessageKind kind)
+    {
+	startControl(kind,kind.word);
+	return (TypedMessage)parsed;
+    }
+
+    /** Starts a see or sense_body message read from a binary log
+     *
+     * @param kind the sensor message
+     * @param c the game time of the message
+     * @return the typed message of the message, to be filled
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    TypedMessage sensor(MessageKind kind, int c)
+    {
+	startSensor(kind,kind.word);
+	cycle=c;
+	parsed.setCycle(cycle);
+	return (TypedMessage)parsed;
+    }
+
+    /** Sends the SEE_RECEIVED event of the see message being parsed
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void seeReceived()
+    {
+	if(retainLines) //the see message is not complete yet
+	    fire(ParsingEventMask.SEE_RECEIVED,new ParsedLine(cycle,"sensor",MessageKind.SEE.word));
+	else
+	    fire(ParsingEventMask.SEE_RECEIVED,seeMessage);
+    }
+
+    /** Sends the event of an object added to the see message being
+     * parsed, if it is wanted
+     *
+     * @param index the index of the object in the see message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void seen(int index)
+    {
+	int event=objectEvents[seeMessage.getKind(index)];
+	if(wants(event))
+	    send(event,objectEvent(index));
+    }
+
+    /** Decodes the parameters of a typed message now, or keeps them
+     * for later when decoding lazily
+     *
+     * @param typed the typed message
+     * @param text the parameters, as written in the line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void decodeTyped(TypedMessage typed, String text)
+    {
+	if(lazy)
+	    typed.defer(text);
+	else
+	    typed.decode(text);
+    }
+
+    /** Parses the rest of the line into the typed message of its main
+     * message, if it has one
+     *
+     * @param kind the main message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void selectTyped(MessageKind kind)
+    {
+	TypedMessage typed=retainLines ? renew(kind) : typedMessages.get(kind);
+	if(typed == null && !retainLines && (typed=renew(kind)) != null)
+	    typedMessages.put(kind,typed); //the first line of this kind
+	if(typed != null){
+	    typed.reset(cycle);
+	    parsed=typed;
+	}
+    }
+
+    /** Creates a new typed message for a main message
+     *
+     * @param kind the main message
+     * @return the new typed message, or null if the message has none
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private TypedMessage renew(MessageKind kind)
+    {
+	switch(kind){
+	case SEE: return seeMessage=new SeeMessage();
+	case SENSE_BODY: return senseBodyMessage=new SenseBodyMessage();
+	case HEAR: return hearMessage=new HearMessage();
+	case DASH: return dashMessage=new DashMessage();
+	case KICK: return kickMessage=new KickMessage();
+	case TURN: return turnMessage=new TurnMessage();
+	default: return null;
+	}
+    }
+
+    /** Returns the event of a seen object, new or recycled
+     *
+     * @param index the index of the object in the see message
+     * @return the event to send to the object listeners
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private ParsingEvent objectEvent(int index)
+    {
+	if(!recycleObjectEvents)
+	    return new ParsingEvent(source,new SeenObject(seeMessage,index));
+	seenObject.load(seeMessage,index);
+	return objectEvent;
     }
 
     /** Parses a sensorial information message
      *
+     * @param kind the kind of the sensor message
      * @param message the sensor action
      * @param params a string containing the parameters of this message
      *
@@ -307,188 +1042,59 @@ public class LogParser
      * @since 0.2
      *
      */
-    private void parseSensor(String message, String params)
+    private void parseSensor(MessageKind kind, String message, String params)
     throws IOException
     { //parse a sensor message
-	if(lastType.compareTo("control") == 0){
-	    //if this is the first sensor in the row
-	    ParsingEvent peSwitch=new ParsingEvent(this);
-	    for(ParsingEventListener pel:PEListeners) pel.Sensing(peSwitch);
-	}
-	lastType="sensor";
-	parsed.setSensor(message);
-	n=sensor_params_p.matcher(params);
-	if(!n.matches())
-	    if(message.compareTo("ok") !=0)
+	startSensor(kind,message);
+	String[] timeInfo=SExpressionTokenizer.sensorParams(params);
+	if(timeInfo == null)
+	    if(kind != MessageKind.OK)
 		throw new IOException("No time on sensor message:\n"+message+" "+params);
 	    else
 		return;
-	cycle=Integer.parseInt(n.group(1));
-	String info=n.group(2);
+	cycle=Integer.parseInt(timeInfo[0]);
+	String info=timeInfo[1];
 	parsed.setCycle(cycle);
-	if(message.compareTo("hear") == 0){ //if it is a "hear" sensor
-	    n=hear_pattern.matcher(info); //this obtains each token
-	    ArrayList<String> parms=new ArrayList<String>();
-	    while(n.find()) {// while there are tokens
-		for(int i=1;i<=n.groupCount();i++){
-		    String tmp;
-		    if((tmp = n.group(i)) != null)
-			parms.add(tmp);//save the token
-		}
-	    }
-	    parsed.setParam("who",parms.get(0));
-	    parsed.setParam("what",parms.get(1));
-	    ParsingEvent pe=new ParsingEvent(this,parsed);
-	    for(ParsingEventListener pel:PEListeners) pel.Hear(pe);
-	} else if(message.compareTo("score") == 0){ //if it is a "score" sensor
-	    n=token_pattern.matcher(info); //this obtains each token
-	    ArrayList<String> parms=new ArrayList<String>();
-	    while(n.find()) {// while there are tokens
-		for(int i=1;i<=n.groupCount();i++){
-		    String tmp;
-		    if((tmp = n.group(i)) != null)
-			parms.add(tmp);//save the token
-		}
-	    }
+	switch(kind){
+	case HEAR: //if it is a "hear" sensor
+	    if(!decodes(ParsingEventMask.HEAR))
+		return;
+	    decodeTyped(hearMessage,info);
+	    fire(ParsingEventMask.HEAR,parsed);
+	    break;
+	case SCORE: //if it is a "score" sensor
+	    if(!decodes(ParsingEventMask.SCORE))
+		return;
+	    ArrayList<String> parms=SExpressionTokenizer.tokens(info); //this obtains each token
 	    parsed.setParam("our_score",parms.get(0));
 	    parsed.setParam("their_score",parms.get(1));
-	    ParsingEvent pe=new ParsingEvent(this,parsed);
-	    for(ParsingEventListener pel:PEListeners) pel.Score(pe);
-	} else if(message.compareTo("see") == 0){ //if it is a "see" sensor
-	    String[] objects=split_objects_p.split(info);
-	    int objectsCounter=0;
-	    ParsingEvent pePre=new ParsingEvent(this,parsed);
-	    for(ParsingEventListener pel:PEListeners) pel.SeeReceived(pePre);
-	    for(int i=0;i<objects.length;i++){
-		ParsedLine parsedObject=new ParsedLine();
-		n=objects_p.matcher(objects[i]);
-		if(n.matches()){
-		    objectsCounter++;
-		    String objectNumber=Integer.toString(objectsCounter);
-		    String objectName=n.group(1);
-		    String objectInfo=n.group(2);
-		    //get the name parts
-		    String[] nameParts=sep_p.split(objectName,2);
-		    parsed.setParam("type_"+objectNumber,nameParts[0]);
-		    parsedObject.setParam("type",nameParts[0]);
-		    if(nameParts.length > 1){
-			if(p_player.matcher(nameParts[0]).matches()){
-			    String[] playerParts=sep_p.split(nameParts[1]);
-			    switch(playerParts.length){
-			    case 3: if(playerParts[2].compareTo("goalie") == 0){
-				parsed.setParam("goalie_"+objectNumber,"1");
-				parsedObject.setParam("goalie","1");
-			    }
-			    case 2: parsed.setParam("player_number_"+objectNumber,playerParts[1]);
-				parsedObject.setParam("player_number",playerParts[1]);
-			    default:Matcher m_quote=p_quote.matcher(playerParts[0]);
-				parsed.setParam("team_"+objectNumber,m_quote.replaceAll(""));
-				parsedObject.setParam("team",m_quote.replaceAll(""));
-			    }
-			} else if(p_flag.matcher(nameParts[0]).matches()){ //if it is a flag
-			    String[] flagTags=sep_p.split(nameParts[1]);
-			    switch(flagTags.length){
-			    case 1: //it is just the "c"
-				parsedObject.setParam("hp","c");
-				parsedObject.setParam("vp","c");
-				break;
-			    case 2:
-				if(flagTags[0].compareTo("c") == 0){
-				    parsedObject.setParam("hp","c");
-				    parsedObject.setParam("vp",flagTags[1]);
-				} else if(p_lr.matcher(flagTags[0]).matches()){ //if it is l or r
-				    parsedObject.setParam("hp",flagTags[0]);
-				    if(p_tb.matcher(flagTags[1]).matches()){ //if the second token is t or b
-					parsedObject.setParam("vp",flagTags[1]);
-				    } else { //the second token is a zero
-					parsedObject.setParam("vp","c");
-					parsedObject.setParam("flag_number","0");
-				    }
-				} else { //it is t or b followed by a zero
-				    parsedObject.setParam("hp",flagTags[0]);
-				    parsedObject.setParam("vp","c");
-				    parsedObject.setParam("flag_number","0");
-				}
-				break;
-			    case 3:
-				if(p_pg.matcher(flagTags[0]).matches()){ //if it is in a box
-				    parsedObject.setParam("Box",flagTags[0]);
-				    parsedObject.setParam("hp",flagTags[1]);
-				    parsedObject.setParam("vp",flagTags[2]);
-// 				} else if(p_lr.matcher(flagTags[0]).matches()){ //if it is l or r
-// 				    parsedObject.setParam("hp",flagTags[0]);
-// 				    parsedObject.setParam("vp",flagTags[1]);
-// 				    parsedObject.setParam("flag_number",flagTags[2]);
-				} else { //it is t or b followed by l or r and a number
-				    parsedObject.setParam("hp",flagTags[0]);
-				    parsedObject.setParam("vp",flagTags[1]);
-				    parsedObject.setParam("flag_number",flagTags[2]);
-				}
-			    }
-			}
-			else
-			    parsed.setParam("name_"+objectNumber,nameParts[1]);
-			    parsedObject.setParam("name",nameParts[1]);
-		    }
-		    //get the info parts
-		    String[] infoParts=sep_p.split(objectInfo);
-		    switch(infoParts.length){
-		    case 6: parsed.setParam("head_dir_"+objectNumber,infoParts[5]);
-			parsedObject.setParam("head_dir",infoParts[5]);
-		    case 5: parsed.setParam("body_dir_"+objectNumber,infoParts[4]);
-			parsedObject.setParam("body_dir",infoParts[4]);
-		    case 4: parsed.setParam("dir_change_"+objectNumber,infoParts[3]);
-			parsedObject.setParam("dir_change",infoParts[3]);
-		    case 3: parsed.setParam("dist_change_"+objectNumber,infoParts[2]);
-			parsedObject.setParam("dist_change",infoParts[2]);
-		    case 2: parsed.setParam("direction_"+objectNumber,infoParts[1]);
-			parsedObject.setParam("direction",infoParts[1]);
-			parsed.setParam("distance_"+objectNumber,infoParts[0]);
-			parsedObject.setParam("distance",infoParts[0]);
-			break;
-		    default: parsed.setParam("direction_"+objectNumber,infoParts[0]);
-			parsedObject.setParam("direction",infoParts[0]);
-			break;
-		    }
-		    //cast the corresponding event
-		    ParsingEvent peObj=new ParsingEvent(this,parsedObject);
-		    if(p_player.matcher(nameParts[0]).matches())
-			for(ParsingEventListener pel:PEListeners) pel.Player(peObj);
-		    if(p_ball.matcher(nameParts[0]).matches())
-			for(ParsingEventListener pel:PEListeners) pel.Ball(peObj);
-		    if(p_flag.matcher(nameParts[0]).matches())
-			for(ParsingEventListener pel:PEListeners) pel.Flag(peObj);
-		    if(p_line.matcher(nameParts[0]).matches())
-			for(ParsingEventListener pel:PEListeners) pel.Line(peObj);
-		    if(p_goal.matcher(nameParts[0]).matches())
-			for(ParsingEventListener pel:PEListeners) pel.Goal(peObj);
-		} else {}
-	    }
-	    parsed.setParam("objects",Integer.toString(objectsCounter)); //number of seen objects
-	    ParsingEvent pe=new ParsingEvent(this,parsed);
-	    for(ParsingEventListener pel:PEListeners) pel.SeeParsed(pe);
-
-	} else if(message.compareTo("sense_body") == 0){ //if it is a "sense_body" sensor
-	    String[] attr=split_objects_p.split(info); //this may fail because the sense_body has more attributes than specified. Hopefully, it won't matter
-	    for(int i=0; i<attr.length; i++) {
-		String[] splitted=sep_p.split(attr[i]);
-		if(splitted[0].compareTo("view_mode") == 0){ //
-		    parsed.setParam("view_q",splitted[1]);
-		    parsed.setParam("view_w",splitted[2]);
-		} else if(splitted[0].compareTo("stamina") == 0){ //
-		    parsed.setParam("stamina",splitted[1]);
-		    parsed.setParam("effort",splitted[2]);
-		} else if(splitted[0].compareTo("speed") == 0){ //
-		    parsed.setParam("speed",splitted[1]);
-		    parsed.setParam("direction",splitted[2]);
-		} else if(splitted[0].compareTo("head_angle") == 0){ //
-		    parsed.setParam("head_direction",splitted[1]);
-		} else {//ignore anything else
+	    fire(ParsingEventMask.SCORE,parsed);
+	    break;
+	case SEE: //if it is a "see" sensor
+	    seeReceived();
+	    if(wants(ParsingEventMask.OBJECTS)){ //the objects are sent one by one
+		String[] objects=SExpressionTokenizer.splitObjects(info);
+		for(int i=0;i<objects.length;i++){
+		    String[] object=SExpressionTokenizer.object(objects[i]);
+		    if(object != null) //cast the corresponding event
+			seen(seeMessage.addObject(object[0],object[1]));
 		}
-	    }
-	    ParsingEvent pe=new ParsingEvent(this,parsed);
-	    for(ParsingEventListener pel:PEListeners) pel.SenseBody(pe);
-	} else {}
+		seeMessage.finish(); //number of seen objects
+	    } else if(decodes(ParsingEventMask.SEE_PARSED))
+		decodeTyped(seeMessage,info);
+	    else
+		seeMessage.finish(); //nobody wants the objects
+	    fire(ParsingEventMask.SEE_PARSED,parsed);
+	    break;
+	case SENSE_BODY: //if it is a "sense_body" sensor
+	    if(!decodes(ParsingEventMask.SENSE_BODY))
+		return;
+	    decodeTyped(senseBodyMessage,info);
+	    fire(ParsingEventMask.SENSE_BODY,parsed);
+	    break;
+	default:
+	    break;
+	}
     }
 
     /** Parses match options sent by the server
@@ -505,8 +1111,7 @@ public class LogParser
 	parsed.setSensor(message);
 	parsed.setParam("params",params);
 	parsed.setCycle(-1);
-	ParsingEvent pe=new ParsingEvent(this,parsed);
-	for(ParsingEventListener pel:PEListeners) pel.ServerParams(pe);
+	fire(ParsingEventMask.SERVER_PARAMS,parsed);
     }
 
     /** Parses errors sent by the server
@@ -523,46 +1128,87 @@ public class LogParser
 	parsed.setSensor(message);
 	parsed.setParam("error",params);
 	parsed.setCycle(-2);
-	ParsingEvent pe=new ParsingEvent(this,parsed);
-	for(ParsingEventListener pel:PEListeners) pel.Error(pe);
+	fire(ParsingEventMask.ERROR,parsed);
     }
 
     //===========================================================================
     // Dictionaries
     // TODO document these
-    public static Pattern controls = Pattern.compile("^(?:dash|kick|turn|move|catch|say|change_view|turn_neck|attentionto|ear|clang|change_player_type)$");
-    public static Pattern simple_controls= Pattern.compile("^(?:sense_body|score|bye)$");
-    public static Pattern sensors = Pattern.compile("^(?:hear|see|sense_body|score|ok)$");
-    public static Pattern init = Pattern.compile("^(?:init|reconnect)$");
-    public static Pattern options = Pattern.compile("^(?:server_param|player_param|player_type)$");
-    public static Pattern errors = Pattern.compile("^(?:error|warning)$");
+    public static final Pattern controls = Pattern.compile("^(?:dash|kick|turn|move|catch|say|change_view|turn_neck|attentionto|ear|clang|change_player_type)$");
+    public static final Pattern simple_controls= Pattern.compile("^(?:sense_body|score|bye)$");
+    public static final Pattern sensors = Pattern.compile("^(?:hear|see|sense_body|score|ok)$");
+    public static final Pattern init = Pattern.compile("^(?:init|reconnect)$");
+    public static final Pattern options = Pattern.compile("^(?:server_param|player_param|player_type)$");
+    public static final Pattern errors = Pattern.compile("^(?:error|warning)$");
 
 
     //===========================================================================
     // Patterns
-    public static Pattern line_pattern = Pattern.compile("^\\((\\w+?)\\s+(.*)\\)$"); //(message other_info)
-    public static Pattern simple_control_pattern = Pattern.compile("^\\((\\w+?)\\)$"); //(mesage)
-    public static Pattern token_pattern = Pattern.compile("\\s*([\\w\\.-]+)\\b\\s*|.*?((?:\\([\\.\\(\\w-].*?[\\.\\w\\)-]\\))+?)"); //token|(token token_info+)
-    public static Pattern hear_pattern = Pattern.compile("\\s*([^\\s]+)\\b"); //token
-    public static Pattern var_value_p = Pattern.compile("^\\s*\\(([\\w-]+)\\s+([\\w\\.]+)\\)\\s*$"); //(var value)
-    public static Pattern sensor_params_p = Pattern.compile("\\s*(\\d+)\\s*(.*)"); //time info
-    public static Pattern split_objects_p = Pattern.compile("^\\(|\\)\\s+\\(|\\)$"); //(|) (|)
-    public static Pattern objects_p = Pattern.compile("\\((.*?)\\)\\s+(.*)"); //(Object_Name) Object_Info
-    public static Pattern sep_p = Pattern.compile("\\s");
+    public static final Pattern line_pattern = Pattern.compile("^\\((\\w+?)\\s+(.*)\\)$"); //(message other_info)
+    public static final Pattern simple_control_pattern = Pattern.compile("^\\((\\w+?)\\)$"); //(mesage)
+    public static final Pattern token_pattern = Pattern.compile("\\s*([\\w\\.-]+)\\b\\s*|.*?((?:\\([\\.\\(\\w-].*?[\\.\\w\\)-]\\))+?)"); //token|(token token_info+)
+    public static final Pattern hear_pattern = Pattern.compile("\\s*([^\\s]+)\\b"); //token
+    public static final Pattern var_value_p = Pattern.compile("^\\s*\\(([\\w-]+)\\s+([\\w\\.]+)\\)\\s*$"); //(var value)
+    public static final Pattern sensor_params_p = Pattern.compile("\\s*(\\d+)\\s*(.*)"); //time info
+    public static final Pattern split_objects_p = Pattern.compile("^\\(|\\)\\s+\\(|\\)$"); //(|) (|)
+    public static final Pattern objects_p = Pattern.compile("\\((.*?)\\)\\s+(.*)"); //(Object_Name) Object_Info
+    public static final Pattern sep_p = Pattern.compile("\\s");
     public static final int p_flags = Pattern.CASE_INSENSITIVE;
-    public static Pattern p_player = Pattern.compile("^(player|p)$",p_flags);
-    public static Pattern p_ball = Pattern.compile("^(ball|b)$",p_flags);
-    public static Pattern p_goal = Pattern.compile("^(goal|g)$",p_flags);
-    public static Pattern p_flag = Pattern.compile("^(flag|f)$",p_flags);
-    public static Pattern p_line = Pattern.compile("^(line|l)$",p_flags);
-    public static Pattern p_quote = Pattern.compile("\"");
+    public static final Pattern p_player = Pattern.compile("^(player|p)$",p_flags);
+    public static final Pattern p_ball = Pattern.compile("^(ball|b)$",p_flags);
+    public static final Pattern p_goal = Pattern.compile("^(goal|g)$",p_flags);
+    public static final Pattern p_flag = Pattern.compile("^(flag|f)$",p_flags);
+    public static final Pattern p_line = Pattern.compile("^(line|l)$",p_flags);
+    public static final Pattern p_quote = Pattern.compile("\"");
 //     public static Pattern p_type = Pattern.compile("^(p|g)$");
 //     public static Pattern p_number = Pattern.compile("^\\d{2}$");
-    public static Pattern p_lr = Pattern.compile("^(l|r)$");
-    public static Pattern p_tb = Pattern.compile("^(t|b)$");
-    public static Pattern p_pg = Pattern.compile("^(p|g)$");
+    public static final Pattern p_lr = Pattern.compile("^(l|r)$");
+    public static final Pattern p_tb = Pattern.compile("^(t|b)$");
+    public static final Pattern p_pg = Pattern.compile("^(p|g)$");
 //     public static Pattern p_lrc = Pattern.compile("^(l|r|c)$");
     //===========================================================================
-    // Other private members
-    Matcher m,n,o,p;
+    // Events of the seen objects, by SeeMessage kind
+    private static final int[] objectEvents = {0,ParsingEventMask.PLAYER,ParsingEventMask.BALL,ParsingEventMask.GOAL,ParsingEventMask.FLAG,ParsingEventMask.LINE};
+
+    /** Checks for a field side (p_lr)
+     *
+     * @param s the token
+     * @return true for "l" or "r"
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static boolean isSide(String s)
+    {
+	return s.equals("l") || s.equals("r");
+    }
+
+    /** Returns the kind a log line leaves the parser in, without
+     * parsing the line
+     *
+     * @param line a log line
+     * @return SENSOR after a sensor message, CONTROL after a command
+     * or an init message, and null for the lines that do not change
+     * it (server parameters and errors)
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static MessageKind.Category typeOf(String line)
+    {
+	String[] parts=SExpressionTokenizer.message(line);
+	if(parts == null)
+	    return (SExpressionTokenizer.simpleCommand(line) != null) ? MessageKind.Category.CONTROL : null;
+	MessageKind kind=MessageKind.of(parts[0]);
+	if(kind == null || kind.category == null)
+	    return MessageKind.Category.CONTROL;
+	switch(kind.category){
+	case SENSOR: return MessageKind.Category.SENSOR;
+	case OPTIONS:
+	case ERROR: return null;
+	default: return MessageKind.Category.CONTROL;
+	}
+    }
 }
@@ -0,0 +1,155 @@
+/** MessageKind.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+
+/** Main messages of the log lines.
+ *
+ * Each kind knows how the parser handles its lines: the dictionary
+ * it belongs to, the event of its commands and sensors, and whether
+ * it may come without parameters. The kind of a message name is
+ * found in a perfect hash table built when the class is loaded: the
+ * multiplier of the hash is searched so that no two words share a
+ * slot, so a line is classified with one hash and one comparison
+ * whatever its message.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+enum MessageKind
+{
+    // Initialization
+    INIT("init",Category.INIT,0,false),
+    RECONNECT("reconnect",Category.INIT,0,false),
+    // Options
+    SERVER_PARAM("server_param",Category.OPTIONS,ParsingEventMask.SERVER_PARAMS,false),
+    PLAYER_PARAM("player_param",Category.OPTIONS,ParsingEventMask.SERVER_PARAMS,false),
+    PLAYER_TYPE("player_type",Category.OPTIONS,ParsingEventMask.SERVER_PARAMS,false),
+    // Commands
+    DASH("dash",Category.CONTROL,ParsingEventMask.DASH,false),
+    KICK("kick",Category.CONTROL,ParsingEventMask.KICK,false),
+    TURN("turn",Category.CONTROL,ParsingEventMask.TURN,false),
+    MOVE("move",Category.CONTROL,ParsingEventMask.MOVE,false),
+    CATCH("catch",Category.CONTROL,ParsingEventMask.CATCH,false),
+    SAY("say",Category.CONTROL,ParsingEventMask.SAY,false),
+    CHANGE_VIEW("change_view",Category.CONTROL,ParsingEventMask.CHANGE_VIEW,false),
+    TURN_NECK("turn_neck",Category.CONTROL,ParsingEventMask.TURN_NECK,false),
+    ATTENTIONTO("attentionto",Category.CONTROL,ParsingEventMask.OTHER_CONTROL,false),
+    EAR("ear",Category.CONTROL,ParsingEventMask.OTHER_CONTROL,false),
+    CLANG("clang",Category.CONTROL,ParsingEventMask.OTHER_CONTROL,false),
+    CHANGE_PLAYER_TYPE("change_player_type",Category.CONTROL,ParsingEventMask.OTHER_CONTROL,false),
+    // Sensors, sense_body and score are also simple commands
+    HEAR("hear",Category.SENSOR,ParsingEventMask.HEAR,false),
+    SEE("see",Category.SENSOR,ParsingEventMask.SEE_PARSED,false),
+    SENSE_BODY("sense_body",Category.SENSOR,ParsingEventMask.SENSE_BODY,true),
+    SCORE("score",Category.SENSOR,ParsingEventMask.SCORE,true),
+    OK("ok",Category.SENSOR,0,false),
+    // Errors
+    ERROR("error",Category.ERROR,ParsingEventMask.ERROR,false),
+    WARNING("warning",Category.ERROR,ParsingEventMask.ERROR,false),
+    // Only a simple command
+    BYE("bye",null,ParsingEventMask.SIMPLE_CONTROL,true);
+
+    /** Dictionaries of the messages with parameters
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    enum Category { INIT, OPTIONS, CONTROL, SENSOR, ERROR }
+
+    final String word;  // the message as written in the line
+    final Category category;  // null if it always comes alone
+    final int event;  // event of the message, 0 if it has none of its own
+    final boolean simple;  // may come without parameters, like "(bye)"
+
+    private static int multiplier;  // set by table()
+    private static final MessageKind[] table=table();
+    private static final int shift=Integer.numberOfLeadingZeros(table.length-1);
+
+    /** MessageKind constructor
+     *
+     * @param word the message as written in the line
+     * @param category the dictionary of the message with parameters
+     * @param event the event of the message
+     * @param simple true if the message may come without parameters
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private MessageKind(String word, Category category, int event, boolean simple)
+    {
+	this.word=word;
+	this.category=category;
+	this.event=event;
+	this.simple=simple;
+    }
+
+    /** Returns the kind of a message
+     *
+     * @param word the message as written in the line
+     * @return its kind, or null if it is not a known message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static MessageKind of(String word)
+    {
+	MessageKind kind=table[(word.hashCode()*multiplier) >>> shift];
+	return (kind != null && kind.word.equals(word)) ? kind : null;
+    }
+
+    /** Builds the hash table: starting with twice as many slots as
+     * kinds, odd multipliers are tried until the words do not
+     * collide, and the table is doubled after 4096 tries
+     *
+     * @return the table, the multiplier is left in multiplier
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static MessageKind[] table()
+    {
+	MessageKind[] kinds=values();
+	int bits=Integer.SIZE-Integer.numberOfLeadingZeros(2*kinds.length-1);
+	for(; ; bits++){
+	    multiplier=0x9E3779B9;
+	    for(int tries=0; tries<4096; tries++){
+		MessageKind[] table=new MessageKind[1 << bits];
+		boolean collision=false;
+		for(int i=0; i<kinds.length && !collision; i++){
+		    int index=(kinds[i].word.hashCode()*multiplier) >>> (Integer.SIZE-bits);
+		    collision=(table[index] != null);
+		    table[index]=kinds[i];
+		}
+		if(!collision)
+		    return table;
+		multiplier+=0x3C6EF372; //keeps it odd
+	    }
+	}
+    }
+}
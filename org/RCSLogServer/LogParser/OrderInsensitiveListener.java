@@ -0,0 +1,45 @@
+/** OrderInsensitiveListener.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+
+/** Marker interface for the listeners not needing the events in the
+ * order of the log.
+ *
+ * ParallelLogParser sends the other listeners every event in the
+ * order of the file, after the chunks before it have been parsed. A
+ * listener implementing this interface instead receives the events of
+ * each chunk of the file directly from the thread parsing the chunk:
+ * in order within a chunk, which always starts on a new cycle, but
+ * with the chunks in any order and several chunks at the same time.
+ * Such a listener must then be thread safe (counters, sums, etc.).
+ *
+ * With the sequential LogParser this interface changes nothing.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public interface OrderInsensitiveListener extends ParsingEventListener
+{
+}
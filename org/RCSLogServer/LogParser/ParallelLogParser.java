@@ -0,0 +1,475 @@
+/** ParallelLogParser.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Parses a large log file in parallel chunks.
+ *
+ * The file is cut in chunks of about the chunk size, each starting on
+ * the first see or sense_body message of a new cycle, and the chunks
+ * are parsed by LogParsers running on a fork/join pool. The state a
+ * LogParser carries from line to line is rebuilt at the start of each
+ * chunk: the kind of the last line before the cut (for the Controling
+ * and Sensing events) is found while looking for the cut, and the
+ * cycle is set by the first line of the chunk.
+ *
+ * The listeners receive the same events as from a LogParser parsing
+ * the file line by line, from the thread calling parse(), in the order
+ * of the file. The events of a chunk are kept until the chunks before
+ * it have been sent, and each event has its own ParsedLine. Listeners
+ * implementing OrderInsensitiveListener instead receive the events of
+ * each chunk directly from the thread parsing it, which needs no
+ * memory and no waiting.
+ *
+ * Usage:
+ * <pre>
+ *   ParallelLogParser parser = new ParallelLogParser();
+ *   parser.addPEListener(listener);
+ *   parser.parse("Team_1.lsf");
+ * </pre>
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class ParallelLogParser
+{
+    private ForkJoinPool pool;
+    private int chunkSize;  // approximate size of a chunk, in bytes
+    private ArrayList<ParsingEventListener> PEListeners;
+    private ArrayList<Integer> PEMasks;  // interest masks of the listeners
+    private boolean decodeWanted;  // only decode the messages some listener wants
+    private boolean lazy;  // decode the typed messages when they are read
+
+    /** ParallelLogParser constructor, using the common fork/join pool
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public ParallelLogParser()
+    {
+	this(ForkJoinPool.commonPool());
+    }
+
+    /** ParallelLogParser constructor
+     *
+     * @param pool the pool parsing the chunks
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public ParallelLogParser(ForkJoinPool pool)
+    {
+	this.pool=pool;
+	chunkSize=1<<20;
+	PEListeners = new ArrayList<ParsingEventListener>();
+	PEMasks = new ArrayList<Integer>();
+	decodeWanted=false;
+	lazy=false;
+    }
+
+    /** Registers a new ParsingEventListener
+     *
+     * @param pel the Parsing Event Listener
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void addPEListener(ParsingEventListener pel)
+    {
+	addPEListener(pel,ParsingEventMask.of(pel));
+    }
+
+    /** Registers a new ParsingEventListener for some events only
+     *
+     * @param pel the Parsing Event Listener
+     * @param mask the events wanted, like ParsingEventMask.KICK |
+     * ParsingEventMask.DASH
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void addPEListener(ParsingEventListener pel, int mask)
+    {
+	PEListeners.add(pel);
+	PEMasks.add(mask);
+    }
+
+    /** Removes a ParsingEventListener
+     *
+     * @param pel the Parsing Event Listener
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void removePEListener(ParsingEventListener pel)
+    {
+	int i=PEListeners.indexOf(pel);
+	if(i >= 0){
+	    PEListeners.remove(i);
+	    PEMasks.remove(i);
+	}
+    }
+
+    /** Sets the approximate size of the chunks
+     *
+     * Smaller chunks spread the work better over the pool, but each
+     * cut costs a little. The default is 1 MB.
+     *
+     * @param bytes the size of a chunk, in bytes
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void setChunkSize(int bytes)
+    {
+	chunkSize=Math.max(bytes,1);
+    }
+
+    /** Sets whether the messages nobody wants are decoded (see
+     * LogParser.setDecodeWantedOnly)
+     *
+     * @param wanted true to only decode the wanted messages
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void setDecodeWantedOnly(boolean wanted)
+    {
+	decodeWanted=wanted;
+    }
+
+    /** Sets whether the typed messages are decoded lazily (see
+     * LogParser.setLazyDecoding)
+     *
+     * The lines sent in the order of the file are then decoded by the
+     * thread calling parse(), when the listeners read them.
+     *
+     * @param lazy true to decode lazily
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void setLazyDecoding(boolean lazy)
+    {
+	this.lazy=lazy;
+    }
+
+    /** Parses a log file
+     *
+     * The file is parsed until its end or its first wrong line. The
+     * events of the lines before a wrong line are sent, then its
+     * error is thrown; the order insensitive listeners may also have
+     * received events from later chunks.
+     *
+     * @param filename the name of the log file
+     * @throws IOException when the file cannot be read or a line
+     * cannot be parsed
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void parse(String filename)
+    throws IOException
+    {
+	FileChannel channel=new RandomAccessFile(filename,"r").getChannel();
+	Job job=new Job(channel);
+	ArrayDeque<Chunk> running=new ArrayDeque<Chunk>();
+	int window=2*pool.getParallelism();
+	try{
+	    long length=channel.size();
+	    long start=0;
+	    MessageKind.Category type=MessageKind.Category.SENSOR; //a new LogParser starts after a sensor
+	    while(start < length || !running.isEmpty()){
+		while(start < length && running.size() < window){
+		    Chunk chunk=new Chunk(job,start,type);
+		    findEnd(chunk,length);
+		    pool.execute(chunk);
+		    running.add(chunk);
+		    start=chunk.end;
+		    type=chunk.endType;
+		}
+		Chunk chunk=running.remove();
+		chunk.join();
+		if(chunk.recorder != null)
+		    chunk.recorder.replay(job.ordered,job.orderedMasks);
+		if(chunk.failure instanceof IOException)
+		    throw (IOException)chunk.failure;
+		if(chunk.failure != null)
+		    throw (RuntimeException)chunk.failure;
+	    }
+	} finally{
+	    job.stop.set(true);
+	    for(Chunk chunk:running)
+		chunk.quietlyJoin();
+	    channel.close();
+	}
+    }
+
+    /** Finds the end of a chunk: the first see or sense_body message
+     * of a new cycle after the chunk size, and the kind of the line
+     * before it
+     *
+     * @param chunk the chunk, with its start
+     * @param length the length of the file
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void findEnd(Chunk chunk, long length)
+    throws IOException
+    {
+	chunk.end=length;
+	long position=chunk.start+chunkSize;
+	if(position >= length)
+	    return;
+	byte[] buffer=new byte[64*1024];
+	boolean partial=true; //the first line may have been cut
+	int firstCycle=-1;
+	MessageKind.Category type=null;
+	while(position < length){
+	    int n=read(chunk.job.channel,buffer,position);
+	    int lineStart=0;
+	    for(int i=0; i<n; i++){
+		if(buffer[i] != '\n')
+		    continue;
+		if(partial)
+		    partial=false;
+		else{
+		    String line=line(buffer,lineStart,i);
+		    int cycle=BlockLogReader.cycleOf(line);
+		    if(cycle >= 0 && firstCycle < 0)
+			firstCycle=cycle;
+		    else if(cycle >= 0 && cycle != firstCycle){
+			chunk.end=position+lineStart;
+			chunk.endType=type;
+			return;
+		    }
+		    if(firstCycle >= 0){
+			MessageKind.Category t=LogParser.typeOf(line);
+			if(t != null)
+			    type=t;
+		    }
+		}
+		lineStart=i+1;
+	    }
+	    if(n < buffer.length)
+		return; //the end of the file
+	    if(lineStart == 0)
+		buffer=new byte[2*buffer.length]; //a very long line
+	    position+=lineStart;
+	}
+    }
+
+    /** Reads bytes of a file
+     *
+     * @param channel the file
+     * @param buffer the buffer to fill
+     * @param position the position of the bytes in the file
+     * @return the number of bytes read, less than the buffer length
+     * only at the end of the file
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static int read(FileChannel channel, byte[] buffer, long position)
+    throws IOException
+    {
+	ByteBuffer b=ByteBuffer.wrap(buffer);
+	while(b.hasRemaining())
+	    if(channel.read(b,position+b.position()) < 0)
+		break;
+	return b.position();
+    }
+
+    /** Returns a line of a buffer, without its end
+     *
+     * @param buffer the buffer
+     * @param start the first byte of the line
+     * @param end the position of the line end
+     * @return the line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static String line(byte[] buffer, int start, int end)
+    {
+	if(end > start && buffer[end-1] == '\r')
+	    end--;
+	return new String(buffer,start,end-start);
+    }
+
+    //===========================================================================
+    // Parsing of the chunks
+
+    /** The parsing of one file: its channel, listeners and settings
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private class Job
+    {
+	FileChannel channel;
+	ParsingEventListener[] ordered;  // listeners wanting the file order
+	int[] orderedMasks;
+	int orderedMask;  // events wanted by the ordered listeners
+	ParsingEventListener[] unordered;  // order insensitive listeners
+	int[] unorderedMasks;
+	AtomicBoolean stop;  // set when the parsing ends early
+	ParallelLogParser source;  // the parser reported as the event source
+	boolean decodeWanted;
+	boolean lazy;
+
+	/** Job constructor, taking the listeners and settings of now
+	 *
+	 * @param channel the file to parse
+	 *
+	 * @author NMAI Lab
+	 * @since 0.4
+	 *
+	 */
+	Job(FileChannel channel)
+	{
+	    this.channel=channel;
+	    int nOrdered=0;
+	    for(ParsingEventListener pel:PEListeners)
+		if(!(pel instanceof OrderInsensitiveListener))
+		    nOrdered++;
+	    ordered=new ParsingEventListener[nOrdered];
+	    orderedMasks=new int[nOrdered];
+	    unordered=new ParsingEventListener[PEListeners.size()-nOrdered];
+	    unorderedMasks=new int[unordered.length];
+	    int o=0, u=0;
+	    for(int i=0; i<PEListeners.size(); i++){
+		ParsingEventListener pel=PEListeners.get(i);
+		if(pel instanceof OrderInsensitiveListener){
+		    unordered[u]=pel;
+		    unorderedMasks[u++]=PEMasks.get(i);
+		} else{
+		    ordered[o]=pel;
+		    orderedMask|=PEMasks.get(i);
+		    orderedMasks[o++]=PEMasks.get(i);
+		}
+	    }
+	    stop=new AtomicBoolean(false);
+	    source=ParallelLogParser.this;
+	    decodeWanted=ParallelLogParser.this.decodeWanted;
+	    lazy=ParallelLogParser.this.lazy;
+	}
+    }
+
+    /** A chunk of the file, parsed on the pool
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static class Chunk extends RecursiveAction
+    {
+	private static final long serialVersionUID = 1L;
+
+	Job job;
+	long start;  // position of the first line
+	long end;  // position after the last line
+	MessageKind.Category type;  // kind of the line before the chunk
+	MessageKind.Category endType;  // kind of the last line of the chunk
+	EventRecorder recorder;  // events for the ordered listeners, or null
+	Exception failure;  // error of the first wrong line, or null
+
+	/** Chunk constructor
+	 *
+	 * @param job the parsing of the file
+	 * @param start the position of the first line
+	 * @param type the kind of the line before the chunk
+	 *
+	 * @author NMAI Lab
+	 * @since 0.4
+	 *
+	 */
+	Chunk(Job job, long start, MessageKind.Category type)
+	{
+	    this.job=job;
+	    this.start=start;
+	    this.type=type;
+	}
+
+	/** Parses the lines of the chunk
+	 *
+	 * @author NMAI Lab
+	 * @since 0.4
+	 *
+	 */
+	protected void compute()
+	{
+	    LogParser parser=new LogParser();
+	    parser.setEventSource(job.source);
+	    parser.setLastType(type);
+	    parser.setDecodeWantedOnly(job.decodeWanted);
+	    parser.setLazyDecoding(job.lazy);
+	    for(int i=0; i<job.unordered.length; i++)
+		parser.addPEListener(job.unordered[i],job.unorderedMasks[i]);
+	    if(job.ordered.length > 0){
+		recorder=new EventRecorder();
+		parser.setRetainLines(true);
+		parser.addPEListener(recorder,job.orderedMask);
+	    }
+	    try{
+		byte[] data=new byte[(int)(end-start)];
+		read(job.channel,data,start);
+		int lineStart=0;
+		for(int i=0; i<=data.length && !job.stop.get(); i++){
+		    if(i < data.length && data[i] != '\n')
+			continue;
+		    if(i < data.length || i > lineStart) //not after the last line end
+			parser.parse(line(data,lineStart,i));
+		    lineStart=i+1;
+		}
+	    } catch(IOException e){
+		failure=e;
+	    } catch(RuntimeException e){
+		failure=e;
+	    }
+	}
+    }
+}
@@ -212,6 +212,7 @@ public class ParsedLine
      */
     public void setParam(String p, String v)
     {
+	expand();
 	parameters.put(p,v);
     }
 
@@ -226,6 +227,7 @@ public class ParsedLine
      */
     public String getValue(String p)
     {
+	expand();
 	return parameters.get(p);
     }
 
@@ -240,6 +242,7 @@ public class ParsedLine
      */
     public boolean contains(String p)
     {
+	expand();
 	return parameters.containsKey(p);
     }
 
@@ -253,6 +256,7 @@ public class ParsedLine
      */
     public boolean hasParams()
     {
+	expand();
 	return !parameters.isEmpty();
     }
 
@@ -265,6 +269,7 @@ public class ParsedLine
      */
     public int nParams()
     {
+	expand();
 	return parameters.size();
     }
 
@@ -278,9 +283,24 @@ public class ParsedLine
      */
     public Set<String> params()
     {
+	expand();
 	return parameters.keySet();
     }
 
+    /** Fills the parameters before they are read or written.
+     *
+     * A ParsedLine always holds its parameters, so this does nothing.
+     * The typed messages (see TypedMessage) keep their values in fields
+     * and only fill the parameters when they are asked for.
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void expand()
+    {
+    }
+
     /** Sets the game time
      *
      * @param c the game time
@@ -95,4 +95,22 @@ public class ParsingEvent extends EventObject
     {
 	return line.getValue(paramName);
     }
+
+    /** Gets the ParsedLine enclosed.
+     *
+     * For the messages with a typed version (see, sense_body, hear,
+     * dash, kick, turn and the seen objects) it is a TypedMessage
+     * subclass, like SeeMessage, giving the values without parsing
+     * the strings again.
+     *
+     * @return the ParsedLine, or null if the event has none
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public ParsedLine getParsedLine()
+    {
+	return line;
+    }
 }
@@ -28,7 +28,9 @@ package org.RCSLogServer.LogParser;
  * This adapter contains all the methods for listeners of Parsing
  * Events as indicated on the ParsingEventListener interface.
  *
- * Use it as a frame for building a ParsingEventListeners.
+ * Use it as a frame for building a ParsingEventListeners. The
+ * LogParser only sends a listener built this way the events of the
+ * methods it overrides (see ParsingEventMask).
  *
  * @author Edgar Acosta
  * @since 0.3
@@ -0,0 +1,142 @@
+/** ParsingEventMask.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+import java.lang.reflect.Method;
+
+
+/** Interest masks of the ParsingEventListeners.
+ *
+ * Each method of ParsingEventListener has a bit. A listener registers
+ * with the mask of the events it wants (see
+ * LogParser.addPEListener(ParsingEventListener, int)), or the mask is
+ * found from the methods its class overrides from
+ * ParsingEventListenerAdapter. The LogParser does not build the events
+ * nobody wants, and can skip decoding the messages nobody wants.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public final class ParsingEventMask
+{
+    //Server messages
+    public static final int SERVER_INIT=1<<0;
+    public static final int HEAR=1<<1;
+    public static final int SCORE=1<<2;
+    public static final int SEE_RECEIVED=1<<3;
+    public static final int SEE_PARSED=1<<4;
+    public static final int SENSE_BODY=1<<5;
+    public static final int ERROR=1<<6;
+    public static final int SERVER_PARAMS=1<<7;
+    public static final int CONTROLING=1<<8;
+    public static final int SENSING=1<<9;
+
+    //Objects in the field
+    public static final int PLAYER=1<<10;
+    public static final int BALL=1<<11;
+    public static final int FLAG=1<<12;
+    public static final int LINE=1<<13;
+    public static final int GOAL=1<<14;
+
+    //Client messages
+    public static final int CLIENT_INIT=1<<15;
+    public static final int CATCH=1<<16;
+    public static final int CHANGE_VIEW=1<<17;
+    public static final int DASH=1<<18;
+    public static final int KICK=1<<19;
+    public static final int MOVE=1<<20;
+    public static final int SAY=1<<21;
+    public static final int TURN=1<<22;
+    public static final int TURN_NECK=1<<23;
+    public static final int SIMPLE_CONTROL=1<<24;
+    public static final int OTHER_CONTROL=1<<25;
+
+    /** All the objects of a see message */
+    public static final int OBJECTS=PLAYER|BALL|FLAG|LINE|GOAL;
+
+    /** All the events */
+    public static final int ALL=(1<<26)-1;
+
+    /** Number of events */
+    static final int COUNT=26;
+
+    // Listener methods, by bit
+    private static final String[] methods={
+	"ServerInit","Hear","Score","SeeReceived","SeeParsed","SenseBody","Error","ServerParams","Controling","Sensing",
+	"Player","Ball","Flag","Line","Goal",
+	"ClientInit","Catch","ChangeView","Dash","Kick","Move","Say","Turn","TurnNeck","SimpleControl","OtherControl"
+    };
+
+    // Masks by listener class, found once for all the parsers
+    private static final ClassValue<Integer> masks=new ClassValue<Integer>(){
+	protected Integer computeValue(Class<?> type)
+	{
+	    return maskOf(type);
+	}
+    };
+
+    private ParsingEventMask()
+    {
+    }
+
+    /** Finds the events a listener wants: those whose method is not
+     * the empty one of ParsingEventListenerAdapter. The methods of a
+     * listener class are only looked up once.
+     *
+     * @param pel the listener
+     * @return the mask of the events
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static int of(ParsingEventListener pel)
+    {
+	return masks.get(pel.getClass());
+    }
+
+    /** Finds the events the listeners of a class want
+     *
+     * @param type the class of the listeners
+     * @return the mask of the events
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static int maskOf(Class<?> type)
+    {
+	int mask=0;
+	for(int i=0; i<COUNT; i++){
+	    try{
+		Method m=type.getMethod(methods[i],ParsingEvent.class);
+		if(m.getDeclaringClass() != ParsingEventListenerAdapter.class)
+		    mask|=1<<i;
+	    } catch(NoSuchMethodException e){
+		mask|=1<<i;
+	    }
+	}
+	return mask;
+    }
+}
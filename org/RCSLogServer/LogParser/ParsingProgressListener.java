@@ -0,0 +1,64 @@
+/** ParsingProgressListener.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+
+/** Interface for the listeners following a bulk parsing.
+ *
+ * The bulk LogParser.parse methods (file, stream or buffer) tell this
+ * listener how far they are, about every megabyte and at the end, and
+ * let it decide what to do with the lines that cannot be parsed.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public interface ParsingProgressListener {
+
+    /** Progress of the parsing
+     *
+     * @param lines the number of lines read
+     * @param bytes the number of bytes read
+     * @param total the size of the input, or -1 for a stream
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void progress(long lines, long bytes, long total);
+
+    /** Line error
+     *
+     * This method is called when a line cannot be parsed, or a
+     * listener failed on it.
+     *
+     * @param e the error, with the line and its position
+     * @return true to go on with the next line, false to stop the
+     * parsing and throw the error
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public boolean error(LogParseException e);
+}
@@ -0,0 +1,738 @@
+/** SExpressionTokenizer.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+import java.util.*;
+
+
+/**
+ * Character level scanning of the log lines.
+ *
+ * The LogParser used to cut the lines with the regular expressions
+ * defined as its public Patterns. These methods do the same cuts in a
+ * single pass over the characters, without java.util.regex, and give
+ * exactly the same tokens, including for the odd inputs: each method
+ * names the Pattern it stands for. As in java.util.regex, \w, \d and
+ * \s only stand for ASCII characters, while word boundaries follow
+ * Character.isLetterOrDigit.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+final class SExpressionTokenizer
+{
+    private SExpressionTokenizer()
+    {
+    }
+
+    /** Checks for a word character (\w)
+     *
+     * @param c the character
+     * @return true for a letter, a digit or an underscore
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static boolean isWordChar(char c)
+    {
+	return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /** Checks for a white space character (\s)
+     *
+     * @param c the character
+     * @return true for a space, a tab, a line break, a vertical tab or
+     * a form feed
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static boolean isSpace(char c)
+    {
+	return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /** Checks for a character that a regex dot does not match
+     *
+     * @param c the character
+     * @return true for a line terminator
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static boolean isLineTerminator(char c)
+    {
+	return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /** Checks for the end of a text, as the $ of the Patterns does:
+     * the very end, or before a line terminator ending the text
+     *
+     * @param s the text
+     * @param i the position
+     * @return true if the position ends the text
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static boolean isEnd(String s, int i)
+    {
+	int len = s.length();
+	if (i == len)
+	    return true;
+	if (i == len - 1)
+	    return isLineTerminator(s.charAt(i));
+	return i == len - 2 && s.charAt(i) == '\r' && s.charAt(i + 1) == '\n';
+    }
+
+    /** Skips word characters
+     *
+     * @param s the text
+     * @param i the first position
+     * @param end the end of the text to scan
+     * @return the position of the first other character, or end
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static int skipWord(String s, int i, int end)
+    {
+	while (i < end && isWordChar(s.charAt(i)))
+	    i++;
+	return i;
+    }
+
+    /** Skips white space
+     *
+     * @param s the text
+     * @param i the first position
+     * @param end the end of the text to scan
+     * @return the position of the first other character, or end
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static int skipSpaces(String s, int i, int end)
+    {
+	while (i < end && isSpace(s.charAt(i)))
+	    i++;
+	return i;
+    }
+
+    /** Skips ASCII digits (\d)
+     *
+     * @param s the text
+     * @param i the first position
+     * @param end the end of the text to scan
+     * @return the position of the first other character, or end
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static int skipDigits(String s, int i, int end)
+    {
+	while (i < end && s.charAt(i) >= '0' && s.charAt(i) <= '9')
+	    i++;
+	return i;
+    }
+
+    /** Checks for line terminators
+     *
+     * @param s the text
+     * @param i the first position
+     * @param end the end of the text to scan
+     * @return true if a regex dot would not match all the characters
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static boolean hasLineTerminator(String s, int i, int end)
+    {
+	for (; i < end; i++)
+	    if (isLineTerminator(s.charAt(i)))
+		return true;
+	return false;
+    }
+
+    /** Compares ignoring the case of ASCII letters, as the
+     * CASE_INSENSITIVE Patterns do
+     *
+     * @param s the text
+     * @param lower the expected text, in lower case
+     * @return true if they match
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static boolean equalsIgnoreCase(String s, String lower)
+    {
+	if (s.length() != lower.length())
+	    return false;
+	for (int i = 0; i < s.length(); i++) {
+	    char c = s.charAt(i);
+	    if (c >= 'A' && c <= 'Z')
+		c += 'a' - 'A';
+	    if (c != lower.charAt(i))
+		return false;
+	}
+	return true;
+    }
+
+    /** Checks for an object kind: the full name or its initial, in any
+     * case (LogParser.p_player, p_ball, p_goal, p_flag, p_line)
+     *
+     * @param s the first part of an object name
+     * @param kind the full name of the kind, in lower case
+     * @return true if the name is of this kind
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static boolean isKind(String s, String kind)
+    {
+	return equalsIgnoreCase(s, kind) || equalsIgnoreCase(s, kind.substring(0, 1));
+    }
+
+    /** Checks for a word boundary (\b) in a text
+     *
+     * @param s the text
+     * @param i the position
+     * @return true if exactly one side of the position is a word
+     * character
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static boolean isBoundary(String s, int i)
+    {
+	boolean left = false;
+	boolean right = false;
+	if (i > 0) {
+	    int c = s.codePointBefore(i);
+	    left = isBoundaryWord(c) || (Character.getType(c) == Character.NON_SPACING_MARK && hasBaseCharacter(s, i - 1));
+	}
+	if (i < s.length()) {
+	    int c = s.codePointAt(i);
+	    right = isBoundaryWord(c) || (Character.getType(c) == Character.NON_SPACING_MARK && hasBaseCharacter(s, i));
+	}
+	return left ^ right;
+    }
+
+    /** Checks for a word character, as word boundaries see it
+     *
+     * @param c the code point
+     * @return true for a letter, a digit or an underscore, in any script
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static boolean isBoundaryWord(int c)
+    {
+	return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    /** Checks whether a combining mark follows a letter or a digit
+     *
+     * @param s the text
+     * @param i the position of the mark
+     * @return true if the marks before it start with a letter or digit
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static boolean hasBaseCharacter(String s, int i)
+    {
+	for (int x = i; x >= 0; x--) {
+	    int c = s.codePointAt(x);
+	    if (Character.isLetterOrDigit(c))
+		return true;
+	    if (Character.getType(c) != Character.NON_SPACING_MARK)
+		return false;
+	}
+	return false;
+    }
+
+    /** Steps back one code point
+     *
+     * @param s the text
+     * @param i a position
+     * @return the position of the code point before
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static int previous(String s, int i)
+    {
+	if (i >= 2 && Character.isLowSurrogate(s.charAt(i - 1)) && Character.isHighSurrogate(s.charAt(i - 2)))
+	    return i - 2;
+	return i - 1;
+    }
+
+    /** Checks for a character of a simple token ([\w\.-])
+     *
+     * @param c the character
+     * @return true for a word character, a dot or a dash
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static boolean isTokenChar(char c)
+    {
+	return isWordChar(c) || c == '.' || c == '-';
+    }
+
+    /** Cuts a log line into its message and its parameters
+     * (LogParser.line_pattern)
+     *
+     * @param line the log line, like "(dash 100)"
+     * @return the message and the parameters, or null if the line has
+     * no parameters
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static String[] message(String line)
+    {
+	int last = line.length() - 1;
+	if (last < 2 || line.charAt(0) != '(' || line.charAt(last) != ')')
+	    return null;
+	int word_end = skipWord(line, 1, last);
+	if (word_end == 1 || !isSpace(line.charAt(word_end)))
+	    return null;
+	int params = skipSpaces(line, word_end, last);
+	if (hasLineTerminator(line, params, last))
+	    return null;
+	return new String[] { line.substring(1, word_end), line.substring(params, last) };
+    }
+
+    /** Cuts the parameters of a sensor message into its time and its
+     * information (LogParser.sensor_params_p)
+     *
+     * @param params the parameters, like "12 (b) 10.5 -3"
+     * @return the time and the information, or null if there is no time
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static String[] sensorParams(String params)
+    {
+	int len = params.length();
+	int time = skipSpaces(params, 0, len);
+	int time_end = skipDigits(params, time, len);
+	if (time_end == time)
+	    return null;
+	int info = skipSpaces(params, time_end, len);
+	if (hasLineTerminator(params, info, len))
+	    return null;
+	return new String[] { params.substring(time, time_end), params.substring(info) };
+    }
+
+    /** Cuts the first level tokens of the parameters of a message
+     * (LogParser.token_pattern): the simple tokens, and the
+     * parenthesized groups, up to the first closing parenthesis
+     *
+     * @param s the parameters
+     * @return the tokens
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static ArrayList<String> tokens(String s)
+    {
+	ArrayList<String> list = new ArrayList<String>();
+	int len = s.length();
+	int group = -1;  // start of the next group, -1 if none
+	int group_end = -1;  // closing parenthesis of that group
+	int stop = -1;  // the next group is known up to this position
+	int start = 0;
+	while (start < len) {
+	    // a simple token, with the white space around it
+	    int k = skipSpaces(s, start, len);
+	    int r = k;
+	    while (r < len && isTokenChar(s.charAt(r)))
+		r++;
+	    int e = r;
+	    while (e > k && !isBoundary(s, e))
+		e--;
+	    if (e > k) {
+		list.add(s.substring(k, e));
+		start = skipSpaces(s, e, len);
+		continue;
+	    }
+
+	    // otherwise the first group from here on
+	    if (start > stop) {
+		group = -1;
+		stop = len;
+		for (int i = start; i + 3 < len; i++) {
+		    char c = s.charAt(i);
+		    if (isLineTerminator(c)) {
+			stop = i;
+			break;
+		    }
+		    if (c != '(' || !isGroupStart(s.charAt(i + 1)))
+			continue;
+		    int j = i + 2;
+		    while (j < len && !(j >= i + 3 && s.charAt(j) == ')' && isGroupEnd(s.charAt(j - 1)))
+			   && !isLineTerminator(s.charAt(j)))
+			j++;
+		    if (j < len && s.charAt(j) == ')') {
+			group = i;
+			group_end = j;
+			stop = j;
+		    } else
+			stop = j;
+		    break;
+		}
+	    }
+	    if (group < 0)
+		start++;
+	    else {
+		list.add(s.substring(group, group_end + 1));
+		start = group_end + 1;
+	    }
+	}
+	return list;
+    }
+
+    /** Checks for the first character of a group ([\.\(\w-])
+     *
+     * @param c the character following the opening parenthesis
+     * @return true if a group can start this way
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static boolean isGroupStart(char c)
+    {
+	return isWordChar(c) || c == '.' || c == '(' || c == '-';
+    }
+
+    /** Checks for the last character of a group ([\.\w\)-])
+     *
+     * @param c the character before the closing parenthesis
+     * @return true if a group can end this way
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static boolean isGroupEnd(char c)
+    {
+	return isWordChar(c) || c == '.' || c == ')' || c == '-';
+    }
+
+    /** Cuts the words of a hear message (LogParser.hear_pattern): the
+     * runs of non white space characters, cut back to their last word
+     * boundary
+     *
+     * @param s the message
+     * @return the words
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static ArrayList<String> words(String s)
+    {
+	ArrayList<String> list = new ArrayList<String>();
+	int len = s.length();
+	int start = 0;
+	while (start < len) {
+	    int k = skipSpaces(s, start, len);
+	    int r = k;
+	    while (r < len && !isSpace(s.charAt(r)))
+		r++;
+	    int e = r;
+	    while (e > k && !isBoundary(s, e))
+		e = previous(s, e);
+	    if (e > k) {
+		list.add(s.substring(k, e));
+		start = e;
+	    } else {
+		start = Math.max(r, start + 1);
+	    }
+	}
+	return list;
+    }
+
+    /** Cuts a list of parenthesized objects (LogParser.split_objects_p),
+     * as String.split does: on the opening parenthesis, on the closing
+     * parenthesis and on ") (" between the objects
+     *
+     * @param s the list of objects
+     * @return the objects, starting with an empty string if the list
+     * starts with a parenthesis
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static String[] splitObjects(String s)
+    {
+	ArrayList<String> list = new ArrayList<String>();
+	int len = s.length();
+	int index = 0;
+	boolean matched = false;
+	int p = 0;
+	while (p < len) {
+	    int end = -1;
+	    if (p == 0 && s.charAt(0) == '(') {
+		end = 1;
+	    } else if (s.charAt(p) == ')') {
+		int q = skipSpaces(s, p + 1, len);
+		if (q > p + 1 && q < len && s.charAt(q) == '(')
+		    end = q + 1;
+		else if (isEnd(s, p + 1))
+		    end = p + 1;
+	    }
+	    if (end < 0) {
+		p++;
+		continue;
+	    }
+	    list.add(s.substring(index, p));
+	    matched = true;
+	    index = end;
+	    p = end;
+	}
+	if (!matched)
+	    return new String[] { s };
+	list.add(s.substring(index));
+	int size = list.size();
+	while (size > 0 && list.get(size - 1).length() == 0)
+	    size--;
+	return list.subList(0, size).toArray(new String[size]);
+    }
+
+    /** Cuts a text on each white space character (LogParser.sep_p), as
+     * String.split does: the empty strings at the end are dropped
+     *
+     * @param s the text
+     * @return the parts
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static String[] splitSpaces(String s)
+    {
+	ArrayList<String> list = null;
+	int len = s.length();
+	int index = 0;
+	for (int p = 0; p < len; p++) {
+	    if (isSpace(s.charAt(p))) {
+		if (list == null)
+		    list = new ArrayList<String>();
+		list.add(s.substring(index, p));
+		index = p + 1;
+	    }
+	}
+	if (list == null)
+	    return new String[] { s };
+	list.add(s.substring(index));
+	int size = list.size();
+	while (size > 0 && list.get(size - 1).length() == 0)
+	    size--;
+	return list.subList(0, size).toArray(new String[size]);
+    }
+
+    /** Cuts a part of a text on each white space character as
+     * splitSpaces(s.substring(from, to)) does, but only gives the
+     * bounds of the parts, so no string is built
+     *
+     * @param s the text
+     * @param from the start of the part to cut
+     * @param to the end of the part to cut
+     * @param bounds receives the start and the end of each part, it
+     * must hold 2 * (to - from + 1) values
+     * @return the number of parts
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static int splitSpaces(String s, int from, int to, int[] bounds)
+    {
+	int n = 0;
+	int index = from;
+	for (int p = from; p < to; p++) {
+	    if (isSpace(s.charAt(p))) {
+		bounds[n++] = index;
+		bounds[n++] = p;
+		index = p + 1;
+	    }
+	}
+	bounds[n++] = index;
+	bounds[n++] = to;
+	if (n == 2)
+	    return 1;
+	while (n > 0 && bounds[n - 1] == bounds[n - 2])
+	    n -= 2;
+	return n / 2;
+    }
+
+    /** Checks that a part of a text is a single plain token, that is
+     * tokens() would return it as it is
+     *
+     * @param s the text
+     * @param from the start of the part
+     * @param to the end of the part
+     * @return true if the part is made of word characters, dots and
+     * dashes, and ends with a word character
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static boolean isPlainToken(String s, int from, int to)
+    {
+	if (from >= to || !isWordChar(s.charAt(to - 1)))
+	    return false;
+	for (int p = from; p < to; p++) {
+	    char c = s.charAt(p);
+	    if (!(isWordChar(c) || c == '.' || c == '-'))
+		return false;
+	}
+	return true;
+    }
+
+    /** Cuts a text on its first white space character, as
+     * LogParser.sep_p.split(s, 2) does
+     *
+     * @param s the text
+     * @return the text before and after the white space, or the text
+     * alone if it has none
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static String[] splitFirstSpace(String s)
+    {
+	for (int p = 0; p < s.length(); p++)
+	    if (isSpace(s.charAt(p)))
+		return new String[] { s.substring(0, p), s.substring(p + 1) };
+	return new String[] { s };
+    }
+
+    /** Cuts a seen object into its name and its information
+     * (LogParser.objects_p)
+     *
+     * @param s the object, like "(b) 10.5 -3"
+     * @return the name and the information, or null if this is not an
+     * object
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static String[] object(String s)
+    {
+	int len = s.length();
+	if (len == 0 || s.charAt(0) != '(')
+	    return null;
+	int terminator = len - 1;  // the information must follow the last line terminator
+	while (terminator >= 0 && !isLineTerminator(s.charAt(terminator)))
+	    terminator--;
+	for (int j = 1; j + 1 < len; j++) {
+	    if (isLineTerminator(s.charAt(j)))
+		return null;
+	    if (s.charAt(j) == ')' && isSpace(s.charAt(j + 1))) {
+		int w = skipSpaces(s, j + 1, len);
+		if (w > terminator)
+		    return new String[] { s.substring(1, j), s.substring(w) };
+	    }
+	}
+	return null;
+    }
+
+    /** Reads a parameterless command like "(goalie)"
+     * (LogParser.simple_control_pattern)
+     *
+     * @param s the token
+     * @return the command name, or null
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static String simpleCommand(String s)
+    {
+	int last = s.length() - 1;
+	if (last < 2 || s.charAt(0) != '(' || s.charAt(last) != ')' || skipWord(s, 1, last) != last)
+	    return null;
+	return s.substring(1, last);
+    }
+
+    /** Reads a variable and its value like "(version 9)"
+     * (LogParser.var_value_p)
+     *
+     * @param s the token
+     * @return the variable name and the value, or null
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static String[] varValue(String s)
+    {
+	int len = s.length();
+	int i = skipSpaces(s, 0, len);
+	if (i >= len || s.charAt(i) != '(')
+	    return null;
+	int name = ++i;
+	while (i < len && (isWordChar(s.charAt(i)) || s.charAt(i) == '-'))
+	    i++;
+	int name_end = i;
+	i = skipSpaces(s, i, len);
+	if (name_end == name || i == name_end)
+	    return null;
+	int value = i;
+	while (i < len && (isWordChar(s.charAt(i)) || s.charAt(i) == '.'))
+	    i++;
+	int value_end = i;
+	if (value_end == value || i >= len || s.charAt(i) != ')' || skipSpaces(s, i + 1, len) != len)
+	    return null;
+	return new String[] { s.substring(name, name_end), s.substring(value, value_end) };
+    }
+}
@@ -0,0 +1,742 @@
+/** SeeMessage.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+
+/** A parsed see message.
+ *
+ * The seen objects are kept in parallel arrays indexed by the order
+ * of the objects in the message: their kind, player team and number,
+ * and the distance, direction, distance change, direction change,
+ * body direction and head direction, as doubles (NaN when the server
+ * did not send them). The ParsedLine parameters hold the same values
+ * with the keys "type_1", "distance_1", etc., and "objects" once the
+ * whole message is parsed.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class SeeMessage extends TypedMessage
+{
+    // Object kinds
+    public static final int OTHER=0;
+    public static final int PLAYER=1;
+    public static final int BALL=2;
+    public static final int GOAL=3;
+    public static final int FLAG=4;
+    public static final int LINE=5;
+
+    private int count;  // number of objects
+    private int filled;  // number of objects already in the parameters
+    private boolean finished;  // true when all the objects are known
+    private String[] names;  // object names, like "f r b 20"
+    private String[] infos;  // object information, like "13.6 -34 0 0", null until built from the values
+    private int[] scales;  // digits after the point of the values, 4 bits each, when the information is built from them
+    private String[] teams;  // player teams, null if not given
+    private int[] kinds;
+    private int[] numbers;  // player numbers, -1 if not given
+    private boolean[] goalies;
+    private int[] infoCounts;  // number of values in the information
+    private double[] distances;
+    private double[] directions;
+    private double[] distChanges;
+    private double[] dirChanges;
+    private double[] bodyDirs;
+    private double[] headDirs;
+
+    /** SeeMessage constructor
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public SeeMessage()
+    {
+	super();
+	allocate(16);
+    }
+
+    /** Adds a seen object
+     *
+     * @param name the object name, like "f r b 20"
+     * @param info the object information, like "13.6 -34 0 0"
+     * @return the index of the object
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    @SuppressWarnings("fallthrough")
+    int addObject(String name, String info)
+    {
+	int i=addName(name);
+	infos[i]=info;
+	// the numbers are read in place, without cutting the information
+	int parts=split(info,0,info.length());
+	infoCounts[i]=parts;
+	distances[i]=Double.NaN;
+	distChanges[i]=Double.NaN;
+	dirChanges[i]=Double.NaN;
+	bodyDirs[i]=Double.NaN;
+	headDirs[i]=Double.NaN;
+	switch(parts){
+	case 6: headDirs[i]=toDouble(info,bounds[10],bounds[11]);
+	    // fall through
+	case 5: bodyDirs[i]=toDouble(info,bounds[8],bounds[9]);
+	    // fall through
+	case 4: dirChanges[i]=toDouble(info,bounds[6],bounds[7]);
+	    // fall through
+	case 3: distChanges[i]=toDouble(info,bounds[4],bounds[5]);
+	    // fall through
+	case 2: directions[i]=toDouble(info,bounds[2],bounds[3]);
+	    distances[i]=toDouble(info,bounds[0],bounds[1]);
+	    break;
+	default: directions[i]=toDouble(info,bounds[0],bounds[1]);
+	    break;
+	}
+	count++;
+	changed();
+	return i;
+    }
+
+    /** Adds a seen object read from a binary log. The name was already
+     * analysed by the see message keeping the names of the log, and the
+     * information is only written when it is asked for.
+     *
+     * @param dictionary the see message holding the name
+     * @param entry the index of the name in the dictionary
+     * @param parts the number of values, from 1 to 6
+     * @param values the values, in the order of the information
+     * @param scales the digits after the point of each value, 4 bits
+     * each
+     * @return the index of the object
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    @SuppressWarnings("fallthrough")
+    int addObject(SeeMessage dictionary, int entry, int parts, double[] values, int scales)
+    {
+	if(count == names.length)
+	    allocate(2*count);
+	int i=count;
+	names[i]=dictionary.names[entry];
+	kinds[i]=dictionary.kinds[entry];
+	teams[i]=dictionary.teams[entry];
+	numbers[i]=dictionary.numbers[entry];
+	goalies[i]=dictionary.goalies[entry];
+	infos[i]=null;
+	this.scales[i]=scales;
+	infoCounts[i]=parts;
+	distances[i]=Double.NaN;
+	distChanges[i]=Double.NaN;
+	dirChanges[i]=Double.NaN;
+	bodyDirs[i]=Double.NaN;
+	headDirs[i]=Double.NaN;
+	switch(parts){
+	case 6: headDirs[i]=values[5];
+	    // fall through
+	case 5: bodyDirs[i]=values[4];
+	    // fall through
+	case 4: dirChanges[i]=values[3];
+	    // fall through
+	case 3: distChanges[i]=values[2];
+	    // fall through
+	case 2: directions[i]=values[1];
+	    distances[i]=values[0];
+	    break;
+	default: directions[i]=values[0];
+	    break;
+	}
+	count++;
+	changed();
+	return i;
+    }
+
+    /** Adds a name to a see message keeping the names of a binary log
+     *
+     * @param name the object name, like "f r b 20"
+     * @return the index of the name
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    int define(String name)
+    {
+	int i=addName(name);
+	infos[i]=null;
+	count++;
+	return i;
+    }
+
+    /** Analyses the name of the next object
+     *
+     * @param name the object name, like "f r b 20"
+     * @return the index of the object
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    @SuppressWarnings("fallthrough")
+    private int addName(String name)
+    {
+	if(count == names.length)
+	    allocate(2*count);
+	int i=count;
+	String[] nameParts=SExpressionTokenizer.splitFirstSpace(name);
+	names[i]=name;
+	kinds[i]=kindOf(nameParts[0]);
+	teams[i]=null;
+	numbers[i]=-1;
+	goalies[i]=false;
+	if(kinds[i] == PLAYER && nameParts.length > 1){
+	    String player=nameParts[1];
+	    switch(split(player,0,player.length())){
+	    case 3: goalies[i]=isPart(player,2,"goalie");
+		// fall through
+	    case 2: try{
+		    numbers[i]=toInt(player,bounds[2],bounds[3]);
+		} catch(NumberFormatException e){
+		    //not a number: the player is known by its team only
+		}
+		// fall through
+	    default: teams[i]=player.substring(bounds[0],bounds[1]).replace("\"","");
+	    }
+	}
+	return i;
+    }
+
+    /** Records that all the objects of the message are known
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void finish()
+    {
+	finished=true;
+	changed();
+    }
+
+    /** Returns the number of seen objects
+     *
+     * @return the number of objects
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public int getObjectCount()
+    {
+	decode();
+	return count;
+    }
+
+    /** Returns the kind of a seen object
+     *
+     * @param i the object index
+     * @return PLAYER, BALL, GOAL, FLAG, LINE or OTHER
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public int getKind(int i)
+    {
+	decode();
+	return kinds[i];
+    }
+
+    /** Returns the name of a seen object
+     *
+     * @param i the object index
+     * @return the name, like "f r b 20"
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String getName(int i)
+    {
+	decode();
+	return names[i];
+    }
+
+    /** Returns the information of a seen object, as written in the line
+     *
+     * @param i the object index
+     * @return the information, like "13.6 -34 0 0"
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String getInfo(int i)
+    {
+	decode();
+	if(infos[i] == null)
+	    infos[i]=infoText(infoCounts[i],scales[i],distances[i],directions[i],distChanges[i],dirChanges[i],bodyDirs[i],headDirs[i]);
+	return infos[i];
+    }
+
+    /** Returns the information of a seen object if it was cut from the
+     * line
+     *
+     * @param i the object index
+     * @return the information, or null if it is built from the values
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    String getCutInfo(int i)
+    {
+	return infos[i];
+    }
+
+    /** Returns the digits after the point of the values of a seen
+     * object read from a binary log
+     *
+     * @param i the object index
+     * @return the digits of each value, 4 bits each
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    int getScales(int i)
+    {
+	return scales[i];
+    }
+
+    /** Writes the information of a seen object from its values
+     *
+     * @param parts the number of values
+     * @param scales the digits after the point of each value, 4 bits
+     * each
+     * @param distance the distance
+     * @param direction the direction
+     * @param distChange the distance change
+     * @param dirChange the direction change
+     * @param bodyDir the body direction
+     * @param headDir the head direction
+     * @return the information, like "13.6 -34 0 0"
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static String infoText(int parts, int scales, double distance, double direction, double distChange, double dirChange, double bodyDir, double headDir)
+    {
+	if(parts == 1)
+	    return toText(direction,scales&15);
+	StringBuilder info=new StringBuilder(8*parts);
+	for(int k=0; k<parts; k++){
+	    double value;
+	    switch(k){
+	    case 0: value=distance; break;
+	    case 1: value=direction; break;
+	    case 2: value=distChange; break;
+	    case 3: value=dirChange; break;
+	    case 4: value=bodyDir; break;
+	    default: value=headDir; break;
+	    }
+	    if(k > 0)
+		info.append(' ');
+	    info.append(toText(value,(scales>>(4*k))&15));
+	}
+	return info.toString();
+    }
+
+    /** Returns the team of a seen player
+     *
+     * @param i the object index
+     * @return the team name, or null if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String getTeam(int i)
+    {
+	decode();
+	return teams[i];
+    }
+
+    /** Returns the number of a seen player
+     *
+     * @param i the object index
+     * @return the player number, or -1 if not given or not a number
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public int getNumber(int i)
+    {
+	decode();
+	return numbers[i];
+    }
+
+    /** Checks whether a seen player is a goalie
+     *
+     * @param i the object index
+     * @return true for a goalie
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public boolean isGoalie(int i)
+    {
+	decode();
+	return goalies[i];
+    }
+
+    /** Returns the number of values in the information of a seen object
+     *
+     * @param i the object index
+     * @return the number of values
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public int getInfoCount(int i)
+    {
+	decode();
+	return infoCounts[i];
+    }
+
+    /** Returns the distance to a seen object
+     *
+     * @param i the object index
+     * @return the distance, or NaN if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getDistance(int i)
+    {
+	decode();
+	return distances[i];
+    }
+
+    /** Returns the direction of a seen object
+     *
+     * @param i the object index
+     * @return the direction, or NaN if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getDirection(int i)
+    {
+	decode();
+	return directions[i];
+    }
+
+    /** Returns the distance change of a seen object
+     *
+     * @param i the object index
+     * @return the distance change, or NaN if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getDistChange(int i)
+    {
+	decode();
+	return distChanges[i];
+    }
+
+    /** Returns the direction change of a seen object
+     *
+     * @param i the object index
+     * @return the direction change, or NaN if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getDirChange(int i)
+    {
+	decode();
+	return dirChanges[i];
+    }
+
+    /** Returns the body direction of a seen player
+     *
+     * @param i the object index
+     * @return the body direction, or NaN if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getBodyDirection(int i)
+    {
+	decode();
+	return bodyDirs[i];
+    }
+
+    /** Returns the head direction of a seen player
+     *
+     * @param i the object index
+     * @return the head direction, or NaN if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getHeadDirection(int i)
+    {
+	decode();
+	return headDirs[i];
+    }
+
+    /** Returns the kind of an object
+     *
+     * @param type the first part of the object name, like "f"
+     * @return PLAYER, BALL, GOAL, FLAG, LINE or OTHER
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static int kindOf(String type)
+    {
+	if(SExpressionTokenizer.isKind(type,"player"))
+	    return PLAYER;
+	if(SExpressionTokenizer.isKind(type,"ball"))
+	    return BALL;
+	if(SExpressionTokenizer.isKind(type,"goal"))
+	    return GOAL;
+	if(SExpressionTokenizer.isKind(type,"flag"))
+	    return FLAG;
+	if(SExpressionTokenizer.isKind(type,"line"))
+	    return LINE;
+	return OTHER;
+    }
+
+    /** Decodes the objects of the message
+     *
+     * @param text the information of the message, after the time
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void decode(String text)
+    {
+	String[] objects=SExpressionTokenizer.splitObjects(text);
+	for(int i=0;i<objects.length;i++){
+	    String[] object=SExpressionTokenizer.object(objects[i]);
+	    if(object != null)
+		addObject(object[0],object[1]);
+	}
+	finish();
+    }
+
+    /** Forgets the objects of the previous message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void clear()
+    {
+	count=0;
+	filled=0;
+	finished=false;
+    }
+
+    /** Puts the objects added since the last time in the parameters
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void fill()
+    {
+	for(; filled<count; filled++)
+	    fillObject(this,names[filled],getInfo(filled),"_"+(filled+1),false);
+	if(finished)
+	    parameters.put("objects",Integer.toString(count)); //number of seen objects
+    }
+
+    /** Puts the parameters of a seen object in a ParsedLine
+     *
+     * @param target the ParsedLine
+     * @param name the object name
+     * @param info the object information
+     * @param suffix the suffix of the keys: "_" and the object
+     * number for the see message, "" for the object itself
+     * @param object true for the object itself, which also gets the
+     * flag position
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    @SuppressWarnings("fallthrough")
+    static void fillObject(ParsedLine target, String name, String info, String suffix, boolean object)
+    {
+	//get the name parts
+	String[] nameParts=SExpressionTokenizer.splitFirstSpace(name);
+	target.parameters.put("type"+suffix,nameParts[0]);
+	if(nameParts.length > 1){
+	    if(SExpressionTokenizer.isKind(nameParts[0],"player")){
+		String[] playerParts=SExpressionTokenizer.splitSpaces(nameParts[1]);
+		switch(playerParts.length){
+		case 3: if(playerParts[2].compareTo("goalie") == 0)
+			target.parameters.put("goalie"+suffix,"1");
+		    // fall through
+		case 2: target.parameters.put("player_number"+suffix,playerParts[1]);
+		    // fall through
+		default: target.parameters.put("team"+suffix,playerParts[0].replace("\"",""));
+		}
+	    } else if(SExpressionTokenizer.isKind(nameParts[0],"flag")){ //if it is a flag
+		if(object)
+		    fillFlag(target,SExpressionTokenizer.splitSpaces(nameParts[1]));
+	    } else if(!object)
+		target.parameters.put("name"+suffix,nameParts[1]);
+	    if(object)
+		target.parameters.put("name",nameParts[1]);
+	}
+	//get the info parts
+	String[] infoParts=SExpressionTokenizer.splitSpaces(info);
+	switch(infoParts.length){
+	case 6: target.parameters.put("head_dir"+suffix,infoParts[5]);
+	    // fall through
+	case 5: target.parameters.put("body_dir"+suffix,infoParts[4]);
+	    // fall through
+	case 4: target.parameters.put("dir_change"+suffix,infoParts[3]);
+	    // fall through
+	case 3: target.parameters.put("dist_change"+suffix,infoParts[2]);
+	    // fall through
+	case 2: target.parameters.put("direction"+suffix,infoParts[1]);
+	    target.parameters.put("distance"+suffix,infoParts[0]);
+	    break;
+	default: target.parameters.put("direction"+suffix,infoParts[0]);
+	    break;
+	}
+    }
+
+    /** Puts the position of a flag in the ParsedLine of the flag
+     *
+     * @param target the ParsedLine
+     * @param flagTags the parts of the flag name after the "f"
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static void fillFlag(ParsedLine target, String[] flagTags)
+    {
+	switch(flagTags.length){
+	case 1: //it is just the "c"
+	    target.parameters.put("hp","c");
+	    target.parameters.put("vp","c");
+	    break;
+	case 2:
+	    if(flagTags[0].compareTo("c") == 0){
+		target.parameters.put("hp","c");
+		target.parameters.put("vp",flagTags[1]);
+	    } else if(flagTags[0].equals("l") || flagTags[0].equals("r")){ //if it is l or r
+		target.parameters.put("hp",flagTags[0]);
+		if(flagTags[1].equals("t") || flagTags[1].equals("b")){ //if the second token is t or b
+		    target.parameters.put("vp",flagTags[1]);
+		} else { //the second token is a zero
+		    target.parameters.put("vp","c");
+		    target.parameters.put("flag_number","0");
+		}
+	    } else { //it is t or b followed by a zero
+		target.parameters.put("hp",flagTags[0]);
+		target.parameters.put("vp","c");
+		target.parameters.put("flag_number","0");
+	    }
+	    break;
+	case 3:
+	    if(flagTags[0].equals("p") || flagTags[0].equals("g")){ //if it is in a box
+		target.parameters.put("Box",flagTags[0]);
+		target.parameters.put("hp",flagTags[1]);
+		target.parameters.put("vp",flagTags[2]);
+	    } else { //it is t or b followed by l or r and a number
+		target.parameters.put("hp",flagTags[0]);
+		target.parameters.put("vp",flagTags[1]);
+		target.parameters.put("flag_number",flagTags[2]);
+	    }
+	}
+    }
+
+    /** Makes room for more objects
+     *
+     * @param size the new capacity
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void allocate(int size)
+    {
+	names=grow(names,new String[size]);
+	infos=grow(infos,new String[size]);
+	scales=grow(scales,new int[size]);
+	teams=grow(teams,new String[size]);
+	kinds=grow(kinds,new int[size]);
+	numbers=grow(numbers,new int[size]);
+	goalies=grow(goalies,new boolean[size]);
+	infoCounts=grow(infoCounts,new int[size]);
+	distances=grow(distances,new double[size]);
+	directions=grow(directions,new double[size]);
+	distChanges=grow(distChanges,new double[size]);
+	dirChanges=grow(dirChanges,new double[size]);
+	bodyDirs=grow(bodyDirs,new double[size]);
+	headDirs=grow(headDirs,new double[size]);
+    }
+
+    /** Copies the objects of an array into a larger one
+     *
+     * @param from the current array, or null
+     * @param to the larger array
+     * @return the larger array
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private <T> T grow(Object from, T to)
+    {
+	if(from != null)
+	    System.arraycopy(from,0,to,0,count);
+	return to;
+    }
+}
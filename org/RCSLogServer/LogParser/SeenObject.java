@@ -0,0 +1,304 @@
+/** SeenObject.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+
+/** An object of a see message, as sent to the Player, Ball, Flag,
+ * Line and Goal listeners.
+ *
+ * It holds the values of the object in the SeeMessage at the time it
+ * was parsed; the ParsedLine parameters ("type", "distance", "hp",
+ * etc.) are only built if they are read.
+ *
+ * When the LogParser recycles the object events (see
+ * LogParser.setRecycleObjectEvents), a single SeenObject is loaded
+ * with each object in turn: it is only valid during the call to the
+ * listener, which must copy the values it keeps.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class SeenObject extends TypedMessage
+{
+    private String name;
+    private String info;  // null until built from the values
+    private int scales;  // digits after the point of the values, when the information is built from them
+    private String team;
+    private int kind;
+    private int number;
+    private boolean goalie;
+    private int infoCount;
+    private double distance;
+    private double direction;
+    private double distChange;
+    private double dirChange;
+    private double bodyDir;
+    private double headDir;
+
+    /** SeenObject constructor
+     *
+     * @param see the see message
+     * @param i the index of the object in the message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public SeenObject(SeeMessage see, int i)
+    {
+	super();
+	load(see,i);
+    }
+
+    /** SeenObject constructor, for an object loaded later
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    SeenObject()
+    {
+	super();
+    }
+
+    /** Loads the values of an object, forgetting the previous ones
+     *
+     * @param see the see message
+     * @param i the index of the object in the message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void load(SeeMessage see, int i)
+    {
+	reset();
+	name=see.getName(i);
+	info=see.getCutInfo(i);
+	scales=see.getScales(i);
+	team=see.getTeam(i);
+	kind=see.getKind(i);
+	number=see.getNumber(i);
+	goalie=see.isGoalie(i);
+	infoCount=see.getInfoCount(i);
+	distance=see.getDistance(i);
+	direction=see.getDirection(i);
+	distChange=see.getDistChange(i);
+	dirChange=see.getDirChange(i);
+	bodyDir=see.getBodyDirection(i);
+	headDir=see.getHeadDirection(i);
+	changed();
+    }
+
+    /** Returns the kind of the object
+     *
+     * @return SeeMessage.PLAYER, BALL, GOAL, FLAG, LINE or OTHER
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public int getKind()
+    {
+	return kind;
+    }
+
+    /** Returns the name of the object
+     *
+     * @return the name, like "f r b 20"
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String getName()
+    {
+	return name;
+    }
+
+    /** Returns the team of a player
+     *
+     * @return the team name, or null if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String getTeam()
+    {
+	return team;
+    }
+
+    /** Returns the number of a player
+     *
+     * @return the player number, or -1 if not given or not a number
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public int getNumber()
+    {
+	return number;
+    }
+
+    /** Checks whether a player is a goalie
+     *
+     * @return true for a goalie
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public boolean isGoalie()
+    {
+	return goalie;
+    }
+
+    /** Returns the number of values in the information of the object
+     *
+     * @return the number of values
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public int getInfoCount()
+    {
+	return infoCount;
+    }
+
+    /** Returns the distance to the object
+     *
+     * @return the distance, or NaN if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getDistance()
+    {
+	return distance;
+    }
+
+    /** Returns the direction of the object
+     *
+     * @return the direction, or NaN if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getDirection()
+    {
+	return direction;
+    }
+
+    /** Returns the distance change of the object
+     *
+     * @return the distance change, or NaN if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getDistChange()
+    {
+	return distChange;
+    }
+
+    /** Returns the direction change of the object
+     *
+     * @return the direction change, or NaN if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getDirChange()
+    {
+	return dirChange;
+    }
+
+    /** Returns the body direction of a player
+     *
+     * @return the body direction, or NaN if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getBodyDirection()
+    {
+	return bodyDir;
+    }
+
+    /** Returns the head direction of a player
+     *
+     * @return the head direction, or NaN if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getHeadDirection()
+    {
+	return headDir;
+    }
+
+    /** Nothing to decode, a SeenObject is loaded with decoded values
+     *
+     * @param text unused
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void decode(String text)
+    {
+    }
+
+    /** Nothing to clear, a SeenObject is not reused
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void clear()
+    {
+    }
+
+    /** Puts the values of the object in the parameters
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void fill()
+    {
+	if(info == null)
+	    info=SeeMessage.infoText(infoCount,scales,distance,direction,distChange,dirChange,bodyDir,headDir);
+	SeeMessage.fillObject(this,name,info,"",true);
+    }
+}
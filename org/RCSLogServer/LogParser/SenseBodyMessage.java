@@ -0,0 +1,359 @@
+/** SenseBodyMessage.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+
+/** A parsed sense_body message.
+ *
+ * The view mode is kept as text, the stamina, effort, speed and head
+ * angle as doubles (NaN when the message does not have them). The
+ * ParsedLine parameters hold the same values with the keys "view_q",
+ * "view_w", "stamina", "effort", "speed", "direction" and
+ * "head_direction".
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class SenseBodyMessage extends TypedMessage
+{
+    // Fields of the message
+    static final int VIEW_QUALITY=0;
+    static final int VIEW_WIDTH=1;
+    static final int STAMINA=2;
+    static final int EFFORT=3;
+    static final int SPEED=4;
+    static final int SPEED_DIRECTION=5;
+    static final int HEAD_ANGLE=6;
+    private static final String[] keys={"view_q","view_w","stamina","effort","speed","direction","head_direction"};
+
+    private String[] texts;  // values as written in the line, null if not given or not cut yet
+    private String[] sources;  // attributes holding the values not cut yet
+    private int[] starts;
+    private int[] ends;
+    private int[] scales;  // digits after the point of the values read from a binary log
+    private int parts;  // number of parts of the attribute being read
+    private double[] values;
+
+    /** SenseBodyMessage constructor
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public SenseBodyMessage()
+    {
+	super();
+	texts=new String[keys.length];
+	sources=new String[keys.length];
+	starts=new int[keys.length];
+	ends=new int[keys.length];
+	scales=new int[keys.length];
+	values=new double[keys.length];
+	clear();
+    }
+
+    /** Sets a field of the message
+     *
+     * @param field the field, like STAMINA
+     * @param text the value as written in the line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void set(int field, String text)
+    {
+	texts[field]=text;
+	sources[field]=null;
+	values[field]=toDouble(text);
+	changed();
+    }
+
+    /** Sets a field of the message read from a binary log. The text is
+     * only written when it is asked for.
+     *
+     * @param field the field, like STAMINA
+     * @param value the value
+     * @param scale the digits after the point of the value
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void set(int field, double value, int scale)
+    {
+	texts[field]=null;
+	sources[field]=null;
+	values[field]=value;
+	scales[field]=scale;
+	changed();
+    }
+
+    /** Sets a field of the message from a part of an attribute cut by
+     * split(). The number is read in place, and the text is only cut
+     * when it is asked for.
+     *
+     * @param field the field, like STAMINA
+     * @param attribute the attribute, like "stamina 8000 1"
+     * @param part the index of the part holding the value
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void set(int field, String attribute, int part)
+    {
+	if(part >= parts)
+	    throw new ArrayIndexOutOfBoundsException(part);
+	texts[field]=null;
+	sources[field]=attribute;
+	starts[field]=bounds[2*part];
+	ends[field]=bounds[2*part+1];
+	values[field]=toDouble(attribute,starts[field],ends[field]);
+	changed();
+    }
+
+    /** Checks the name of an attribute, and cuts the attribute if it
+     * is the one
+     *
+     * @param attribute the attribute, like "stamina 8000 1"
+     * @param name the expected name
+     * @return true if the attribute has the name
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private boolean named(String attribute, String name)
+    {
+	int n=name.length();
+	if(!attribute.startsWith(name) || (attribute.length() > n && !SExpressionTokenizer.isSpace(attribute.charAt(n))))
+	    return false;
+	parts=split(attribute,0,attribute.length());
+	return true;
+    }
+
+    /** Returns the text of a field, cutting it from its attribute or
+     * writing it from its value the first time
+     *
+     * @param field the field, like VIEW_QUALITY
+     * @return the value as written in the line, or null if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private String text(int field)
+    {
+	if(sources[field] != null){
+	    texts[field]=sources[field].substring(starts[field],ends[field]);
+	    sources[field]=null;
+	} else if(texts[field] == null && !Double.isNaN(values[field]))
+	    texts[field]=toText(values[field],scales[field]); //read from a binary log
+	return texts[field];
+    }
+
+    /** Returns the text of a field
+     *
+     * @param field the field, like STAMINA
+     * @return the value as written in the line, or null if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    String getText(int field)
+    {
+	decode();
+	return text(field);
+    }
+
+    /** Returns the view quality
+     *
+     * @return "high" or "low", or null if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String getViewQuality()
+    {
+	decode();
+	return text(VIEW_QUALITY);
+    }
+
+    /** Returns the view width
+     *
+     * @return "narrow", "normal" or "wide", or null if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String getViewWidth()
+    {
+	decode();
+	return text(VIEW_WIDTH);
+    }
+
+    /** Returns the stamina
+     *
+     * @return the stamina, or NaN if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getStamina()
+    {
+	decode();
+	return values[STAMINA];
+    }
+
+    /** Returns the effort
+     *
+     * @return the effort, or NaN if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getEffort()
+    {
+	decode();
+	return values[EFFORT];
+    }
+
+    /** Returns the speed
+     *
+     * @return the speed, or NaN if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getSpeed()
+    {
+	decode();
+	return values[SPEED];
+    }
+
+    /** Returns the direction of the speed
+     *
+     * @return the direction, or NaN if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getSpeedDirection()
+    {
+	decode();
+	return values[SPEED_DIRECTION];
+    }
+
+    /** Returns the head angle, relative to the body
+     *
+     * @return the head angle, or NaN if not given
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getHeadAngle()
+    {
+	decode();
+	return values[HEAD_ANGLE];
+    }
+
+    /** Decodes the attributes of the message
+     *
+     * @param text the information of the message, after the time
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void decode(String text)
+    {
+	String[] attr=SExpressionTokenizer.splitObjects(text); //this may fail because the sense_body has more attributes than specified. Hopefully, it won't matter
+	for(int i=0; i<attr.length; i++) {
+	    String a=attr[i];
+	    if(a.length() == 0)
+		continue;
+	    //the first letter tells the only name to check
+	    switch(a.charAt(0)){
+	    case 'v':
+		if(named(a,"view_mode")){ //
+		    set(VIEW_QUALITY,a,1);
+		    set(VIEW_WIDTH,a,2);
+		}
+		break;
+	    case 's':
+		if(named(a,"stamina")){ //
+		    set(STAMINA,a,1);
+		    set(EFFORT,a,2);
+		} else if(named(a,"speed")){ //
+		    set(SPEED,a,1);
+		    set(SPEED_DIRECTION,a,2);
+		}
+		break;
+	    case 'h':
+		if(named(a,"head_angle")) //
+		    set(HEAD_ANGLE,a,1);
+		break;
+	    default: //ignore anything else
+		break;
+	    }
+	}
+    }
+
+    /** Forgets the values of the previous message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void clear()
+    {
+	for(int i=0; i<keys.length; i++){
+	    texts[i]=null;
+	    sources[i]=null;
+	    values[i]=Double.NaN;
+	}
+    }
+
+    /** Puts the given values in the parameters
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void fill()
+    {
+	for(int i=0; i<keys.length; i++)
+	    if(text(i) != null)
+		parameters.put(keys[i],texts[i]);
+    }
+}
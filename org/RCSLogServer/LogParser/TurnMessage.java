@@ -0,0 +1,140 @@
+/** TurnMessage.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+
+/** A parsed turn command.
+ *
+ * The ParsedLine parameters hold the moment with the key "direction".
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class TurnMessage extends TypedMessage
+{
+    private String directionText;  // moment as written in the line
+    private double direction;
+    private int scale;  // digits after the point of a moment read from a binary log
+
+    /** TurnMessage constructor
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public TurnMessage()
+    {
+	super();
+	clear();
+    }
+
+    /** Sets the moment read from a binary log. The text is only written
+     * when it is asked for.
+     *
+     * @param value the moment
+     * @param scale the digits after the point of the moment
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void set(double value, int scale)
+    {
+	directionText=null;
+	direction=value;
+	this.scale=scale;
+	changed();
+    }
+
+    /** Sets the moment
+     *
+     * @param text the moment as written in the line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void set(String text)
+    {
+	directionText=text;
+	direction=toDouble(text);
+	changed();
+    }
+
+    /** Returns the moment
+     *
+     * @return the moment, or NaN if it is not a number
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public double getDirection()
+    {
+	decode();
+	return direction;
+    }
+
+    /** Decodes the moment
+     *
+     * @param text the parameters of the command
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void decode(String text)
+    {
+	if(SExpressionTokenizer.isPlainToken(text,0,text.length()))
+	    set(text); // a plain token is its own first token
+	else
+	    set(SExpressionTokenizer.tokens(text).get(0));
+    }
+
+    /** Forgets the previous command
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void clear()
+    {
+	directionText=null;
+	direction=Double.NaN;
+    }
+
+    /** Puts the moment in the parameters
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void fill()
+    {
+	if(directionText == null && !Double.isNaN(direction))
+	    directionText=toText(direction,scale); //read from a binary log
+	if(directionText != null)
+	    parameters.put("direction",directionText);
+    }
+}
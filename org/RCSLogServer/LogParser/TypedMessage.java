@@ -0,0 +1,411 @@
+/** TypedMessage.java in the package org.RCSLogServer.LogParser of the RCSLogServer project.
+	Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+ **/
+
+
+package org.RCSLogServer.LogParser;
+
+
+/** Base class of the typed messages.
+ *
+ * A typed message keeps the values of a log line in fields: numbers
+ * as doubles and ints, and the texts as they appear in the line. The
+ * parser fills the fields, and the parameters of the ParsedLine are
+ * only built the first time a listener reads them, so the listeners
+ * using the typed getters avoid the map, the boxing and the key
+ * concatenations. A typed message is reused by the parser for the
+ * next line of the same kind: a listener keeping its values must copy
+ * them.
+ *
+ * When the parser decodes lazily (see LogParser.setLazyDecoding), it
+ * only gives the message the text of its parameters, which is decoded
+ * the first time a getter or a parameter is read.
+ *
+ * A message the parser does not reuse (see
+ * LogParser.setRetainLines) can be handed to other threads: the
+ * decoding and the filling of the parameters are done once, under the
+ * lock of the message, and are seen by all the readers.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public abstract class TypedMessage extends ParsedLine
+{
+    private volatile boolean stale;  // true if the fields changed since the parameters were filled
+    private volatile String pending;  // parameters waiting to be decoded, null if decoded
+    int[] bounds;  // start and end of the parts cut by split()
+    private static final double[] POWERS_OF_TEN={1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+
+    /** TypedMessage constructor
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected TypedMessage()
+    {
+	super();
+    }
+
+    /** Resets the object
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void reset()
+    {
+	super.reset();
+	clear();
+	if(stale)  //only write the shared flags when they change
+	    stale=false;
+	if(pending != null)
+	    pending=null;
+    }
+
+    /** Resets the object
+     *
+     * @param c the game time on this log line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void reset(int c)
+    {
+	super.reset(c);
+	clear();
+	if(stale)
+	    stale=false;
+	if(pending != null)
+	    pending=null;
+    }
+
+    /** Fills the parameters from the fields, if they changed since the
+     * last time
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected final void expand()
+    {
+	decode();
+	if(stale){
+	    synchronized(this){
+		if(stale){
+		    fill();
+		    stale=false;
+		}
+	    }
+	}
+    }
+
+    /** Records that the fields changed, so the parameters must be
+     * filled again before they are read
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void changed()
+    {
+	if(!stale)
+	    stale=true;
+    }
+
+    /** Keeps the parameters of the message, to be decoded when they
+     * are first needed
+     *
+     * @param text the parameters, as written in the line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void defer(String text)
+    {
+	pending=text;
+	changed();
+    }
+
+    /** Decodes the parameters kept by defer(), if any. The getters
+     * call it before reading the fields.
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected final void decode()
+    {
+	if(pending != null){
+	    synchronized(this){
+		String text=pending;
+		if(text != null){
+		    decode(text);
+		    pending=null;
+		}
+	    }
+	}
+    }
+
+    /** Decodes the parameters of the message into the fields
+     *
+     * @param text the parameters, as written in the line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected abstract void decode(String text);
+
+    /** Clears the fields of the message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected abstract void clear();
+
+    /** Puts the values of the fields in the parameters, with the keys
+     * of the ParsedLine of the same message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected abstract void fill();
+
+    /** Cuts a part of the log line on each white space character,
+     * as SExpressionTokenizer.splitSpaces does, keeping the bounds of
+     * the parts in the bounds array instead of building their strings
+     *
+     * @param text the log line
+     * @param from the start of the part to cut
+     * @param to the end of the part to cut
+     * @return the number of parts
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    int split(String text, int from, int to)
+    {
+	int size=2*(to-from+1);
+	if(bounds == null || bounds.length < size)
+	    bounds=new int[Math.max(size,16)];
+	return SExpressionTokenizer.splitSpaces(text,from,to,bounds);
+    }
+
+    /** Checks a part cut by split()
+     *
+     * @param text the log line
+     * @param part the index of the part
+     * @param word the expected text
+     * @return true if the part is the word
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    boolean isPart(String text, int part, String word)
+    {
+	int start=bounds[2*part];
+	return bounds[2*part+1]-start == word.length() && text.startsWith(word,start);
+    }
+
+    /** Reads a number of the log line
+     *
+     * @param text the number as written in the line
+     * @return its value, or NaN if it is not a number
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static double toDouble(String text)
+    {
+	if(text == null)
+	    return Double.NaN;
+	return toDouble(text,0,text.length());
+    }
+
+    /** Reads a number written in a part of the log line, without
+     * building its string. The decimal numbers of the logs are
+     * computed in place, with the same result as
+     * Double.parseDouble: their digits fit exactly in a double, and
+     * so does the power of ten dividing them, so the division is
+     * correctly rounded. The other forms are given to
+     * Double.parseDouble.
+     *
+     * @param text the log line
+     * @param start the start of the number
+     * @param end the end of the number
+     * @return its value, or NaN if it is not a number
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static double toDouble(String text, int start, int end)
+    {
+	int i=start;
+	boolean negative=(i < end && text.charAt(i) == '-');
+	if(negative)
+	    i++;
+	long mantissa=0;
+	int digits=0;
+	int scale=-1;  // digits after the point, -1 before the point
+	for(; i < end; i++){
+	    char c=text.charAt(i);
+	    if(c >= '0' && c <= '9'){
+		if(++digits > 15)
+		    return parseDouble(text.substring(start,end));
+		mantissa=mantissa*10+(c-'0');
+		if(scale >= 0)
+		    scale++;
+	    } else if(c == '.' && scale < 0)
+		scale=0;
+	    else
+		return parseDouble(text.substring(start,end));
+	}
+	if(digits == 0)
+	    return parseDouble(text.substring(start,end));
+	return toDouble(mantissa,Math.max(scale,0),negative);
+    }
+
+    /** Computes a decimal number from its digits, as toDouble does for
+     * the numbers written in the line
+     *
+     * @param mantissa the digits, at most 15
+     * @param scale the number of digits after the point
+     * @param negative true if the number has a minus sign
+     * @return its value
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static double toDouble(long mantissa, int scale, boolean negative)
+    {
+	double value=(scale > 0) ? mantissa/POWERS_OF_TEN[scale] : mantissa;
+	return negative ? -value : value;
+    }
+
+    /** Writes a number the way it was written in the log line, when it
+     * was a decimal number of at most 15 digits without exponent nor
+     * superfluous zeros: the digits are found again by scaling the
+     * value, which is exact below 10^15.
+     *
+     * @param value the value of the number
+     * @param scale the number of digits after the point
+     * @return the number as written in the line
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static String toText(double value, int scale)
+    {
+	long mantissa=Math.round(Math.abs(value)*POWERS_OF_TEN[scale]);
+	String digits=Long.toString(mantissa);
+	StringBuilder text=new StringBuilder(digits.length()+scale+2);
+	if(Double.doubleToRawLongBits(value) < 0)
+	    text.append('-'); //also for -0
+	for(int i=digits.length(); i<=scale; i++)
+	    text.append('0');
+	text.append(digits);
+	if(scale > 0)
+	    text.insert(text.length()-scale,'.');
+	return text.toString();
+    }
+
+    /** Reads an integer of the log line, like Integer.parseInt
+     *
+     * @param text the integer as written in the line
+     * @return its value
+     * @throws NumberFormatException if it is not an integer
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static int toInt(String text)
+    {
+	if(text == null)
+	    throw new NumberFormatException("null");
+	return toInt(text,0,text.length());
+    }
+
+    /** Reads an integer written in a part of the log line, without
+     * building its string when it has at most 9 digits
+     *
+     * @param text the log line
+     * @param start the start of the integer
+     * @param end the end of the integer
+     * @return its value
+     * @throws NumberFormatException if it is not an integer
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static int toInt(String text, int start, int end)
+    {
+	int i=start;
+	boolean negative=(i < end && text.charAt(i) == '-');
+	if(negative)
+	    i++;
+	if(i == end || end-i > 9)
+	    return Integer.parseInt(text.substring(start,end));
+	int value=0;
+	for(; i < end; i++){
+	    char c=text.charAt(i);
+	    if(c < '0' || c > '9')
+		return Integer.parseInt(text.substring(start,end));
+	    value=value*10+(c-'0');
+	}
+	return negative ? -value : value;
+    }
+
+    /** Reads a number with Double.parseDouble
+     *
+     * @param text the number as written in the line
+     * @return its value, or NaN if it is not a number
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static double parseDouble(String text)
+    {
+	if(text.length() == 0)
+	    return Double.NaN;
+	char c=text.charAt(0);
+	if(!((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'I' || c == 'N'))
+	    return Double.NaN; // do not pay for the exception on words
+	try{
+	    return Double.parseDouble(text);
+	} catch(NumberFormatException e){
+	    return Double.NaN;
+	}
+    }
+}
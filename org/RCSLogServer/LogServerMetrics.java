@@ -0,0 +1,325 @@
+/** LogServerMetrics.java in the package org.RCSLogServer of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.*;
+
+
+/** JMX view of the log server and of its player sessions
+ *
+ * The server bean sums the counters of the sessions in the session
+ * list on each read, so nothing is added to the forwarding paths. The
+ * counters of the sessions reaped from the list are kept in retired
+ * totals, so the server counters never go down when a match ends. A
+ * session bean is registered when the handshake of the session is
+ * done, and unregistered when the session ends. The beans can be read
+ * with jconsole or any JMX client; the same figures are printed by the
+ * "metrics" console command.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+class LogServerMetrics implements LogServerMXBean
+{
+    //===========================================================================
+    // Private members
+    private static final String DOMAIN = "org.RCSLogServer";
+    private Vector<LogMemory> session_list;  // List of the player sessions
+    // Counters of the sessions reaped from the session list
+    private static final AtomicLong retired_packets_c2s = new AtomicLong();
+    private static final AtomicLong retired_packets_s2c = new AtomicLong();
+    private static final AtomicLong retired_bytes_c2s = new AtomicLong();
+    private static final AtomicLong retired_bytes_s2c = new AtomicLong();
+    private static final AtomicLong retired_log_records = new AtomicLong();
+    private static final AtomicLong retired_log_bytes = new AtomicLong();
+    private static final AtomicLong retired_socket_errors = new AtomicLong();
+
+    /** constructor method
+     *
+     * @param sessions the list of the player sessions
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public LogServerMetrics(Vector<LogMemory> sessions)
+    {
+	session_list = sessions;
+    }
+
+    /** Registers the server bean in the platform MBean server
+     *
+     * @param sessions the list of the player sessions
+     * @return the server bean
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static LogServerMetrics register(Vector<LogMemory> sessions)
+    {
+	LogServerMetrics metrics = new LogServerMetrics(sessions);
+	try {
+	    ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, new ObjectName(DOMAIN + ":type=LogServer"));
+	} catch (JMException e) {
+	    System.err.println("Unable to register the log server metrics " + e);
+	}
+	return metrics;
+    }
+
+    /** Registers the bean of an established session
+     *
+     * @param memory the session
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static void registerSession(LogMemory memory)
+    {
+	try {
+	    ManagementFactory.getPlatformMBeanServer().registerMBean(new SessionMetrics(memory), sessionName(memory));
+	} catch (JMException e) {
+	    System.err.println("Unable to register the metrics of " + memory.getPlayerName() + " " + e);
+	}
+    }
+
+    /** Unregisters the bean of a session, if it was registered
+     *
+     * @param memory the session
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static void unregisterSession(LogMemory memory)
+    {
+	try {
+	    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+	    ObjectName name = sessionName(memory);
+	    if (server.isRegistered(name))
+		server.unregisterMBean(name);
+	} catch (JMException e) {
+	    System.err.println("Unable to unregister the metrics of " + memory.getPlayerName() + " " + e);
+	}
+    }
+
+    /** Returns the JMX name of a session bean. The client port tells
+     * apart players of the same name in different matches.
+     *
+     * @param memory the session
+     * @return the bean name
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static ObjectName sessionName(LogMemory memory)
+	throws MalformedObjectNameException
+    {
+	String player = memory.getPlayerName();
+	return new ObjectName(DOMAIN + ":type=Session,name=" + ObjectName.quote(player == null ? "unknown" : player)
+			      + ",client=" + memory.getClientPort());
+    }
+
+    /** Removes an ended session from the session list, adding its
+     * counters to the retired totals in the same step, so the server
+     * counters count it exactly once
+     *
+     * @param sessions the list of the player sessions
+     * @param memory the ended session
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static void reap(Vector<LogMemory> sessions, LogMemory memory)
+    {
+	synchronized (sessions) {
+	    if (!sessions.remove(memory))
+		return;
+	    retired_socket_errors.addAndGet(memory.getStats().getSocketErrors());
+	    SessionDescriptor session = memory.getDescriptor();
+	    if (session == null)
+		return;
+	    retired_packets_c2s.addAndGet(session.stats.getPacketsClientToServer());
+	    retired_packets_s2c.addAndGet(session.stats.getPacketsServerToClient());
+	    retired_bytes_c2s.addAndGet(session.stats.getBytesClientToServer());
+	    retired_bytes_s2c.addAndGet(session.stats.getBytesServerToClient());
+	    if (session.log != null) {
+		retired_log_records.addAndGet(session.log.getRecordsWritten());
+		retired_log_bytes.addAndGet(session.log.getBytesWritten());
+	    }
+	}
+    }
+
+    /** Returns a snapshot of the established sessions
+     *
+     * @return the descriptors of the sessions whose handshake is done
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private ArrayList<SessionDescriptor> established()
+    {
+	ArrayList<SessionDescriptor> list = new ArrayList<SessionDescriptor>();
+	synchronized (session_list) {
+	    for (LogMemory memory : session_list) {
+		SessionDescriptor session = memory.getDescriptor();
+		if (session != null)
+		    list.add(session);
+	    }
+	}
+	return list;
+    }
+
+    public int getActiveSessions()
+    {
+	return established().size();
+    }
+
+    public long getPacketsClientToServer()
+    {
+	synchronized (session_list) {
+	    long total = retired_packets_c2s.get();
+	    for (SessionDescriptor session : established())
+		total += session.stats.getPacketsClientToServer();
+	    return total;
+	}
+    }
+
+    public long getPacketsServerToClient()
+    {
+	synchronized (session_list) {
+	    long total = retired_packets_s2c.get();
+	    for (SessionDescriptor session : established())
+		total += session.stats.getPacketsServerToClient();
+	    return total;
+	}
+    }
+
+    public long getBytesClientToServer()
+    {
+	synchronized (session_list) {
+	    long total = retired_bytes_c2s.get();
+	    for (SessionDescriptor session : established())
+		total += session.stats.getBytesClientToServer();
+	    return total;
+	}
+    }
+
+    public long getBytesServerToClient()
+    {
+	synchronized (session_list) {
+	    long total = retired_bytes_s2c.get();
+	    for (SessionDescriptor session : established())
+		total += session.stats.getBytesServerToClient();
+	    return total;
+	}
+    }
+
+    public long getLogRecordsWritten()
+    {
+	synchronized (session_list) {
+	    long total = retired_log_records.get();
+	    for (SessionDescriptor session : established())
+		if (session.log != null)
+		    total += session.log.getRecordsWritten();
+	    return total;
+	}
+    }
+
+    public long getLogBytesWritten()
+    {
+	synchronized (session_list) {
+	    long total = retired_log_bytes.get();
+	    for (SessionDescriptor session : established())
+		if (session.log != null)
+		    total += session.log.getBytesWritten();
+	    return total;
+	}
+    }
+
+    public int getLogQueueDepth()
+    {
+	int total = 0;
+	for (SessionDescriptor session : established())
+	    if (session.log != null)
+		total += session.log.getQueueDepth();
+	return total;
+    }
+
+    public long getSocketErrors()
+    {
+	synchronized (session_list) {
+	    long total = retired_socket_errors.get();
+	    for (LogMemory memory : session_list)
+		total += memory.getStats().getSocketErrors();
+	    return total;
+	}
+    }
+
+    /** Returns a plain text dump of the server and session counters
+     *
+     * @return the dump, one line per session
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String dump()
+    {
+	StringBuilder text = new StringBuilder();
+	text.append("sessions=").append(getActiveSessions())
+	    .append(" packets c->s=").append(getPacketsClientToServer())
+	    .append(" s->c=").append(getPacketsServerToClient())
+	    .append(" bytes c->s=").append(getBytesClientToServer())
+	    .append(" s->c=").append(getBytesServerToClient())
+	    .append(" log records=").append(getLogRecordsWritten())
+	    .append(" bytes=").append(getLogBytesWritten())
+	    .append(" queued=").append(getLogQueueDepth())
+	    .append(" socket errors=").append(getSocketErrors())
+	    .append('\n');
+	for (SessionDescriptor session : established()) {
+	    text.append("  ").append(session.player_name)
+		.append(" packets c->s=").append(session.stats.getPacketsClientToServer())
+		.append(" s->c=").append(session.stats.getPacketsServerToClient())
+		.append(" bytes c->s=").append(session.stats.getBytesClientToServer())
+		.append(" s->c=").append(session.stats.getBytesServerToClient());
+	    if (session.log != null)
+		text.append(" log records=").append(session.log.getRecordsWritten())
+		    .append(" queued=").append(session.log.getQueueDepth())
+		    .append(" dropped=").append(session.log.getDroppedCount());
+	    text.append(" socket errors=").append(session.stats.getSocketErrors())
+		.append(" idle=").append(session.stats.getMillisSinceLastPacket()).append(" ms")
+		.append('\n');
+	}
+	return text.toString();
+    }
+}
@@ -0,0 +1,166 @@
+/** LogWriter.java in the package org.RCSLogServer of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+
+/** Writes the records queued by all the Loggers (write-behind).
+ *
+ * A single daemon thread drains the queues in batches. When the
+ * queues are empty it parks until a Logger queues a record and wakes
+ * it up; the communication threads only pay for the wake up when the
+ * writer is asleep. While records are pending but cannot be written
+ * yet it polls every millisecond. The queued records are also written
+ * when the virtual machine shuts down.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+class LogWriter extends Thread
+{
+    //===========================================================================
+    // Private members
+    private static LogWriter instance = null;
+    private CopyOnWriteArrayList<Logger> loggers;  // Loggers being served
+    private volatile boolean sleeping = false;  // true while parked with nothing to write
+
+    /** Returns the log writer, starting it on first use
+     *
+     * @return the log writer
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static synchronized LogWriter getInstance()
+    {
+	if (instance == null) {
+	    instance = new LogWriter();
+	    instance.start();
+	}
+	return instance;
+    }
+
+    /** constructor method
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private LogWriter()
+    {
+	super("LogWriter");
+	loggers = new CopyOnWriteArrayList<Logger>();
+	setDaemon(true);
+	Runtime.getRuntime().addShutdownHook(new Thread() {
+		public void run() {
+		    for (Logger logger : loggers)
+			logger.close();
+		}
+	    });
+    }
+
+    /** Starts serving a logger
+     *
+     * @param logger the logger to serve
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void addLogger(Logger logger)
+    {
+	loggers.add(logger);
+    }
+
+    /** Stops serving a logger
+     *
+     * @param logger the logger to stop serving
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void removeLogger(Logger logger)
+    {
+	loggers.remove(logger);
+    }
+
+    /** Wakes the writer up if it is parked. Called by the Loggers
+     * after queueing a record.
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    void wakeUp()
+    {
+	if (sleeping)
+	    LockSupport.unpark(this);
+    }
+
+    /** Drains the queues of the loggers
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     */
+    @Override
+    public void run()
+    {
+	while (true) {
+	    int written = 0;
+	    for (Logger logger : loggers)
+		written += logger.drain();
+	    if (written > 0)
+		continue;
+	    // the flag is raised before looking at the queues, so a record
+	    // queued after the look finds it and unparks the writer
+	    sleeping = true;
+	    if (pending())
+		LockSupport.parkNanos(1000000);
+	    else
+		LockSupport.park(this);
+	    sleeping = false;
+	}
+    }
+
+    /** Checks whether some records are waiting in the queues
+     *
+     * @return true if a queue is not empty
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private boolean pending()
+    {
+	for (Logger logger : loggers)
+	    if (logger.getQueueDepth() > 0)
+		return true;
+	return false;
+    }
+}
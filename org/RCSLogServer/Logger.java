@@ -26,9 +26,31 @@ package org.RCSLogServer;
 import java.io.*;
 import java.net.*;
 import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.RCSLogServer.LogParser.BinaryLogConverter;
+import org.RCSLogServer.LogParser.BinaryLogWriter;
 
 
 /** Writes the log file
+ *
+ * Records are handed over to a bounded lock-free queue by the
+ * communication threads and written in batches by the LogWriter
+ * thread, so the forwarding of messages never waits for the disk.
+ *
+ * The file is flushed (group commit) when a see or sense_body message
+ * of a new simulation cycle arrives, or when the unflushed data reaches
+ * the flush size, whichever comes first. A crash therefore loses at
+ * most the cycle being written, besides the records still queued.
+ *
+ * In the DEFLATE format the file is written as independently
+ * compressed blocks with a block index (see DeflateBlockOutputStream),
+ * and ".z" is appended to the file name. In the BINARY format the
+ * records are written by a BinaryLogWriter, and the ".lsf" of the
+ * file name becomes ".lsb". The binary log keeps the whole lines: the
+ * .lsf is written back with BinaryLogConverter -text.
  *
  * @author NMAI Lab
  * @since 0.2
@@ -36,13 +58,61 @@ import java.util.LinkedList;
  */
 class Logger
 {
+    /** What addRecord does when the queue of a logger is full
+     *
+     * BLOCK waits for the writer to make room, DROP discards the record,
+     * and UNBOUNDED queues it beyond the capacity. UNBOUNDED keeps the
+     * records in memory, with no limit: if the disk stays slower than
+     * the messages, the memory of the server runs out.
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public enum QueuePolicy { BLOCK, DROP, UNBOUNDED }
+
+    /** Format of the log files
+     *
+     * TEXT writes the plain .lsf lines, DEFLATE writes them as
+     * compressed blocks with a block index, and BINARY writes the
+     * binary log records read by the LogParser.BinaryLogReader.
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public enum Format { TEXT, DEFLATE, BINARY }
+
+    //===========================================================================
+    // Configuration shared by all the loggers
+    private static int queue_capacity = 4096;  // Records waiting to be written
+    private static QueuePolicy queue_policy = QueuePolicy.BLOCK;
+    private static int flush_size = 64 * 1024;  // Unflushed bytes forcing a flush
+    private static Format format = Format.TEXT;
+    private static int block_size = 256 * 1024;  // Uncompressed size of DEFLATE blocks
+    private static final int BATCH_SIZE = 256;  // Records written in a row for a logger
+    private static final byte[] SEE = "(see ".getBytes();
+    private static final byte[] SENSE_BODY = "(sense_body ".getBytes();
+
     //===========================================================================
     // Private members
     private LinkedList logrecords;  // Records to log after game
     private String logfile;  // log filename
     private OutputStream fout = null;
-    private OutputStream bout = null;
-    private OutputStreamWriter out = null;
+    private OutputStream out = null;
+    private DeflateBlockOutputStream blocks = null;  // Compressed output, null in TEXT format
+    private BinaryLogWriter binary = null;  // Binary output, null unless in BINARY format
+    private ConcurrentLinkedQueue<byte[]> queue;  // Records waiting for the writer
+    private AtomicInteger queue_size;  // Number of records in the queue
+    private AtomicLong blocked;  // Records that had to wait for room in the queue
+    private AtomicLong dropped;  // Records discarded because the queue was full
+    private AtomicLong over_capacity;  // Records queued beyond the capacity
+    private AtomicLong records_written;  // Records written by the LogWriter
+    private AtomicLong bytes_written;  // Uncompressed bytes written by the LogWriter
+    private volatile boolean closed = false;
+    private LogWriter writer;  // the thread writing the records
+    private int cycle = -1;  // Last simulation cycle seen by the writer
+    private int unflushed = 0;  // Bytes written since the last flush
 
     /** constructor method
      * 
@@ -57,16 +127,35 @@ class Logger
     public Logger(String filename)
     {
 	logrecords = new LinkedList();
+	queue = new ConcurrentLinkedQueue<byte[]>();
+	queue_size = new AtomicInteger();
+	blocked = new AtomicLong();
+	dropped = new AtomicLong();
+	over_capacity = new AtomicLong();
+	records_written = new AtomicLong();
+	bytes_written = new AtomicLong();
 	try {
-	    fout = new FileOutputStream(filename);
-	    bout = new BufferedOutputStream(fout);
-	    out = new OutputStreamWriter(bout);
+	    if (format == Format.DEFLATE) {
+		filename = filename + ".z";
+		blocks = new DeflateBlockOutputStream(filename, block_size);
+		fout = blocks;
+	    } else if (format == Format.BINARY) {
+		filename = BinaryLogConverter.binaryName(filename);
+		fout = new FileOutputStream(filename);
+	    } else {
+		fout = new FileOutputStream(filename);
+	    }
+	    out = new BufferedOutputStream(fout, flush_size);
+	    if (format == Format.BINARY)
+		binary = new BinaryLogWriter(out);
 	}
 	catch (Exception e) {
 	    System.err.println("Error creating file: " + e);
 	}
 
 	logfile = filename;
+	writer = LogWriter.getInstance();
+	writer.addLogger(this);
     }
 																 
     /** destructor method
@@ -77,13 +166,75 @@ class Logger
      */
     public void finalize()
     {
-	try {
-	    out.flush();
-	    out.close();
-	}
-	catch (Exception e) {
-	    System.err.println("Unable to close log file: " + e);
-	}
+	close();
+    }
+
+    /** Sets the capacity of the record queue of the loggers created
+     * afterwards
+     *
+     * @param capacity the maximum number of queued records
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static void setQueueCapacity(int capacity)
+    {
+	queue_capacity = capacity;
+    }
+
+    /** Sets what the loggers do when their record queue is full
+     *
+     * @param policy the full queue policy
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static void setQueuePolicy(QueuePolicy policy)
+    {
+	queue_policy = policy;
+    }
+
+    /** Sets the amount of unflushed data forcing a flush before the
+     * end of the cycle, for the loggers created afterwards
+     *
+     * @param size the flush size in bytes
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static void setFlushSize(int size)
+    {
+	flush_size = size;
+    }
+
+    /** Sets the format of the log files created afterwards
+     *
+     * @param f the log format
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static void setFormat(Format f)
+    {
+	format = f;
+    }
+
+    /** Sets the uncompressed size of the blocks of the DEFLATE log
+     * files created afterwards
+     *
+     * @param size the block size in bytes
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static void setBlockSize(int size)
+    {
+	block_size = size;
     }
 
     /** Writes a record in the log file
@@ -94,20 +245,300 @@ class Logger
      * @since 0.2
      *
      */
-    public synchronized void addRecord(String record)
+    public void addRecord(String record)
     {
 	if (record != null) {
 	    //      logrecords.addLast(record);
+	    byte[] bytes = record.getBytes();
+	    addRecord(bytes, 0, bytes.length);
+	}
+    }
+
+    /** Writes a record in the log file straight from a packet buffer,
+     * without building a String. Leading and trailing white space and
+     * padding are trimmed as in addRecord(String).
+     *
+     * @param data the buffer containing the record
+     * @param offset the start of the record in the buffer
+     * @param length the number of bytes of the record
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void addRecord(byte[] data, int offset, int length)
+    {
+	int start = offset;
+	int end = offset + length;
+	while (start < end && (data[start] & 0xff) <= ' ')
+	    start++;
+	while (end > start && (data[end - 1] & 0xff) <= ' ')
+	    end--;
+
+	if (!reserve())
+	    return;
+	byte[] record = new byte[end - start + 1];
+	System.arraycopy(data, start, record, 0, end - start);
+	record[end - start] = '\n';
+	queue.offer(record);
+	// close() may have drained the queue for the last time between
+	// reserve() and offer(): take the record back, unless it was
+	// written after all
+	if (closed && queue.remove(record)) {
+	    queue_size.decrementAndGet();
+	    dropped.incrementAndGet();
+	    return;
+	}
+	writer.wakeUp();
+    }
+
+    /** Makes room for a record in the queue, applying the full queue
+     * policy
+     *
+     * @return true if the record can be queued
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private boolean reserve()
+    {
+	boolean waited = false;
+	while (!closed) {
+	    int size = queue_size.get();
+	    if (size < queue_capacity) {
+		if (queue_size.compareAndSet(size, size + 1))
+		    return true;
+	    } else if (queue_policy == QueuePolicy.UNBOUNDED) {
+		queue_size.incrementAndGet();
+		over_capacity.incrementAndGet();
+		return true;
+	    } else if (queue_policy == QueuePolicy.DROP) {
+		dropped.incrementAndGet();
+		return false;
+	    } else {
+		if (!waited)
+		    blocked.incrementAndGet();
+		waited = true;
+		LockSupport.parkNanos(100000);
+	    }
+	}
+	dropped.incrementAndGet();
+	return false;
+    }
+
+    /** Writes a batch of queued records. Called by the LogWriter.
+     *
+     * The file is flushed before the first record of a new cycle and
+     * whenever the flush size has been reached.
+     *
+     * @return the number of records written
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    synchronized int drain()
+    {
+	int written = 0;
+	byte[] record;
+	if (out == null)
+	    return 0;
+	try {
+	    while (written < BATCH_SIZE && (record = queue.poll()) != null) {
+		queue_size.decrementAndGet();
+		int c = cycleOf(record);
+		if (c > cycle) {
+		    if (unflushed > 0)
+			flush();
+		    if (blocks != null)
+			blocks.cycle(c);
+		    cycle = c;
+		}
+		if (binary != null)
+		    binary.write(new String(record, 0, record.length - 1));
+		else
+		    out.write(record);
+		written++;
+		unflushed += record.length;
+		records_written.lazySet(records_written.get() + 1);
+		bytes_written.lazySet(bytes_written.get() + record.length);
+		if (unflushed >= flush_size)
+		    flush();
+	    }
+	}
+	catch (Exception e) {
+	    System.err.println("Error writing to file.");
+	}
+	return written;
+    }
+
+    /** Commits the data written so far to the file
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void flush()
+	throws IOException
+    {
+	out.flush();
+	unflushed = 0;
+    }
+
+    /** Returns the cycle of a see or sense_body record
+     *
+     * @param record the record
+     * @return the cycle, or -1 for the other messages
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    static int cycleOf(byte[] record)
+    {
+	int i;
+	if (startsWith(record, SEE))
+	    i = SEE.length;
+	else if (startsWith(record, SENSE_BODY))
+	    i = SENSE_BODY.length;
+	else
+	    return -1;
+	int c = 0;
+	int digits = 0;
+	for (; i < record.length && record[i] >= '0' && record[i] <= '9'; i++, digits++)
+	    c = c * 10 + (record[i] - '0');
+	return (digits > 0) ? c : -1;
+    }
+
+    /** Checks the start of a record
+     *
+     * @param record the record
+     * @param prefix the expected start
+     * @return true if the record starts with the prefix
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static boolean startsWith(byte[] record, byte[] prefix)
+    {
+	if (record.length < prefix.length)
+	    return false;
+	for (int i = 0; i < prefix.length; i++)
+	    if (record[i] != prefix[i])
+		return false;
+	return true;
+    }
+
+    /** Writes the queued records and closes the log file
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void close()
+    {
+	synchronized (this) {
+	    if (closed)
+		return;
+	    closed = true;
+	}
+	LogWriter.getInstance().removeLogger(this);
+	synchronized (this) {
+	    while (drain() > 0)
+		;
 	    try {
-		out.write((record.trim() + '\n'));
-		out.flush();
+		out.close();
 	    }
 	    catch (Exception e) {
-		System.err.println("Error writing to file.");
+		System.err.println("Unable to close log file: " + e);
 	    }
+	    out = null;
 	}
     }
 
+    /** Returns the number of records waiting to be written
+     *
+     * @return the queue depth
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public int getQueueDepth()
+    {
+	return queue_size.get();
+    }
+
+    /** Returns the number of records that had to wait for room in the
+     * queue
+     *
+     * @return the blocked records count
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getBlockedCount()
+    {
+	return blocked.get();
+    }
+
+    /** Returns the number of records discarded because the queue was
+     * full
+     *
+     * @return the dropped records count
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getDroppedCount()
+    {
+	return dropped.get();
+    }
+
+    /** Returns the number of records queued beyond the capacity
+     *
+     * @return the count of records beyond the capacity
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getOverCapacityCount()
+    {
+	return over_capacity.get();
+    }
+
+    /** Returns the number of records written to the file
+     *
+     * @return the written records count
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getRecordsWritten()
+    {
+	return records_written.get();
+    }
+
+    /** Returns the number of bytes written to the file, before
+     * compression
+     *
+     * @return the written bytes count
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getBytesWritten()
+    {
+	return bytes_written.get();
+    }
+
     /** Returns the log filename
      *
      * @return the log filename
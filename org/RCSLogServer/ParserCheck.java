@@ -0,0 +1,421 @@
+/** ParserCheck.java in the package org.RCSLogServer of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.*;
+import org.RCSLogServer.LogParser.*;
+
+
+/** Equivalence check of the ways of reading a log
+ *
+ * Each log is first parsed line by line with LogParser.parse(String),
+ * and its events (listener method, type, subtype, cycle, sorted
+ * parameters and the values of the typed messages) are the
+ * reference. The log is then read again with lazy decoding, with
+ * recycled object events, by the bulk parse of the file, of a stream
+ * and of a buffer, by ParallelLogParser, from a binary log
+ * (BinaryLogConverter and BinaryLogReader) and from a deflate log
+ * (DeflateBlockOutputStream and BlockLogReader). Every read must give
+ * the same events in the same order, and the binary log must convert
+ * back to the same lines. The binary and deflate logs are written to
+ * the temporary directory.
+ * <pre>
+ *   java org.RCSLogServer.ParserCheck University_1.lsf Carleton_1.lsf
+ * </pre>
+ * A small log of lines the binary log must keep whole, like the
+ * attributes of a sense_body after the head angle, is always checked
+ * first. Without arguments, University_1.lsf and Carleton_1.lsf are
+ * then read from the current directory. The exit status is 1 when a
+ * read differs.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public class ParserCheck
+{
+    //===========================================================================
+    // Private members
+    private static final int CHUNK_SIZE = 64 * 1024;  // Small chunks, for many of them
+    private static final int BLOCK_SIZE = 16 * 1024;  // Small blocks, for many of them
+    private static final String[] SAMPLE = {  // Lines only partly held by typed records
+	"(sense_body 0 (view_mode high normal) (stamina 8000 1) (speed 0 0) (head_angle 0) (kick 0) (dash 0) (turn 0) (say 0) (turn_neck 0) (catch 0) (move 1) (change_view 0) (arm (movable 0) (expires 0) (target 0 0) (count 0)) (focus (target none) (count 0)) (tackle (expires 0) (count 0)))",
+	"(see 0 ((f r b 20) 13.6 -34 0 0) ((b) 2.5 3) ((l r) 6.2 90))",
+	"(dash 90.0)",
+	"(sense_body 1 (view_mode low narrow) (stamina 7950.5 0.98 130600) (speed 0.12 -45) (head_angle -30) (kick 1) (dash 12))",
+	"(see 1 ((f r b 20)  13.6 -34) ((b) 007 3))",
+	"(turn 40.0)",
+	"(sense_body 2 (view_mode high wide) (stamina 7900 0.97) (speed 0.5 12.25) (head_angle 15) (kick 2) (dash 12) (turn 0) (say 0) (focus (target r 7) (count 3)) (tackle (expires 00) (count 1.50)))\r",
+	"(kick 100.0 23.0)"
+    };
+
+    /** The executable method
+     *
+     * @param a the log files to check
+     *
+     * @throws IOException when a log cannot be read or written
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public static void main(String a[]) throws IOException
+    {
+	if (a.length == 0)
+	    a = new String[] { "University_1.lsf", "Carleton_1.lsf" };
+	boolean same = true;
+	Path sample = Files.createTempFile("check", ".lsf");
+	try {
+	    Files.write(sample, Arrays.asList(SAMPLE));
+	    same &= check(sample.toString());
+	} finally {
+	    Files.delete(sample);
+	}
+	for (int i = 0; i < a.length; i++)
+	    same &= check(a[i]);
+	if (!same)
+	    System.exit(1);
+    }
+
+    /** Reads a log in every way and compares the events, and the
+     * lines written back from its binary log
+     *
+     * @param filename the text log
+     * @return true if every read gives the events of the text parse
+     *
+     * @throws IOException when the log cannot be read or written
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static boolean check(String filename)
+	throws IOException
+    {
+	System.out.println(filename);
+	Path path = Paths.get(filename);
+	ArrayList<String> reference = readLines(filename, new LogParser(), new EventDump());
+	System.out.println("    text      " + reference.size() + " events");
+	boolean same = true;
+
+	LogParser parser = new LogParser();
+	parser.setLazyDecoding(true);
+	same &= compare("lazy", reference, readLines(filename, parser, new EventDump()));
+
+	parser = new LogParser();
+	parser.setRecycleObjectEvents(true);
+	same &= compare("recycle", reference, readLines(filename, parser, new EventDump()));
+
+	EventDump dump = new EventDump();
+	parser = new LogParser();
+	parser.addPEListener(dump);
+	parser.parse(path);
+	same &= compare("file", reference, dump.events);
+
+	dump = new EventDump();
+	parser = new LogParser();
+	parser.addPEListener(dump);
+	InputStream in = new FileInputStream(filename);
+	try {
+	    parser.parse(in);
+	} finally {
+	    in.close();
+	}
+	same &= compare("stream", reference, dump.events);
+
+	dump = new EventDump();
+	parser = new LogParser();
+	parser.addPEListener(dump);
+	parser.parse(ByteBuffer.wrap(Files.readAllBytes(path)));
+	same &= compare("buffer", reference, dump.events);
+
+	dump = new EventDump();
+	ParallelLogParser parallel = new ParallelLogParser();
+	parallel.setChunkSize(CHUNK_SIZE);
+	parallel.addPEListener(dump);
+	parallel.parse(filename);
+	same &= compare("parallel", reference, dump.events);
+
+	Path binary = Files.createTempFile("check", ".lsb");
+	Path back = Files.createTempFile("check", ".lsf");
+	try {
+	    BinaryLogConverter.convert(path, binary);
+	    dump = new EventDump();
+	    parser = new LogParser();
+	    parser.addPEListener(dump);
+	    new BinaryLogReader(parser).parse(binary);
+	    same &= compare("binary", reference, dump.events);
+	    BinaryLogConverter.toText(binary, back);
+	    same &= compare("lsb->lsf", lines(path), lines(back));
+	} finally {
+	    Files.delete(binary);
+	    Files.delete(back);
+	}
+
+	Path deflate = Files.createTempFile("check", ".lsf.z");
+	try {
+	    writeBlocks(filename, deflate.toString());
+	    dump = new EventDump();
+	    parser = new LogParser();
+	    parser.addPEListener(dump);
+	    BlockLogReader reader = new BlockLogReader(deflate.toString());
+	    try {
+		String line;
+		while ((line = reader.readLine()) != null)
+		    parser.parse(line);
+	    } finally {
+		reader.close();
+	    }
+	    same &= compare("deflate", reference, dump.events);
+	} finally {
+	    Files.delete(deflate);
+	    Files.deleteIfExists(Paths.get(deflate + "i"));
+	}
+	return same;
+    }
+
+    /** Parses a log line by line with LogParser.parse(String)
+     *
+     * @param filename the text log
+     * @param parser the parser, with its settings
+     * @param dump the listener keeping the events
+     * @return the events
+     *
+     * @throws IOException when the log cannot be read
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static ArrayList<String> readLines(String filename, LogParser parser, EventDump dump)
+	throws IOException
+    {
+	parser.addPEListener(dump);
+	BufferedReader in = new BufferedReader(new FileReader(filename));
+	try {
+	    String line;
+	    while ((line = in.readLine()) != null)
+		parser.parse(line);
+	} finally {
+	    in.close();
+	}
+	return dump.events;
+    }
+
+    /** Returns the lines of a file as they are, with their carriage
+     * returns, a missing end of the last line being ignored
+     *
+     * @param path the file
+     * @return the lines
+     *
+     * @throws IOException when the file cannot be read
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static ArrayList<String> lines(Path path)
+	throws IOException
+    {
+	ArrayList<String> lines = new ArrayList<String>(Arrays.asList(new String(Files.readAllBytes(path)).split("\n", -1)));
+	if (lines.get(lines.size() - 1).length() == 0)
+	    lines.remove(lines.size() - 1);
+	return lines;
+    }
+
+    /** Writes a text log as a deflate log, the way Logger does
+     *
+     * @param filename the text log
+     * @param blocks the name of the deflate log
+     *
+     * @throws IOException when a log cannot be read or written
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static void writeBlocks(String filename, String blocks)
+	throws IOException
+    {
+	BufferedReader in = new BufferedReader(new FileReader(filename));
+	DeflateBlockOutputStream out = new DeflateBlockOutputStream(blocks, BLOCK_SIZE);
+	try {
+	    int cycle = -1;
+	    String line;
+	    while ((line = in.readLine()) != null) {
+		byte[] record = (line + "\n").getBytes();
+		int c = Logger.cycleOf(record);
+		if (c > cycle) {
+		    out.cycle(c);
+		    cycle = c;
+		}
+		out.write(record, 0, record.length);
+	    }
+	} finally {
+	    out.close();
+	    in.close();
+	}
+    }
+
+    /** Compares the events (or lines) of a read with the reference,
+     * and prints the first difference
+     *
+     * @param read the name of the read
+     * @param reference the events of the text parse
+     * @param events the events of the read
+     * @return true if they are the same
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static boolean compare(String read, ArrayList<String> reference, ArrayList<String> events)
+    {
+	int n = Math.min(reference.size(), events.size());
+	int i = 0;
+	while (i < n && reference.get(i).equals(events.get(i)))
+	    i++;
+	String name = (read + "          ").substring(0, 10);
+	if (i == n && reference.size() == events.size()) {
+	    System.out.println("    " + name + "same");
+	    return true;
+	}
+	System.out.println("    " + name + "DIFFERS at " + (i + 1) + " of " + events.size());
+	System.out.println("      expected: " + (i < reference.size() ? reference.get(i) : "no more events"));
+	System.out.println("      found:    " + (i < events.size() ? events.get(i) : "no more events"));
+	return false;
+    }
+
+    /** Listener keeping every event as a line of text, as soon as it
+     * is received, so the recycled events are read before their reuse
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private static class EventDump implements ParsingEventListener
+    {
+	ArrayList<String> events = new ArrayList<String>();
+
+	/** Keeps an event
+	 *
+	 * @param method the listener method receiving the event
+	 * @param pe the event
+	 *
+	 * @author NMAI Lab
+	 * @since 0.4
+	 *
+	 */
+	private void add(String method, ParsingEvent pe)
+	{
+	    ParsedLine line = pe.getParsedLine();
+	    if (line == null) {
+		events.add(method);
+		return;
+	    }
+	    TreeMap<String,String> params = new TreeMap<String,String>();
+	    for (String p : line.params())
+		params.put(p, line.getValue(p));
+	    StringBuilder event = new StringBuilder();
+	    event.append(method).append(' ').append(line.getType()).append(' ').append(line.getSubtype());
+	    event.append(' ').append(line.getCycle()).append(' ').append(params);
+	    addValues(event, line);
+	    events.add(event.toString());
+	}
+
+	/** Appends the values of a typed message, as its getters give them
+	 *
+	 * @param event the event text
+	 * @param line the parsed line of the event
+	 *
+	 * @author NMAI Lab
+	 * @since 0.4
+	 *
+	 */
+	private void addValues(StringBuilder event, ParsedLine line)
+	{
+	    if (line instanceof SeeMessage) {
+		SeeMessage see = (SeeMessage) line;
+		for (int i = 0; i < see.getObjectCount(); i++)
+		    event.append(" [").append(see.getKind(i)).append(' ').append(see.getName(i))
+			.append(' ').append(see.getTeam(i)).append(' ').append(see.getNumber(i))
+			.append(' ').append(see.isGoalie(i)).append(' ').append(see.getInfoCount(i))
+			.append(' ').append(see.getDistance(i)).append(' ').append(see.getDirection(i))
+			.append(' ').append(see.getDistChange(i)).append(' ').append(see.getDirChange(i))
+			.append(' ').append(see.getBodyDirection(i)).append(' ').append(see.getHeadDirection(i))
+			.append(']');
+	    } else if (line instanceof SeenObject) {
+		SeenObject seen = (SeenObject) line;
+		event.append(" [").append(seen.getKind()).append(' ').append(seen.getName())
+		    .append(' ').append(seen.getTeam()).append(' ').append(seen.getNumber())
+		    .append(' ').append(seen.isGoalie()).append(' ').append(seen.getInfoCount())
+		    .append(' ').append(seen.getDistance()).append(' ').append(seen.getDirection())
+		    .append(' ').append(seen.getDistChange()).append(' ').append(seen.getDirChange())
+		    .append(' ').append(seen.getBodyDirection()).append(' ').append(seen.getHeadDirection())
+		    .append(']');
+	    } else if (line instanceof SenseBodyMessage) {
+		SenseBodyMessage body = (SenseBodyMessage) line;
+		event.append(" [").append(body.getViewQuality()).append(' ').append(body.getViewWidth())
+		    .append(' ').append(body.getStamina()).append(' ').append(body.getEffort())
+		    .append(' ').append(body.getSpeed()).append(' ').append(body.getSpeedDirection())
+		    .append(' ').append(body.getHeadAngle()).append(']');
+	    } else if (line instanceof HearMessage) {
+		HearMessage hear = (HearMessage) line;
+		event.append(" [").append(hear.getWho()).append(' ').append(hear.getDirection())
+		    .append(' ').append(hear.getWhat()).append(']');
+	    } else if (line instanceof DashMessage)
+		event.append(" [").append(((DashMessage) line).getPower()).append(']');
+	    else if (line instanceof TurnMessage)
+		event.append(" [").append(((TurnMessage) line).getDirection()).append(']');
+	    else if (line instanceof KickMessage)
+		event.append(" [").append(((KickMessage) line).getPower())
+		    .append(' ').append(((KickMessage) line).getDirection()).append(']');
+	}
+
+	public void ServerInit(ParsingEvent pe) { add("ServerInit", pe); }
+	public void Hear(ParsingEvent pe) { add("Hear", pe); }
+	public void Score(ParsingEvent pe) { add("Score", pe); }
+	public void SeeReceived(ParsingEvent pe) { add("SeeReceived", pe); }
+	public void SeeParsed(ParsingEvent pe) { add("SeeParsed", pe); }
+	public void SenseBody(ParsingEvent pe) { add("SenseBody", pe); }
+	public void Error(ParsingEvent pe) { add("Error", pe); }
+	public void ServerParams(ParsingEvent pe) { add("ServerParams", pe); }
+	public void Controling(ParsingEvent pe) { add("Controling", pe); }
+	public void Sensing(ParsingEvent pe) { add("Sensing", pe); }
+	public void Player(ParsingEvent pe) { add("Player", pe); }
+	public void Ball(ParsingEvent pe) { add("Ball", pe); }
+	public void Flag(ParsingEvent pe) { add("Flag", pe); }
+	public void Line(ParsingEvent pe) { add("Line", pe); }
+	public void Goal(ParsingEvent pe) { add("Goal", pe); }
+	public void ClientInit(ParsingEvent pe) { add("ClientInit", pe); }
+	public void Catch(ParsingEvent pe) { add("Catch", pe); }
+	public void ChangeView(ParsingEvent pe) { add("ChangeView", pe); }
+	public void Dash(ParsingEvent pe) { add("Dash", pe); }
+	public void Kick(ParsingEvent pe) { add("Kick", pe); }
+	public void Move(ParsingEvent pe) { add("Move", pe); }
+	public void Say(ParsingEvent pe) { add("Say", pe); }
+	public void Turn(ParsingEvent pe) { add("Turn", pe); }
+	public void TurnNeck(ParsingEvent pe) { add("TurnNeck", pe); }
+	public void SimpleControl(ParsingEvent pe) { add("SimpleControl", pe); }
+	public void OtherControl(ParsingEvent pe) { add("OtherControl", pe); }
+    }
+}
@@ -25,6 +25,7 @@ package org.RCSLogServer;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.DatagramChannel;
 import java.util.Vector;
 
 /**
@@ -38,6 +39,16 @@ import java.util.Vector;
  * @param -s_host Soccer Server host address, defaults to localhost
  * @param -s_port the port number the Soccer server is listening, defaults to 6000
  * @param -c_port the port number this Log Server listens, defaults to 7000
+ * @param -mode thread (two threads per player) or nio (selector loops), defaults to thread
+ * @param -loops the number of selector loops in nio mode, defaults to 1
+ * @param -threads platform or virtual threads for the players in thread mode, defaults to platform
+ * @param -handshake_timeout the time the server has to answer a client init (ms), defaults to 5000
+ * @param -idle_timeout the client silence ending a session (ms), 0 to never end it, defaults to 60000
+ * @param -log_queue the number of records each log can queue, defaults to 4096
+ * @param -log_policy block, drop or unbounded (no memory limit) when a log queue is full, defaults to block
+ * @param -log_flush_kb the unflushed KB forcing a log flush within a cycle, defaults to 64
+ * @param -log_format text, deflate (compressed blocks with an index) or binary (binary log records), defaults to text
+ * @param -log_block_kb the uncompressed size of the deflate blocks, defaults to 256
  *
  * @author NMAI Lab
  * @since 0.2
@@ -51,8 +62,15 @@ public class RCSLogServer
     private int s_init_port = 6000;  // Initialization port of Soccer Server
     private int s_port = 0;  // Server port number for communication
     private int c_port = 0;  // Client port number for communication
-    private Vector<Thread> communication_list; // List of Server and Client Communications
+    private Vector<Runnable> communication_list; // List of Server and Client Communications
+    private Vector<LogMemory> session_list; // List of the player sessions
     private DatagramSocket listen_socket;
+    private DatagramChannel listen_channel;  // Listen channel in nio mode
+    private boolean nio_mode = false;  // Serve all players from selector loops
+    private int nio_loops = 1;  // Number of selector loops in nio mode
+    private static long handshake_timeout = 5000;  // Time the server has to answer a client init (ms)
+    private LogServerMetrics metrics;  // JMX view of the sessions
+    private static CommThreadFactory threads = new CommThreadFactory(false);  // Runs the player sessions
     
     /** The executable method
      *
@@ -66,6 +84,8 @@ public class RCSLogServer
 	String s_hostName = new String("localhost");
 	int s_portNum = 6000;
 	int c_portNum = 7000;
+	String mode = "thread";
+	int loops = 1;
 
 	try
 	    {                                                                                
@@ -84,6 +104,67 @@ public class RCSLogServer
 			    {
 				c_portNum = Integer.parseInt(a[c+1]);
 			    }
+			else if ( a[c].compareTo("-mode") == 0 )
+			    {
+				mode = a[c+1];
+				if (mode.compareTo("thread") != 0 && mode.compareTo("nio") != 0)
+				    throw new Exception();
+			    }
+			else if ( a[c].compareTo("-loops") == 0 )
+			    {
+				loops = Integer.parseInt(a[c+1]);
+				if (loops < 1)
+				    throw new Exception();
+			    }
+			else if ( a[c].compareTo("-threads") == 0 )
+			    {
+				if (a[c+1].compareTo("virtual") == 0)
+				    threads = new CommThreadFactory(true);
+				else if (a[c+1].compareTo("platform") != 0)
+				    throw new Exception();
+			    }
+			else if ( a[c].compareTo("-handshake_timeout") == 0 )
+			    {
+				handshake_timeout = Long.parseLong(a[c+1]);
+				if (handshake_timeout < 1)
+				    throw new Exception();
+			    }
+			else if ( a[c].compareTo("-idle_timeout") == 0 )
+			    {
+				long idle = Long.parseLong(a[c+1]);
+				if (idle < 0)
+				    throw new Exception();
+				LogMemory.setIdleTimeout(idle);
+			    }
+			else if ( a[c].compareTo("-log_queue") == 0 )
+			    {
+				int capacity = Integer.parseInt(a[c+1]);
+				if (capacity < 1)
+				    throw new Exception();
+				Logger.setQueueCapacity(capacity);
+			    }
+			else if ( a[c].compareTo("-log_policy") == 0 )
+			    {
+				Logger.setQueuePolicy(Logger.QueuePolicy.valueOf(a[c+1].toUpperCase()));
+			    }
+			else if ( a[c].compareTo("-log_flush_kb") == 0 )
+			    {
+				int kb = Integer.parseInt(a[c+1]);
+				if (kb < 1)
+				    throw new Exception();
+				Logger.setFlushSize(kb * 1024);
+			    }
+			else if ( a[c].compareTo("-log_format") == 0 )
+			    {
+				Logger.setFormat(Logger.Format.valueOf(a[c+1].toUpperCase()));
+			    }
+			else if ( a[c].compareTo("-log_block_kb") == 0 )
+			    {
+				int kb = Integer.parseInt(a[c+1]);
+				if (kb < 1)
+				    throw new Exception();
+				Logger.setBlockSize(kb * 1024);
+			    }
 			else
 			    {
 				throw new Exception();
@@ -100,6 +181,16 @@ public class RCSLogServer
 		System.err.println("    s_host      host_name    localhost");
 		System.err.println("    s_port      port_number  6000");
 		System.err.println("    c_port      port_number  7000");
+		System.err.println("    mode        thread|nio   thread");
+		System.err.println("    loops       count        1");
+		System.err.println("    threads     platform|virtual  platform");
+		System.err.println("    handshake_timeout  ms    5000");
+		System.err.println("    idle_timeout  ms (0 off) 60000");
+		System.err.println("    log_queue   records      4096");
+		System.err.println("    log_policy  block|drop|unbounded  block");
+		System.err.println("    log_flush_kb  size       64");
+		System.err.println("    log_format  text|deflate|binary text");
+		System.err.println("    log_block_kb  size       256");
 		System.err.println("");
 		System.err.println("    Example:");
 		System.err.println("      java RCSLogServer -s_host 127.0.0.1 -s_port 6000 -c_port 7000");
@@ -107,7 +198,11 @@ public class RCSLogServer
 	    }
 
 	System.out.println("Initializing RCSLogServer ...");
-	RCSLogServer logserver = new RCSLogServer(InetAddress.getByName(s_hostName), s_portNum, c_portNum);
+	RCSLogServer logserver;
+	if (mode.compareTo("nio") == 0)
+	    logserver = new RCSLogServer(InetAddress.getByName(s_hostName), s_portNum, c_portNum, loops);
+	else
+	    logserver = new RCSLogServer(InetAddress.getByName(s_hostName), s_portNum, c_portNum);
 
 	// enter main loop
 	logserver.mainLoop();                                               
@@ -126,7 +221,8 @@ public class RCSLogServer
     {
 	s_host = host;
 	s_init_port = port;
-	communication_list = new Vector<Thread>();
+	communication_list = new Vector<Runnable>();
+	session_list = new Vector<LogMemory>();
 	try {
 	    listen_socket = new DatagramSocket(cPort);
 	} catch (SocketException se) {
@@ -134,6 +230,33 @@ public class RCSLogServer
 	    System.exit(0);
 	}
     }
+
+    /** RCSLogServer class constructor method for the nio mode
+     *
+     * @param host the Soccer Server host address
+     * @param port the Soccer Server port
+     * @param cPort this Log Server port
+     * @param loops the number of selector loops serving the players
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     */
+    public RCSLogServer(InetAddress host, int port, int cPort, int loops)
+    {
+	s_host = host;
+	s_init_port = port;
+	communication_list = new Vector<Runnable>();
+	session_list = new Vector<LogMemory>();
+	nio_mode = true;
+	nio_loops = loops;
+	try {
+	    listen_channel = DatagramChannel.open();
+	    listen_channel.bind(new InetSocketAddress(cPort));
+	} catch (IOException ioe) {
+	    System.err.println("Unable to initialize socket connection on port "+Integer.toString(cPort)+"...aborting.");
+	    System.exit(0);
+	}
+    }
 																 
     /** RCSLogServer destructor method
      *  For future use, it is empty.
@@ -154,63 +277,127 @@ public class RCSLogServer
      */
     protected void mainLoop()
     {
-	LogMemory log_memory;
+	metrics = LogServerMetrics.register(session_list);
+	if (nio_mode) {
+	    selectorLoop();
+	    return;
+	}
+
+	// Start the thread accepting the clients: each init message
+	// starts the communication threads between client and server
+	System.out.println("Starting RCSLogServer (" + (threads.isVirtual() ? "virtual" : "platform") + " threads) ...");
+	HandshakeAcceptor acceptor = new HandshakeAcceptor(listen_socket, s_host, s_init_port, threads, communication_list, session_list);
+	acceptor.setHandshakeTimeout(handshake_timeout);
+	Thread acceptor_thread = new Thread(acceptor, "HandshakeAcceptor");
+	acceptor_thread.start();
+
+	System.out.println("Awaiting connections ... ");
+	waitForStop();
+
+	System.out.println("Initiating stop of communication threads.");
+	acceptor.initiateStop();
+	ClientServerComm temp_clientserver = null;
+	ServerClientComm temp_serverclient = null;
+	synchronized (communication_list) {
+	    for (int i = 0; i < communication_list.size(); i+=2) {
+		temp_clientserver = (ClientServerComm)(communication_list.elementAt(i));
+		temp_serverclient = (ServerClientComm)(communication_list.elementAt(i+1));
+		temp_clientserver.initiateStop();
+		temp_serverclient.initiateStop();
+	    }
+	}
+	reportSessions();
+	System.exit(0);
+    }
+
+    /** Main Loop of the Log Server in nio mode. All the players are
+     * served by the selector loops, this thread only waits for the
+     * stop request.
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void selectorLoop()
+    {
+	System.out.println("Starting RCSLogServer (nio mode, " + nio_loops + " loops) ...");
+	try {
+	    SelectorProxy[] loops = new SelectorProxy[nio_loops];
+	    loops[0] = new SelectorProxy(s_host, s_init_port, listen_channel);
+	    for (int i = 1; i < nio_loops; i++)
+		loops[i] = new SelectorProxy(s_host, s_init_port, null);
+	    for (int i = 0; i < nio_loops; i++) {
+		loops[i].setLoops(loops);
+		loops[i].setHandshakeTimeout(handshake_timeout);
+		loops[i].setSessionList(session_list);
+		loops[i].start();
+		communication_list.add(loops[i]);
+	    }
+	}
+	catch (IOException ioe) {
+	    System.err.println("Unable to start selector loops: " + ioe);
+	    System.exit(0);
+	}
 
-	ClientServerComm clientserver = null;
-	ServerClientComm serverclient = null;
+	waitForStop();
 
-	// Start a communcation thread to for initialization between client and server
-	System.out.println("Starting RCSLogServer ...");
+	System.out.println("Initiating stop of selector loops.");
+	for (int i = 0; i < communication_list.size(); i++)
+	    ((SelectorProxy)(communication_list.elementAt(i))).initiateStop();
+	reportSessions();
+	System.exit(0);
+    }
 
+    /** Waits for the stop request on the console. The "stats" command
+     * prints the latency report of the sessions, the "metrics" command
+     * prints the traffic and log counters, any other line stops the log
+     * server.
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void waitForStop()
+    {
 	// Press ENTER key to stop
-	System.out.println("\nAt any time, press ENTER key to stop.\n");
+	System.out.println("\nAt any time, press ENTER key to stop, or type stats or metrics and ENTER for a report.\n");
+	BufferedReader console = new BufferedReader(new InputStreamReader(System.in));
 	boolean done = false;
 
 	while (!done) {
 	    try {
-		log_memory = new LogMemory(s_host, s_init_port);
-		serverclient = new ServerClientComm(log_memory);
-		clientserver = new ClientServerComm(listen_socket, log_memory);
-
-		// Loop until first socket connection has been made, and client port
-		// has been determined in order to allow communication to the client
-		System.out.println("Awaiting connection ... ");
-		while (!log_memory.checkClient() && !done) {
-		    Thread.sleep(1000);
-		    done = (System.in.available() > 0);
+		Thread.sleep(1000);
+		if (System.in.available() > 0) {
+		    String command = console.readLine();
+		    if (command != null && command.trim().compareTo("stats") == 0)
+			reportSessions();
+		    else if (command != null && command.trim().compareTo("metrics") == 0)
+			System.out.print(metrics.dump());
+		    else
+			done = true;
 		}
-
-		communication_list.add(clientserver);
-		communication_list.add(serverclient);
-
-		while (!log_memory.checkServer() && !done) {
-		    Thread.sleep(1000);
-		    done = (System.in.available() > 0);
-		}
-	
-		if (!done)
-		    {
-			System.out.println("Logging initiated for: " + log_memory.getPlayerName() + " -> " + log_memory.getFilename());
-		    }
 	    }
 	    catch (IOException ioe) {
 		System.err.println("Input error: " + ioe);
 	    }
 	    catch (InterruptedException inte) {
-	  	System.err.println("Thread Interruption: inte");
+		System.err.println("Thread Interruption: inte");
 	    }
 	}
+    }
 
-	System.out.println("Initiating stop of communication threads.");
-	ClientServerComm temp_clientserver = null;
-	ServerClientComm temp_serverclient = null;
-	for (int i = 0; i < communication_list.size(); i+=2) {
-	    temp_clientserver = (ClientServerComm)(communication_list.elementAt(i));
-	    temp_serverclient = (ServerClientComm)(communication_list.elementAt(i+1));
-	    temp_clientserver.initiateStop();
-	    temp_serverclient.initiateStop();
+    /** Prints the latency report of the sessions
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    protected void reportSessions()
+    {
+	synchronized (session_list) {
+	    for (LogMemory memory : session_list)
+		System.out.println(memory.getStats().report(memory.getPlayerName()));
 	}
-	System.exit(0);
     }
 
 }
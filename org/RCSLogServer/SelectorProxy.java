@@ -0,0 +1,463 @@
+/** SelectorProxy.java in the package org.RCSLogServer of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+
+/** Event loop multiplexing the client and server legs of many players
+ * on a single Selector (nio mode).
+ *
+ * The loop owning the listen channel accepts the init messages of the
+ * Soccer clients and creates one LogMemory per player. The sessions are
+ * then handed out to the loops in a round robin fashion, so a whole
+ * match is served by one or a few threads instead of two threads per
+ * player. The init messages are demultiplexed by client address, and
+ * sessions whose server does not answer within the handshake timeout
+ * are dropped. A session ends on the (bye) of its client or after the
+ * idle timeout; its channels are then closed, which also cancels its
+ * keys.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+class SelectorProxy extends Thread
+{
+    //===========================================================================
+    // Private members
+    private InetAddress s_host;  // Server host address
+    private int s_init_port;  // Initialization port of Soccer Server
+    private DatagramChannel listen_channel;  // Initial channel to listen on, null if not accepting
+    private SelectorProxy[] loops;  // All the loops sharing the sessions, including this one
+    private int next_loop = 0;  // Next loop to hand a session to
+    private Selector selector;
+    private ByteBuffer buffer;  // Receive buffer shared by all the sessions of this loop
+    private byte[] record;  // Copy of the received bytes for the log
+    private HashMap<SocketAddress,LogMemory> clients;  // Sessions by client address
+    private Vector<LogMemory> session_list;  // List of the player sessions
+    private ConcurrentLinkedQueue<LogMemory> pending;  // Sessions waiting to be registered
+    private ArrayList<LogMemory> handshakes;  // Sessions waiting for the server init
+    private long handshake_timeout = 5000;  // Maximum handshake duration (ms)
+    private long last_check = 0;  // Time of the last idle sessions check (ms)
+    private boolean stopthread = false;
+
+    /** constructor method
+     *
+     * @param host the Soccer Server host address
+     * @param port the Soccer Server port
+     * @param listen the channel to listen on, or null for a loop
+     * that only serves sessions accepted elsewhere
+     *
+     * @throws IOException when the selector cannot be opened
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public SelectorProxy(InetAddress host, int port, DatagramChannel listen)
+	throws IOException
+    {
+	s_host = host;
+	s_init_port = port;
+	listen_channel = listen;
+	selector = Selector.open();
+	buffer = ByteBuffer.allocateDirect(4096);
+	record = new byte[4096];
+	clients = new HashMap<SocketAddress,LogMemory>();
+	session_list = new Vector<LogMemory>();
+	pending = new ConcurrentLinkedQueue<LogMemory>();
+	handshakes = new ArrayList<LogMemory>();
+	loops = new SelectorProxy[] { this };
+	if (listen_channel != null) {
+	    listen_channel.configureBlocking(false);
+	    listen_channel.register(selector, SelectionKey.OP_READ);
+	}
+    }
+
+    /** Sets the loops the accepted sessions are distributed to
+     *
+     * @param all the loops, including this one
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void setLoops(SelectorProxy[] all)
+    {
+	loops = all;
+    }
+
+    /** Sets the list receiving the accepted sessions
+     *
+     * @param sessions the list of the player sessions
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void setSessionList(Vector<LogMemory> sessions)
+    {
+	session_list = sessions;
+    }
+
+    /** Sets the handshake timeout
+     *
+     * @param timeout the maximum handshake duration in milliseconds
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void setHandshakeTimeout(long timeout)
+    {
+	handshake_timeout = timeout;
+    }
+
+    /** This thread stop initialization
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public synchronized void initiateStop()
+    {
+	stopthread = true;
+	selector.wakeup();
+    }
+
+    /** Stop this thread
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public synchronized boolean stopThread()
+    {
+	return stopthread;
+    }
+
+    /** Hands a session to this loop. The channels are registered by
+     * the loop thread itself.
+     *
+     * @param memory the session to serve
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void addSession(LogMemory memory)
+    {
+	pending.add(memory);
+	selector.wakeup();
+    }
+
+    /** Runs the event loop
+     *
+     * @Override
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     */
+    public void run()
+    {
+	while (!stopThread()) {
+	    try {
+		selector.select(500);
+		// the packets of this selection are ready from now on: the
+		// latency includes the time they wait behind the other keys
+		long ready = System.nanoTime();
+		registerPending();
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+		    SelectionKey key = keys.next();
+		    keys.remove();
+		    if (!key.isValid() || !key.isReadable())
+			continue;
+		    if (key.channel() == listen_channel) {
+			accept();
+		    } else {
+			try {
+			    forward(key, ready);
+			} catch (IOException e) {
+			    ((LogMemory)key.attachment()).getStats().socketError();
+			    System.err.println("Socket error " + e);
+			}
+		    }
+		}
+		expireHandshakes();
+		long now = System.currentTimeMillis();
+		if (now - last_check >= LogMemory.RECEIVE_TIMEOUT) {
+		    last_check = now;
+		    expireIdleSessions();
+		    reapSessions();
+		}
+	    } catch (IOException e) {
+		System.err.println("Selector error " + e);
+	    }
+	}
+	try {
+	    selector.close();
+	} catch (IOException e) {
+	    System.err.println("Unable to close selector " + e);
+	}
+    }
+
+    /** Registers the channels of the sessions handed to this loop
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void registerPending()
+    {
+	LogMemory memory;
+	while ((memory = pending.poll()) != null) {
+	    try {
+		memory.getServerChannel().register(selector, SelectionKey.OP_READ, memory);
+		memory.getClientChannel().register(selector, SelectionKey.OP_READ, memory);
+	    } catch (ClosedChannelException e) {
+		System.err.println("Unable to register session channels " + e);
+	    }
+	}
+    }
+
+    /** Receives an init message on the listen channel and starts a
+     * new session, or resends it if the client is already known.
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void accept()
+	throws IOException
+    {
+	buffer.clear();
+	SocketAddress source = listen_channel.receive(buffer);
+	if (source == null)
+	    return;
+	buffer.flip();
+
+	LogMemory memory = clients.get(source);
+	if (memory == null) {
+	    DatagramChannel s_channel = DatagramChannel.open();
+	    DatagramChannel c_channel = DatagramChannel.open();
+	    s_channel.bind(null);
+	    c_channel.bind(null);
+	    s_channel.configureBlocking(false);
+	    c_channel.configureBlocking(false);
+	    memory = new LogMemory(s_host, s_init_port, s_channel, c_channel);
+	    memory.startHandshake();
+
+	    // Packet received - initialize the client end of the session
+	    InetSocketAddress client = (InetSocketAddress)source;
+	    memory.setClientHost(client.getAddress());
+	    memory.setClientPort(client.getPort());
+	    memory.parseClientInit(message(buffer));
+	    clients.put(source, memory);
+	    session_list.add(memory);
+	    handshakes.add(memory);
+
+	    loops[next_loop].addSession(memory);
+	    next_loop = (next_loop + 1) % loops.length;
+	} else if (memory.checkServer() || memory.isClosed()) {
+	    return; // late duplicate, the server has already answered
+	}
+	if (!send(memory.getServerChannel(), memory.getServerAddress(), memory.getStats()))
+	    System.err.println("Send buffer full, init of " + source + " not forwarded");
+    }
+
+    /** Sends the packet in the buffer without blocking. A full socket
+     * send buffer makes the channel send nothing: the packet is then
+     * dropped, like a datagram lost on the way, and counted as a
+     * socket error. Trying again at once would find the buffer still
+     * full.
+     *
+     * @param channel the channel to send the packet with
+     * @param target the address to send the packet to
+     * @param stats the measurements of the session
+     * @return true if the packet has been sent
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private boolean send(DatagramChannel channel, SocketAddress target, SessionStats stats)
+	throws IOException
+    {
+	int length = buffer.remaining();
+	if (channel.send(buffer, target) == length)
+	    return true;
+	stats.socketError();
+	return false;
+    }
+
+    /** Drops the sessions whose server did not answer in time, and
+     * forgets about the completed handshakes
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void expireHandshakes()
+    {
+	Iterator<LogMemory> it = handshakes.iterator();
+	while (it.hasNext()) {
+	    LogMemory memory = it.next();
+	    if (memory.checkServer()) {
+		it.remove();
+	    } else if (memory.handshakeExpired(handshake_timeout)) {
+		System.err.println("No answer from the server after " + handshake_timeout + " ms, dropping client "
+				   + memory.getClientHost() + ":" + memory.getClientPort());
+		memory.close("handshake timeout");
+		it.remove();
+	    }
+	}
+    }
+
+    /** Ends the sessions of this loop that have been silent for longer
+     * than the idle timeout
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void expireIdleSessions()
+    {
+	ArrayList<LogMemory> idle = new ArrayList<LogMemory>();
+	for (SelectionKey key : selector.keys()) {
+	    LogMemory memory = (LogMemory)key.attachment();
+	    if (memory != null && key.channel() == memory.getServerChannel() && memory.idleExpired())
+		idle.add(memory);
+	}
+	for (LogMemory memory : idle)
+	    memory.close("idle timeout");
+    }
+
+    /** Forgets about the sessions that have ended, on the loop that
+     * accepted them
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void reapSessions()
+    {
+	if (listen_channel == null)
+	    return;
+	Iterator<LogMemory> it = clients.values().iterator();
+	while (it.hasNext()) {
+	    LogMemory memory = it.next();
+	    if (memory.isClosed()) {
+		it.remove();
+		LogServerMetrics.reap(session_list, memory);
+	    }
+	}
+    }
+
+    /** Routes a packet received on one of the legs of a session to the
+     * other end
+     *
+     * @param key the selection key of the leg
+     * @param ready the time the selector woke up (ns)
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private void forward(SelectionKey key, long ready)
+	throws IOException
+    {
+	LogMemory memory = (LogMemory)key.attachment();
+	DatagramChannel channel = (DatagramChannel)key.channel();
+
+	buffer.clear();
+	SocketAddress source = channel.receive(buffer);
+	if (source == null)
+	    return;
+	buffer.flip();
+	int length = buffer.remaining();
+
+	SessionDescriptor session = memory.getDescriptor();
+	if (session == null) {
+	    if (channel != memory.getServerChannel())
+		return; // the client cannot talk before the server has answered
+	    // First packet from the server - initialize the server end
+	    InetSocketAddress server = (InetSocketAddress)source;
+	    memory.setServerHost(server.getAddress());
+	    memory.setServerPort(server.getPort());
+	    memory.parseServerInit(message(buffer));
+	    memory.finishHandshake();
+	    session = memory.publish();
+	    if (!send(session.client_channel, session.client_address, session.stats))
+		System.err.println("Send buffer full, server init of " + session.player_name + " not forwarded");
+	    System.out.println("Logging initiated for: " + session.player_name + " -> " + memory.getFilename()
+			       + " (handshake " + memory.getHandshakeTime() + " ms)");
+	    return;
+	}
+
+	boolean from_client = (channel == session.client_channel);
+	if (session.log != null || from_client) {
+	    buffer.get(record, 0, length);
+	    buffer.rewind();
+	}
+	// a packet dropped on a full send buffer is neither counted as
+	// forwarded nor logged
+	boolean sent;
+	if (from_client) {
+	    sent = send(session.server_channel, session.server_address, session.stats);
+	    if (sent)
+		session.stats.clientToServer(length, System.nanoTime() - ready);
+	} else {
+	    sent = send(session.client_channel, session.client_address, session.stats);
+	    if (sent)
+		session.stats.serverToClient(length, System.nanoTime() - ready);
+	}
+	if (sent && session.log != null)
+	    session.log.addRecord(record, 0, length);
+	if (from_client && LogMemory.isBye(record, 0, length))
+	    memory.close("bye");
+    }
+
+    /** Decodes a received init packet, leaving the buffer untouched
+     *
+     * @param packet the received packet, ready to be read
+     * @return the trimmed message
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private String message(ByteBuffer packet)
+    {
+	int length = packet.remaining();
+	packet.get(record, 0, length);
+	packet.rewind();
+	return (new String(record, 0, length)).trim();
+    }
+}
@@ -25,7 +25,6 @@ package org.RCSLogServer;
 
 import java.io.*;
 import java.net.*;
-import java.util.*;
 
 /** Establishes the communication with the Soccer Server
  *
@@ -33,7 +32,7 @@ import java.util.*;
  * @since 0.2
  *
  */
-class ServerClientComm extends Thread
+class ServerClientComm implements Runnable
 {
 
     // Private members
@@ -52,7 +51,6 @@ class ServerClientComm extends Thread
     public ServerClientComm(LogMemory memory)
     {
 	log_memory = memory;
-	start();
     }
 																 
     /** RCSLogServer destructor method
@@ -98,69 +96,115 @@ class ServerClientComm extends Thread
     public void run()
     {
 	byte[] buffer = new byte[log_memory.getPacketSize()];
-	DatagramPacket packet = new DatagramPacket(buffer, log_memory.getPacketSize());
-
-	try {
-	    log_memory.server_socket.receive(packet);
-	} catch (IOException e) {
-	    System.err.println("Socket receiving error " + e);
+	DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+
+	// Wait for the server init, unless the handshake is dropped
+	boolean initialized = false;
+	while (!initialized) {
+	    if (stopThread() || log_memory.isClosed())
+		return;
+	    try {
+		log_memory.getServerSocket().receive(packet);
+		initialized = true;
+	    } catch (SocketTimeoutException e) {
+		// check for stop
+	    } catch (IOException e) {
+		if (!stopThread() && !log_memory.isClosed())
+		    System.err.println("Socket receiving error " + e);
+		return;
+	    }
 	}
 
 	// Route packet to actual destination
-	String record = (new String(buffer)).trim();
+	String record = (new String(buffer, 0, packet.getLength())).trim();
 
 	// Packet received - check to see if server and/or client port has been
 	// initialized, and intialize if it has not been
 	log_memory.setServerHost(packet.getAddress());
 	log_memory.setServerPort(packet.getPort());
 	log_memory.parseServerInit(record);
+	log_memory.finishHandshake();
 
-	send(record);
+	// From now on the session is only read through its descriptor
+	SessionDescriptor session = log_memory.publish();
+	send(session, packet);
+	System.out.println("Logging initiated for: " + session.player_name + " -> " + log_memory.getFilename()
+			   + " (handshake " + log_memory.getHandshakeTime() + " ms)");
 	//log_memory.log.addRecord(record);
 
-	// Continually loop receiving/sending messages until thread is stopped
-	while (!stopThread()) {
-	    record = receive();
-	    send(record);
-	    log_memory.log.addRecord(record);
+	// The same buffer and packet are used for every message: only the
+	// received bytes are forwarded, and they are logged without
+	// building a String
+	int packet_size = session.packet_size;
+	if (packet_size > buffer.length) {
+	    buffer = new byte[packet_size];
+	    packet.setData(buffer);
+	}
+
+	// Continually loop receiving/sending messages until thread is
+	// stopped or the session has ended
+	while (!stopThread() && !log_memory.isClosed()) {
+	    if (receive(session, packet, packet_size)) {
+		// the packet is timed from the return of receive(): the send call time
+		long received = System.nanoTime();
+		send(session, packet);
+		session.stats.serverToClient(packet.getLength(), System.nanoTime() - received);
+		if (session.log != null)
+		    session.log.addRecord(buffer, 0, packet.getLength());
+	    }
 	}
     }
 
-    /** Sends via socket message to the Soccer Server
+    /** Sends via socket the received message to the Soccer client
+     *
+     * @param session the session descriptor
+     * @param packet the packet holding the received message
      *
      * @author NMAI Lab
      * @since 0.2
      *
      */
-    private void send(String message)
+    private void send(SessionDescriptor session, DatagramPacket packet)
     {
-	byte[] buffer = new byte[log_memory.getPacketSize()];
-	buffer=Arrays.copyOf(message.getBytes(),log_memory.getPacketSize());
-	DatagramPacket packet = new DatagramPacket(buffer, log_memory.getPacketSize(), log_memory.client_host, log_memory.client_port);
+	packet.setSocketAddress(session.client_address);
 	try {
-	    log_memory.client_socket.send(packet);
+	    session.client_socket.send(packet);
 	} catch (IOException e) {
-	    System.err.println("Socket sending error " + e);
+	    if (!log_memory.isClosed()) {
+		session.stats.socketError();
+		System.err.println("Socket sending error " + e);
+	    }
 	}
     }
 
-    /** Waits for new messages from the Soccer client
+    /** Waits for new messages from the Soccer Server
+     *
+     * @param session the session descriptor
+     * @param packet the packet to receive into
+     * @param packet_size the maximum message size
+     * @return true if a message has been received
      *
      * @author NMAI Lab
      * @since 0.2
      *
      */
-    private String receive() 
+    private boolean receive(SessionDescriptor session, DatagramPacket packet, int packet_size)
     {
-	byte[] buffer = new byte[log_memory.getPacketSize()];
-	DatagramPacket packet = new DatagramPacket(buffer, log_memory.getPacketSize());
-
+	packet.setLength(packet_size);
 	try {
-	    log_memory.server_socket.receive(packet);
+	    session.server_socket.receive(packet);
+	} catch (SocketTimeoutException e) {
+	    if (log_memory.idleExpired())
+		log_memory.close("idle timeout");
+	    return false;
 	} catch (IOException e) {
-	    System.err.println("Socket receiving error " + e);
+	    if (!stopThread() && !log_memory.isClosed()) {
+		session.stats.socketError();
+		System.err.println("Socket receiving error " + e);
+	    }
+	    return false;
 	}
-
-	return (new String(buffer)).trim();
+	// a receive released by the end of the session returns nothing
+	return !log_memory.isClosed();
     }
 }
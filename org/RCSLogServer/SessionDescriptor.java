@@ -0,0 +1,90 @@
+/** SessionDescriptor.java in the package org.RCSLogServer of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer;
+
+import java.net.*;
+import java.nio.channels.DatagramChannel;
+
+
+/** Immutable description of an established player session
+ *
+ * LogMemory collects the session state during the handshake and
+ * publishes a SessionDescriptor once the server has answered. The
+ * forwarding loops then read the end points, sockets, packet size and
+ * logger from the descriptor without taking any lock. All the fields
+ * are final, so the descriptor is safely shared between the threads.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+final class SessionDescriptor
+{
+    //===========================================================================
+    // Public members
+    public final InetSocketAddress server_address;  // Server end point of the session
+    public final InetSocketAddress client_address;  // Client end point of the session
+    public final DatagramSocket server_socket;  // Socket for communicating with Server
+    public final DatagramSocket client_socket;  // Socket for communicating with Client
+    public final DatagramChannel server_channel;  // Channel for communicating with Server, null in thread mode
+    public final DatagramChannel client_channel;  // Channel for communicating with Client, null in thread mode
+    public final int packet_size;  // Maximum message size
+    public final Logger log;  // Log writing, null if the init messages could not be parsed
+    public final String player_name;  // Team name + player number
+    public final SessionStats stats;  // Latency measurements of the session
+
+    /** constructor method
+     *
+     * @param s_address the server end point
+     * @param c_address the client end point
+     * @param s_socket the socket for communicating with the server
+     * @param c_socket the socket for communicating with the client
+     * @param s_channel the channel for communicating with the server, or null
+     * @param c_channel the channel for communicating with the client, or null
+     * @param p_size the maximum message size
+     * @param logger the log of the session, or null
+     * @param name the player name
+     * @param session_stats the measurements of the session
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public SessionDescriptor(InetSocketAddress s_address, InetSocketAddress c_address,
+			     DatagramSocket s_socket, DatagramSocket c_socket,
+			     DatagramChannel s_channel, DatagramChannel c_channel,
+			     int p_size, Logger logger, String name, SessionStats session_stats)
+    {
+	server_address = s_address;
+	client_address = c_address;
+	server_socket = s_socket;
+	client_socket = c_socket;
+	server_channel = s_channel;
+	client_channel = c_channel;
+	packet_size = p_size;
+	log = logger;
+	player_name = name;
+	stats = session_stats;
+    }
+}
@@ -0,0 +1,115 @@
+/** SessionMXBean.java in the package org.RCSLogServer of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer;
+
+
+/** Management interface of a player session
+ *
+ * Exposes the counters of a session through JMX, under the name
+ * org.RCSLogServer:type=Session,name=<player>,client=<port>.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+public interface SessionMXBean
+{
+    /** Returns the player name
+     *
+     * @return the team name and uniform number
+     */
+    public String getPlayerName();
+
+    /** Returns the log file name
+     *
+     * @return the log file name
+     */
+    public String getLogFile();
+
+    /** Returns the packets forwarded from the client to the server
+     *
+     * @return the packet count
+     */
+    public long getPacketsClientToServer();
+
+    /** Returns the packets forwarded from the server to the client
+     *
+     * @return the packet count
+     */
+    public long getPacketsServerToClient();
+
+    /** Returns the bytes forwarded from the client to the server
+     *
+     * @return the byte count
+     */
+    public long getBytesClientToServer();
+
+    /** Returns the bytes forwarded from the server to the client
+     *
+     * @return the byte count
+     */
+    public long getBytesServerToClient();
+
+    /** Returns the records written to the log file
+     *
+     * @return the record count
+     */
+    public long getLogRecordsWritten();
+
+    /** Returns the bytes written to the log file, before compression
+     *
+     * @return the byte count
+     */
+    public long getLogBytesWritten();
+
+    /** Returns the records waiting to be written to the log file
+     *
+     * @return the queue depth
+     */
+    public int getLogQueueDepth();
+
+    /** Returns the records dropped because the log queue was full
+     *
+     * @return the dropped records count
+     */
+    public long getLogRecordsDropped();
+
+    /** Returns the number of socket errors
+     *
+     * @return the error count
+     */
+    public long getSocketErrors();
+
+    /** Returns the time since the last forwarded packet
+     *
+     * @return the idle time in milliseconds
+     */
+    public long getMillisSinceLastPacket();
+
+    /** Returns the proxy latency percentiles of both directions
+     *
+     * @return the latency report
+     */
+    public String getLatencyReport();
+}
@@ -0,0 +1,137 @@
+/** SessionMetrics.java in the package org.RCSLogServer of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer;
+
+
+/** JMX view of a player session
+ *
+ * Reads the counters of the session stats and of the session log on
+ * demand.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+class SessionMetrics implements SessionMXBean
+{
+    //===========================================================================
+    // Private members
+    private LogMemory memory;  // The session
+
+    /** constructor method
+     *
+     * @param session the session
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public SessionMetrics(LogMemory session)
+    {
+	memory = session;
+    }
+
+    public String getPlayerName()
+    {
+	return memory.getPlayerName();
+    }
+
+    public String getLogFile()
+    {
+	return memory.getFilename();
+    }
+
+    public long getPacketsClientToServer()
+    {
+	return memory.getStats().getPacketsClientToServer();
+    }
+
+    public long getPacketsServerToClient()
+    {
+	return memory.getStats().getPacketsServerToClient();
+    }
+
+    public long getBytesClientToServer()
+    {
+	return memory.getStats().getBytesClientToServer();
+    }
+
+    public long getBytesServerToClient()
+    {
+	return memory.getStats().getBytesServerToClient();
+    }
+
+    public long getLogRecordsWritten()
+    {
+	Logger log = log();
+	return (log == null) ? 0 : log.getRecordsWritten();
+    }
+
+    public long getLogBytesWritten()
+    {
+	Logger log = log();
+	return (log == null) ? 0 : log.getBytesWritten();
+    }
+
+    public int getLogQueueDepth()
+    {
+	Logger log = log();
+	return (log == null) ? 0 : log.getQueueDepth();
+    }
+
+    public long getLogRecordsDropped()
+    {
+	Logger log = log();
+	return (log == null) ? 0 : log.getDroppedCount();
+    }
+
+    public long getSocketErrors()
+    {
+	return memory.getStats().getSocketErrors();
+    }
+
+    public long getMillisSinceLastPacket()
+    {
+	return memory.getStats().getMillisSinceLastPacket();
+    }
+
+    public String getLatencyReport()
+    {
+	return memory.getStats().report(memory.getPlayerName());
+    }
+
+    /** Returns the log of the session
+     *
+     * @return the logger, null if the session has no log
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    private Logger log()
+    {
+	SessionDescriptor session = memory.getDescriptor();
+	return (session == null) ? null : session.log;
+    }
+}
@@ -0,0 +1,234 @@
+/** SessionStats.java in the package org.RCSLogServer of the RCSLogServer project.
+    Originally created 18-Oct-26
+
+    Copyright (C) 2008  Network Management and Artificial Intelligence Lab, Carleton University
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License along
+    with this program; if not, write to the Free Software Foundation, Inc.,
+    51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+
+    *
+    */
+
+
+package org.RCSLogServer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/** Measurements of a player session
+ *
+ * Holds the forwarding latency of the proxy, and the packets and
+ * bytes forwarded, for each direction of the session: messages from
+ * the client to the server, and from the server to the client. Each
+ * direction has a single writer; the socket errors may be counted by
+ * both.
+ *
+ * In nio mode the latency runs from the wake up of the selector that
+ * found the packet to the end of its send, so it includes the time
+ * spent on the other packets of the same selection, like a logger
+ * blocked on a full queue. In thread mode each leg has its own thread
+ * and the latency only runs from the return of receive() to the end
+ * of send(), the send call time: a packet waiting in the socket buffer
+ * while its thread is busy is not seen.
+ *
+ * @author NMAI Lab
+ * @since 0.4
+ *
+ */
+class SessionStats
+{
+    //===========================================================================
+    // Public members
+    public final LatencyHistogram client_to_server;  // Latency of the client leg
+    public final LatencyHistogram server_to_client;  // Latency of the server leg
+
+    //===========================================================================
+    // Private members
+    private final AtomicLong packets_client_to_server = new AtomicLong();
+    private final AtomicLong packets_server_to_client = new AtomicLong();
+    private final AtomicLong bytes_client_to_server = new AtomicLong();
+    private final AtomicLong bytes_server_to_client = new AtomicLong();
+    private final AtomicLong socket_errors = new AtomicLong();
+    private final AtomicLong last_packet = new AtomicLong(System.currentTimeMillis());  // Time of the last packet (ms)
+    private final AtomicLong last_client_packet = new AtomicLong(System.currentTimeMillis());  // Time of the last packet of the client (ms)
+
+    /** constructor method
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public SessionStats()
+    {
+	client_to_server = new LatencyHistogram();
+	server_to_client = new LatencyHistogram();
+    }
+
+    /** Records a message forwarded from the client to the server. Only
+     * the client leg may call it.
+     *
+     * @param bytes the message size
+     * @param latency the forwarding time in nanoseconds
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void clientToServer(int bytes, long latency)
+    {
+	client_to_server.record(latency);
+	packets_client_to_server.lazySet(packets_client_to_server.get() + 1);
+	bytes_client_to_server.lazySet(bytes_client_to_server.get() + bytes);
+	long now = System.currentTimeMillis();
+	last_packet.lazySet(now);
+	last_client_packet.lazySet(now);
+    }
+
+    /** Records a message forwarded from the server to the client. Only
+     * the server leg may call it.
+     *
+     * @param bytes the message size
+     * @param latency the forwarding time in nanoseconds
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void serverToClient(int bytes, long latency)
+    {
+	server_to_client.record(latency);
+	packets_server_to_client.lazySet(packets_server_to_client.get() + 1);
+	bytes_server_to_client.lazySet(bytes_server_to_client.get() + bytes);
+	last_packet.lazySet(System.currentTimeMillis());
+    }
+
+    /** Counts a socket error
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public void socketError()
+    {
+	socket_errors.incrementAndGet();
+    }
+
+    /** Returns the packets forwarded from the client to the server
+     *
+     * @return the packet count
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getPacketsClientToServer()
+    {
+	return packets_client_to_server.get();
+    }
+
+    /** Returns the packets forwarded from the server to the client
+     *
+     * @return the packet count
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getPacketsServerToClient()
+    {
+	return packets_server_to_client.get();
+    }
+
+    /** Returns the bytes forwarded from the client to the server
+     *
+     * @return the byte count
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getBytesClientToServer()
+    {
+	return bytes_client_to_server.get();
+    }
+
+    /** Returns the bytes forwarded from the server to the client
+     *
+     * @return the byte count
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getBytesServerToClient()
+    {
+	return bytes_server_to_client.get();
+    }
+
+    /** Returns the number of socket errors
+     *
+     * @return the error count
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getSocketErrors()
+    {
+	return socket_errors.get();
+    }
+
+    /** Returns the time since the last forwarded packet
+     *
+     * @return the idle time in milliseconds
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getMillisSinceLastPacket()
+    {
+	return System.currentTimeMillis() - last_packet.get();
+    }
+
+    /** Returns the time since the last packet forwarded from the
+     * client. The server keeps sending sensor messages to a client that
+     * is gone, so this is the silence that tells a dead session.
+     *
+     * @return the idle time of the client in milliseconds
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public long getMillisSinceLastClientPacket()
+    {
+	return System.currentTimeMillis() - last_client_packet.get();
+    }
+
+    /** Returns the latency report of the session
+     *
+     * @param player the player name
+     * @return the report, one line per direction
+     *
+     * @author NMAI Lab
+     * @since 0.4
+     *
+     */
+    public String report(String player)
+    {
+	return player + " client->server " + client_to_server + "\n"
+	    + player + " server->client " + server_to_client;
+    }
+}